@@ -0,0 +1,79 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.evaluation.approximator.*;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ActivityType;
+import org.oristool.eulero.modeling.TimeGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fitting of every approximator to the CDF of a SEQ block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApproximatorBenchmark {
+    private static final int BODY_PIECES = 4;
+
+    @Param({"EXPMixture", "TruncatedExponential", "TruncatedExponentialMixture", "DoubleTruncatedEXP",
+            "SOSpline", "SplineBodyEXPTail", "SplineTruncatedEXP"})
+    public String approximator;
+
+    private Approximator instance;
+    private double[] cdf;
+    private double low;
+    private double upp;
+    private BigDecimal step;
+
+    @Setup
+    public void setup() {
+        instance = create(approximator);
+        Activity model = BenchmarkModels.block(ActivityType.SEQ, 3);
+        low = model.low().doubleValue();
+        upp = model.upp().doubleValue();
+        step = TimeGrid.fairStep(upp);
+        cdf = BenchmarkModels.strategy().analyze(model, model.upp(), step);
+    }
+
+    private static Approximator create(String name) {
+        switch (name) {
+            case "EXPMixture": return new EXPMixtureApproximation();
+            case "TruncatedExponential": return new TruncatedExponentialApproximation();
+            case "TruncatedExponentialMixture": return new TruncatedExponentialMixtureApproximation();
+            case "DoubleTruncatedEXP": return new DoubleTruncatedEXPApproximation();
+            case "SOSpline": return new SOSplineApproximation(BODY_PIECES);
+            case "SplineBodyEXPTail": return new SplineBodyEXPTailApproximation(BODY_PIECES);
+            case "SplineTruncatedEXP": return new SplineTruncatedEXP(BODY_PIECES);
+            default: throw new IllegalArgumentException("Unknown approximator " + name);
+        }
+    }
+
+    @Benchmark
+    public List<?> approximate() {
+        return instance.getApproximatedStochasticTransitionFeatures(cdf, low, upp, step);
+    }
+}
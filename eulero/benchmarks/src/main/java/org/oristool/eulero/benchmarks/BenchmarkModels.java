@@ -0,0 +1,111 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
+import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristics1;
+import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
+import org.oristool.eulero.evaluation.heuristics.CDFCache;
+import org.oristool.eulero.examples.ModelSuiteGenerationParameter;
+import org.oristool.eulero.modelgeneration.RandomGenerator;
+import org.oristool.eulero.modelgeneration.blocksettings.BlockTypeSetting;
+import org.oristool.eulero.modeling.*;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Models shared by the benchmarks, identical in every run.
+ */
+final class BenchmarkModels {
+    static final long SEED = 42;
+
+    private BenchmarkModels() {}
+
+    /**
+     * Binary encoding of a model, decoded by {@link #decode(byte[])} into
+     * fresh copies: the analysis simplifies the models it analyzes in place.
+     */
+    static byte[] encode(Activity model) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ModelFormat.Writer writer = new ModelFormat.Writer(bytes)) {
+            writer.write(model);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Activity decode(byte[] encoded) {
+        try (ModelFormat.Reader reader = new ModelFormat.Reader(new ByteArrayInputStream(encoded))) {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Random model with the suite settings of the given depth (2 to 4).
+     */
+    static Activity suiteModel(int depth, long seed) {
+        for (ArrayList<Set<BlockTypeSetting>> settings : ModelSuiteGenerationParameter.SETTINGS()) {
+            if (settings.size() == depth)
+                return new RandomGenerator(ModelSuiteGenerationParameter.feature, settings).generateBlock(depth, seed);
+        }
+        throw new IllegalArgumentException("No suite settings of depth " + depth);
+    }
+
+    /**
+     * Block of the given type over uniform activities on [0, 1].
+     */
+    static Activity block(ActivityType type, int activities) {
+        Activity[] children = new Activity[activities];
+        for (int i = 0; i < activities; i++)
+            children[i] = new Simple("U" + i, StochasticTransitionFeature.newUniformInstance("0", "1"));
+
+        switch (type) {
+            case SEQ:
+                return DAG.sequence("SEQ", children);
+            case AND:
+                return DAG.forkJoin("AND", children);
+            case XOR:
+                return new XOR("XOR", List.of(children), Collections.nCopies(activities, 1.0 / activities));
+            default:
+                throw new IllegalArgumentException("Unsupported block type " + type);
+        }
+    }
+
+    /**
+     * Quiet strategy with the suite thresholds; its CDF cache is disabled so
+     * that every invocation repeats the analysis.
+     */
+    static AnalysisHeuristicsStrategy strategy() {
+        AnalysisHeuristicsStrategy strategy = new AnalysisHeuristics1(
+                BigInteger.valueOf(2), BigInteger.valueOf(7), new EXPMixtureApproximation(), false);
+        strategy.setCache(new CDFCache(0));
+        return strategy;
+    }
+}
@@ -0,0 +1,52 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ActivityType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transient analysis of the STPN of small blocks with Sirio, which grows
+ * quickly with the model: random suite models are left to
+ * {@link ModelBenchmark#analyze()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ForwardAnalysisBenchmark {
+    @Param({"SEQ", "AND", "XOR"})
+    public ActivityType type;
+
+    private Activity model;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkModels.block(type, 3);
+    }
+
+    @Benchmark
+    public Object forwardAnalyze() {
+        return model.forwardAnalyze("3", "0.01", "0.001");
+    }
+}
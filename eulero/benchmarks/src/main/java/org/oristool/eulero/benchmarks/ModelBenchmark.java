@@ -0,0 +1,94 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-model operations on random models of the suite settings, generated
+ * with a fixed seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+    private static final int SIMULATION_RUNS = 10_000;
+
+    @Param({"2", "3", "4"})
+    public int depth;
+
+    private AnalysisHeuristicsStrategy strategy;
+    private Activity model;
+    private byte[] encoded;
+    private Activity copy;
+    private BigDecimal timeLimit;
+    private BigDecimal step;
+
+    @Setup
+    public void setup() {
+        strategy = BenchmarkModels.strategy();
+        model = BenchmarkModels.suiteModel(depth, BenchmarkModels.SEED);
+        timeLimit = model.max().add(BigDecimal.ONE);
+        step = model.getFairTimeTick();
+        encoded = BenchmarkModels.encode(model);
+    }
+
+    /**
+     * The analysis simplifies the model in place: each invocation analyzes a
+     * fresh copy, decoded outside the measured time.
+     */
+    @Setup(Level.Invocation)
+    public void copyModel() {
+        copy = BenchmarkModels.decode(encoded);
+    }
+
+    @Benchmark
+    public BigInteger computeC() {
+        return model.computeC(false);
+    }
+
+    @Benchmark
+    public PetriNet buildSTPN() {
+        PetriNet pn = new PetriNet();
+        Place in = pn.addPlace("pBEGIN");
+        Place out = pn.addPlace("pEND");
+        model.buildSTPN(pn, in, out, 1);
+        return pn;
+    }
+
+    @Benchmark
+    public double[] analyze() {
+        return strategy.analyze(copy, timeLimit, step);
+    }
+
+    @Benchmark
+    public Object simulate() {
+        return model.simulate(timeLimit.toString(), step.toString(), SIMULATION_RUNS, 1, BenchmarkModels.SEED);
+    }
+}
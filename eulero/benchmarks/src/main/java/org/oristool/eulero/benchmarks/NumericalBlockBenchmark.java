@@ -0,0 +1,78 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ActivityType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Numerical analysis of SEQ, AND and XOR blocks of four uniform activities
+ * on grids of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NumericalBlockBenchmark {
+    private static final int ACTIVITIES = 4;
+    private static final BigDecimal NO_REDUCTION = BigDecimal.ONE;
+    private static final BigDecimal ERROR = BigDecimal.valueOf(0.001);
+
+    // divisors of the time limit, so that the step is exact
+    @Param({"1000", "10000", "100000"})
+    public int samples;
+
+    private AnalysisHeuristicsStrategy strategy;
+    private Activity seq;
+    private Activity and;
+    private Activity xor;
+    private BigDecimal timeLimit;
+    private BigDecimal step;
+
+    @Setup
+    public void setup() {
+        strategy = BenchmarkModels.strategy();
+        seq = BenchmarkModels.block(ActivityType.SEQ, ACTIVITIES);
+        and = BenchmarkModels.block(ActivityType.AND, ACTIVITIES);
+        xor = BenchmarkModels.block(ActivityType.XOR, ACTIVITIES);
+        timeLimit = BigDecimal.valueOf(ACTIVITIES);
+        step = timeLimit.divide(BigDecimal.valueOf(samples));
+    }
+
+    @Benchmark
+    public double[] numericalSEQ() {
+        return strategy.numericalSEQ(seq, timeLimit, step, NO_REDUCTION, ERROR, "");
+    }
+
+    @Benchmark
+    public double[] numericalAND() {
+        return strategy.numericalAND(and, timeLimit, step, NO_REDUCTION, ERROR, "");
+    }
+
+    @Benchmark
+    public double[] numericalXOR() {
+        return strategy.numericalXOR(xor, timeLimit, step, NO_REDUCTION, ERROR, "");
+    }
+}
@@ -0,0 +1,295 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
+import org.oristool.eulero.evaluation.heuristics.*;
+import org.oristool.eulero.metrics.ThreadAllocation;
+import org.oristool.eulero.modeling.*;
+import org.oristool.eulero.simulation.MonteCarloSimulator;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end performance regression check of the analysis heuristics.
+ *
+ * A fixed set of models, built or generated with fixed seeds, is analyzed by
+ * each heuristic (every run on a fresh copy, since the analysis simplifies
+ * models in place), recording wall time (median of repetitions), peak heap,
+ * bytes allocated by the analysis thread, solver invocations and the
+ * Jensen-Shannon distance from a ground truth obtained by seeded simulation.
+ * {@code record} stores ground truths and metrics in a directory;
+ * {@code check} measures again and exits with status 1 if a metric is worse
+ * than its baseline beyond the tolerance. Everything runs offline, and all
+ * metrics but time and heap are deterministic.
+ *
+ * Usage: {@code RegressionSuite record|check [directory]}
+ */
+public class RegressionSuite {
+    /**
+     * Version of models and settings: baselines of other versions are rejected.
+     */
+    public static final int VERSION = 1;
+
+    private static final String BASELINE = "baseline.tsv";
+    private static final String TRUTH = ".truth";
+    private static final int GROUND_TRUTH_RUNS = 1_000_000;
+    private static final int REPETITIONS = 3;
+
+    private static final double TIME_TOLERANCE = 1.5;
+    private static final double TIME_SLACK_MILLIS = 50;
+    private static final double MEMORY_TOLERANCE = 1.25;
+    private static final double MEMORY_SLACK_BYTES = 16 << 20;
+    private static final double DISTANCE_TOLERANCE = 1.1;
+    private static final double DISTANCE_SLACK = 1e-4;
+
+    /**
+     * Measured metrics of a model and heuristic.
+     */
+    static class Metrics {
+        final double wallMillis;
+        final long peakHeap;
+        final long allocated;
+        final long solverInvocations;
+        final double distance;
+
+        Metrics(double wallMillis, long peakHeap, long allocated, long solverInvocations, double distance) {
+            this.wallMillis = wallMillis;
+            this.peakHeap = peakHeap;
+            this.allocated = allocated;
+            this.solverInvocations = solverInvocations;
+            this.distance = distance;
+        }
+
+        String line() {
+            return String.format(Locale.ROOT, "%.3f\t%d\t%d\t%d\t%.9g", wallMillis, peakHeap, allocated, solverInvocations, distance);
+        }
+
+        static Metrics parse(String[] fields, int from) {
+            return new Metrics(Double.parseDouble(fields[from]), Long.parseLong(fields[from + 1]),
+                    Long.parseLong(fields[from + 2]), Long.parseLong(fields[from + 3]), Double.parseDouble(fields[from + 4]));
+        }
+
+        /**
+         * Metrics worse than the baseline beyond the tolerances.
+         */
+        List<String> regressions(Metrics baseline) {
+            List<String> regressions = new ArrayList<>();
+            if (wallMillis > baseline.wallMillis * TIME_TOLERANCE + TIME_SLACK_MILLIS)
+                regressions.add(String.format(Locale.ROOT, "time %.1fms > %.1fms", wallMillis, baseline.wallMillis));
+            if (peakHeap > baseline.peakHeap * MEMORY_TOLERANCE + MEMORY_SLACK_BYTES)
+                regressions.add("peak heap " + peakHeap + " > " + baseline.peakHeap);
+            if (allocated > baseline.allocated * MEMORY_TOLERANCE + MEMORY_SLACK_BYTES)
+                regressions.add("allocated " + allocated + " > " + baseline.allocated);
+            if (solverInvocations > baseline.solverInvocations)
+                regressions.add("solver invocations " + solverInvocations + " > " + baseline.solverInvocations);
+            if (distance > baseline.distance * DISTANCE_TOLERANCE + DISTANCE_SLACK)
+                regressions.add(String.format(Locale.ROOT, "distance %.3g > %.3g", distance, baseline.distance));
+            return regressions;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2 || !(args[0].equals("record") || args[0].equals("check")))
+            throw new IllegalArgumentException("Usage: RegressionSuite record|check [directory]");
+
+        Path directory = Path.of(args.length == 2 ? args[1] : "baselines");
+        boolean regressed = args[0].equals("record") ? record(directory) : check(directory);
+        if (regressed)
+            System.exit(1);
+    }
+
+    /**
+     * Models of this version of the suite.
+     */
+    static Map<String, Activity> models() {
+        Map<String, Activity> models = new LinkedHashMap<>();
+        models.put("workflow", workflow());
+        models.put("suite-depth2", BenchmarkModels.suiteModel(2, BenchmarkModels.SEED));
+        models.put("suite-depth3", BenchmarkModels.suiteModel(3, BenchmarkModels.SEED));
+        return models;
+    }
+
+    static Map<String, Supplier<AnalysisHeuristicsStrategy>> heuristics() {
+        Map<String, Supplier<AnalysisHeuristicsStrategy>> heuristics = new LinkedHashMap<>();
+        heuristics.put("Heuristic1", () -> new AnalysisHeuristics1(
+                BigInteger.valueOf(3), BigInteger.valueOf(7), new EXPMixtureApproximation(), false));
+        heuristics.put("Heuristic2", () -> new AnalysisHeuristics2(
+                BigInteger.valueOf(3), BigInteger.valueOf(7), new EXPMixtureApproximation(), false));
+        return heuristics;
+    }
+
+    private static boolean record(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<String> lines = new ArrayList<>();
+        lines.add("# version " + VERSION + ", java " + System.getProperty("java.version")
+                + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        for (Map.Entry<String, Activity> model : models().entrySet()) {
+            EvaluationResult truth = groundTruth(model.getValue());
+            ResultStore.write(truth, ModelFormat.hash(model.getValue()), directory.resolve(model.getKey() + TRUTH));
+
+            for (Map.Entry<String, Supplier<AnalysisHeuristicsStrategy>> heuristic : heuristics().entrySet()) {
+                Metrics metrics = measure(model.getValue(), heuristic.getValue(), truth);
+                System.out.println(model.getKey() + " " + heuristic.getKey() + " " + metrics.line());
+                lines.add(model.getKey() + "\t" + heuristic.getKey() + "\t" + metrics.line());
+            }
+        }
+
+        Files.write(directory.resolve(BASELINE), lines);
+        return false;
+    }
+
+    private static boolean check(Path directory) throws IOException {
+        List<String> lines = Files.readAllLines(directory.resolve(BASELINE));
+        if (lines.isEmpty() || !lines.get(0).startsWith("# version " + VERSION + ","))
+            throw new IllegalStateException("Baselines of another suite version, record them again");
+
+        Map<String, Metrics> baselines = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t");
+            baselines.put(fields[0] + "\t" + fields[1], Metrics.parse(fields, 2));
+        }
+
+        boolean regressed = false;
+        for (Map.Entry<String, Activity> model : models().entrySet()) {
+            ResultStore stored = ResultStore.open(directory.resolve(model.getKey() + TRUTH));
+            if (stored.modelHash() != ModelFormat.hash(model.getValue()))
+                throw new IllegalStateException("Model " + model.getKey() + " changed, increase the suite version");
+            EvaluationResult truth = stored.toResult("Ground truth");
+
+            for (Map.Entry<String, Supplier<AnalysisHeuristicsStrategy>> heuristic : heuristics().entrySet()) {
+                String key = model.getKey() + "\t" + heuristic.getKey();
+                Metrics baseline = baselines.get(key);
+                if (baseline == null)
+                    throw new IllegalStateException("No baseline for " + key.replace('\t', ' '));
+
+                Metrics metrics = measure(model.getValue(), heuristic.getValue(), truth);
+                List<String> regressions = metrics.regressions(baseline);
+                System.out.println((regressions.isEmpty() ? "OK   " : "FAIL ") + key.replace('\t', ' ')
+                        + " " + metrics.line() + (regressions.isEmpty() ? "" : " " + regressions));
+                regressed |= !regressions.isEmpty();
+            }
+        }
+        return regressed;
+    }
+
+    private static BigDecimal timeLimit(Activity model) {
+        return model.max().add(BigDecimal.ONE);
+    }
+
+    private static EvaluationResult groundTruth(Activity model) {
+        BigDecimal step = model.getFairTimeTick();
+        double[] cdf = new MonteCarloSimulator(model, timeLimit(model), step)
+                .simulate(GROUND_TRUTH_RUNS, Runtime.getRuntime().availableProcessors(), BenchmarkModels.SEED);
+        return new EvaluationResult("Ground truth", cdf, 0, cdf.length, step.doubleValue(), 0);
+    }
+
+    /**
+     * Measures the analysis of copies of the model, which is left unchanged.
+     */
+    private static Metrics measure(Activity model, Supplier<AnalysisHeuristicsStrategy> heuristic, EvaluationResult truth) {
+        BigDecimal timeLimit = timeLimit(model);
+        BigDecimal step = model.getFairTimeTick();
+        byte[] encoded = BenchmarkModels.encode(model);
+
+        // warm-up run, then repetitions on fresh strategies with cold caches
+        heuristic.get().analyze(BenchmarkModels.decode(encoded), timeLimit, step);
+        double[] millis = new double[REPETITIONS];
+        long peakHeap = 0;
+        long allocated = 0;
+        long invocations = 0;
+        double[] cdf = null;
+        for (int r = 0; r < REPETITIONS; r++) {
+            AnalysisHeuristicsStrategy strategy = heuristic.get();
+            Activity copy = BenchmarkModels.decode(encoded);
+            System.gc();
+            List<MemoryPoolMXBean> pools = heapPools();
+            pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long allocatedBefore = ThreadAllocation.bytes();
+            long start = System.nanoTime();
+
+            cdf = strategy.analyze(copy, timeLimit, step);
+
+            millis[r] = (System.nanoTime() - start) / 1e6;
+            allocated = ThreadAllocation.bytes() - allocatedBefore;
+            peakHeap = Math.max(peakHeap, pools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum());
+            invocations = strategy.solverInvocations();
+        }
+
+        Arrays.sort(millis);
+        return new Metrics(millis[REPETITIONS / 2], peakHeap, allocated, invocations, distance(cdf, truth));
+    }
+
+    private static double distance(double[] cdf, EvaluationResult truth) {
+        // grids of analysis and simulation may differ in their last sample
+        int samples = Math.min(cdf.length, truth.cdf().length);
+        EvaluationResult result = new EvaluationResult("Analysis", Arrays.copyOf(cdf, samples), 0, samples, truth.step(), 0);
+        return result.jsDistance(Arrays.copyOf(truth.pdf(), samples));
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                pools.add(pool);
+        }
+        return pools;
+    }
+
+    /**
+     * Workflow of the {@code BuildAndEvaluate} example.
+     */
+    private static Activity workflow() {
+        StochasticTransitionFeature feature = StochasticTransitionFeature.newUniformInstance("0", "1");
+
+        Activity q = DAG.sequence("Q",
+                DAG.forkJoin("Q1", new Simple("Q1A", feature), new Simple("Q1B", feature)),
+                DAG.forkJoin("Q2", new Simple("Q2A", feature), new Simple("Q2B", feature)));
+        Activity r = DAG.forkJoin("R",
+                new XOR("R1", List.of(new Simple("R1A", feature), new Simple("R1b", feature)), List.of(0.3, 0.7)),
+                DAG.sequence("R2", new Simple("R2A", feature), new Simple("R2B", feature)));
+        Activity s = DAG.forkJoin("S",
+                DAG.sequence("S1", new Simple("S1A", feature), new Simple("S1B", feature), new Simple("S1C", feature)),
+                DAG.sequence("S2", new Simple("S2A", feature), new Simple("S2B", feature), new Simple("S2C", feature)));
+        Activity t = DAG.sequence("T",
+                DAG.forkJoin("T1", new Simple("T1A", feature), new Simple("T1B", feature), new Simple("T1C", feature)),
+                DAG.forkJoin("T2", new Simple("T2A", feature), new Simple("T2B", feature), new Simple("T2C", feature)));
+
+        DAG top = DAG.empty("TOP");
+        q.addPrecondition(top.begin());
+        r.addPrecondition(top.begin());
+        t.addPrecondition(r);
+        s.addPrecondition(r, q);
+        top.end().addPrecondition(t, s);
+        top.setMin(top.getMinBound(top.end()));
+        top.setMax(top.getMaxBound(top.end()));
+        top.setActivities(new ArrayList<>(List.of(q, r, s, t)));
+        return top;
+    }
+}
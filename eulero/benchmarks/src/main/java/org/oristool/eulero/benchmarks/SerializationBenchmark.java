@@ -0,0 +1,86 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.benchmarks;
+
+import org.oristool.eulero.examples.ExampleHelper;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ModelFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Storing and loading suite models as JAXB XML and in the binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"2", "3", "4"})
+    public int depth;
+
+    private Activity model;
+    private Path directory;
+    private String xml;
+    private Path binary;
+
+    @Setup
+    public void setup() throws IOException {
+        model = BenchmarkModels.suiteModel(depth, BenchmarkModels.SEED);
+        directory = Files.createTempDirectory("eulero-serialization");
+        xml = directory.resolve(ExampleHelper.XML_MODEL).toString();
+        binary = directory.resolve(ExampleHelper.BINARY_MODEL);
+        ExampleHelper.jaxbObjectToXML(model, directory.toString());
+        ModelFormat.save(model, binary);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void jaxbStore() {
+        ExampleHelper.jaxbObjectToXML(model, directory.toString());
+    }
+
+    @Benchmark
+    public Activity jaxbLoad() {
+        return ExampleHelper.jaxbXmlFileToObject(xml);
+    }
+
+    @Benchmark
+    public void binaryStore() throws IOException {
+        ModelFormat.save(model, binary);
+    }
+
+    @Benchmark
+    public Activity binaryLoad() throws IOException {
+        return ModelFormat.load(binary);
+    }
+}
@@ -0,0 +1,45 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.convolution;
+
+/**
+ * Computes the CDF of the sum of two independent durations, given their CDFs
+ * sampled on the same time grid.
+ *
+ * Implementations must agree with the trapezoidal rule used for SEQ blocks:
+ * <pre>
+ *   H[x] = sum_{u=1..x} (F[u] - F[u-1]) * (G[x-u+1] + G[x-u]) / 2,   H[0] = 0
+ * </pre>
+ */
+public interface ConvolutionKernel {
+
+    /**
+     * Convolves two sampled CDFs.
+     *
+     * @param first CDF of the first duration
+     * @param second CDF of the second duration, with at least as many samples as {@code first}
+     * @return CDF of the sum, with the same number of samples as {@code first}
+     */
+    double[] convolve(double[] first, double[] second);
+
+    static void checkLengths(double[] first, double[] second) {
+        if (second.length < first.length)
+            throw new IllegalArgumentException("Second CDF has " + second.length
+                    + " samples, at least " + first.length + " are required");
+    }
+}
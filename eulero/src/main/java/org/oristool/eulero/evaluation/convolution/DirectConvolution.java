@@ -0,0 +1,37 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.convolution;
+
+/**
+ * Trapezoidal convolution by direct summation, O(n^2) in the number of samples.
+ */
+public class DirectConvolution implements ConvolutionKernel {
+
+    @Override
+    public double[] convolve(double[] first, double[] second) {
+        ConvolutionKernel.checkLengths(first, second);
+        double[] convolution = new double[first.length];
+
+        for (int x = 1; x < first.length; x++) {
+            for (int u = 1; u <= x; u++)
+                convolution[x] += (first[u] - first[u - 1]) * (second[x - u + 1] + second[x - u]) * 0.5;
+        }
+
+        return convolution;
+    }
+}
@@ -0,0 +1,138 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.convolution;
+
+/**
+ * Trapezoidal convolution through a radix-2 FFT, O(n log n) in the number of
+ * samples. Arrays shorter than {@code directThreshold} are convolved by direct
+ * summation, which is faster for them.
+ *
+ * The trapezoidal sum is rewritten as the linear convolution of the CDF
+ * increments {@code dF[u] = F[u] - F[u-1]} with the midpoint values
+ * {@code M[k] = (G[k+1] + G[k]) / 2}. Both real sequences are packed in a single
+ * complex FFT, so each call costs one forward and one inverse transform.
+ */
+public class FFTConvolution implements ConvolutionKernel {
+    public static final int DEFAULT_DIRECT_THRESHOLD = 256;
+
+    private final int directThreshold;
+    private final DirectConvolution direct = new DirectConvolution();
+
+    public FFTConvolution(int directThreshold){
+        if (directThreshold < 0)
+            throw new IllegalArgumentException("Direct threshold must be non-negative");
+        this.directThreshold = directThreshold;
+    }
+
+    public FFTConvolution(){
+        this(DEFAULT_DIRECT_THRESHOLD);
+    }
+
+    public int directThreshold() {
+        return directThreshold;
+    }
+
+    @Override
+    public double[] convolve(double[] first, double[] second) {
+        ConvolutionKernel.checkLengths(first, second);
+        int n = first.length;
+        if (n < Math.max(directThreshold, 2))
+            return direct.convolve(first, second);
+
+        // dF has n values (dF[0] = 0), M has n - 1: only indices < n of the result are needed
+        int size = Integer.highestOneBit(2 * n - 2);
+        if (size < 2 * n - 2)
+            size <<= 1;
+
+        double[] re = new double[size];
+        double[] im = new double[size];
+        for (int u = 1; u < n; u++)
+            re[u] = first[u] - first[u - 1];
+        for (int k = 0; k < n - 1; k++)
+            im[k] = (second[k + 1] + second[k]) * 0.5;
+
+        double[] cos = new double[size / 2];
+        double[] sin = new double[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = 2 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+
+        transform(re, im, cos, sin, false);
+
+        // With Z = FFT(a + ib): FFT(a) * FFT(b) = (Z[k]^2 - conj(Z[-k])^2) / 4i
+        double[] productRe = new double[size];
+        double[] productIm = new double[size];
+        for (int k = 0; k < size; k++) {
+            int j = (size - k) & (size - 1);
+            double zr = re[k], zi = im[k];
+            double wr = re[j], wi = -im[j];
+            double dr = (zr * zr - zi * zi) - (wr * wr - wi * wi);
+            double di = 2 * (zr * zi - wr * wi);
+            productRe[k] = di / 4;
+            productIm[k] = -dr / 4;
+        }
+
+        transform(productRe, productIm, cos, sin, true);
+
+        double[] convolution = new double[n];
+        for (int x = 1; x < n; x++)
+            convolution[x] = productRe[x] / size;
+
+        return convolution;
+    }
+
+    /**
+     * In-place iterative radix-2 FFT; the inverse transform is not scaled.
+     */
+    private static void transform(double[] re, double[] im, double[] cos, double[] sin, boolean inverse) {
+        int size = re.length;
+
+        for (int i = 1, j = 0; i < size; i++) {
+            int bit = size >> 1;
+            for (; (j & bit) != 0; bit >>= 1)
+                j ^= bit;
+            j ^= bit;
+
+            if (i < j) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int tableStep = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * tableStep];
+                    double wi = inverse ? sin[k * tableStep] : -sin[k * tableStep];
+                    int a = start + k;
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import java.time.Duration;
+
+/**
+ * Limits on the cost of an analysis: wall time of the whole analysis, and
+ * wall time, number of classes and heap growth of the transient analysis of
+ * each block. Limits are disabled unless set.
+ *
+ * Budgets are enforced by a {@link BudgetedAnalysis}.
+ */
+public class AnalysisBudget {
+    public enum Resource {
+        ANALYSIS_TIME,
+        BLOCK_TIME,
+        CLASSES,
+        HEAP
+    }
+
+    private Duration analysisTime;
+    private Duration blockTime;
+    private long maxClasses = Long.MAX_VALUE;
+    private long maxHeap = Long.MAX_VALUE;
+
+    public Duration analysisTime() {
+        return analysisTime;
+    }
+
+    /**
+     * Sets the wall time of a whole analysis, started by
+     * {@link BudgetedAnalysis#analyze}.
+     */
+    public void setAnalysisTime(Duration analysisTime) {
+        if (analysisTime != null && (analysisTime.isNegative() || analysisTime.isZero()))
+            throw new IllegalArgumentException("The analysis time must be positive");
+        this.analysisTime = analysisTime;
+    }
+
+    public Duration blockTime() {
+        return blockTime;
+    }
+
+    public void setBlockTime(Duration blockTime) {
+        if (blockTime != null && (blockTime.isNegative() || blockTime.isZero()))
+            throw new IllegalArgumentException("The block time must be positive");
+        this.blockTime = blockTime;
+    }
+
+    public long maxClasses() {
+        return maxClasses;
+    }
+
+    /**
+     * Sets the largest number of state classes expanded by the transient
+     * analysis of a block.
+     */
+    public void setMaxClasses(long maxClasses) {
+        if (maxClasses <= 0)
+            throw new IllegalArgumentException("The number of classes must be positive");
+        this.maxClasses = maxClasses;
+    }
+
+    public long maxHeap() {
+        return maxHeap;
+    }
+
+    /**
+     * Sets the largest growth of the used heap, in bytes, during the
+     * transient analysis of a block.
+     */
+    public void setMaxHeap(long maxHeap) {
+        if (maxHeap <= 0)
+            throw new IllegalArgumentException("The heap size must be positive");
+        this.maxHeap = maxHeap;
+    }
+}
@@ -47,28 +47,26 @@ public class AnalysisHeuristics1 extends AnalysisHeuristicsStrategy {
         }
 
         if(model.type().equals(ActivityType.DAG)) {
-            model.resetComplexityMeasure();
-            // Check Complexity
-            if (!(model.simplifiedC().compareTo(model.C()) == 0) || !(model.simplifiedQ().compareTo(model.Q()) == 0)) {
-                if (model.simplifiedC().compareTo(this.CThreshold()) > 0 || model.simplifiedQ().compareTo(this.QThreshold()) > 0) {
-                    if(verbose())
-                        System.out.println(tabSpaceChars + " Performing Block Replication on " + model.name());
-                    return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
-                }
-
-                if(model.C().compareTo(this.CThreshold()) > 0 || model.Q().compareTo(this.QThreshold()) > 0){
-                    if(verbose())
-                        System.out.println(tabSpaceChars + " Performing DAG Inner Block Analysis on " + model.name());
-                    return DAGInnerBlockAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
-                }
-            } else {
-                if (model.simplifiedC().compareTo(this.CThreshold()) > 0 || model.simplifiedQ().compareTo(this.QThreshold()) > 0) {
+            // Check Complexity: simplified measures never exceed the full ones
+            boolean exceedsC = model.exceedsC(this.CThreshold(), true);
+            BigInteger Q = exceedsC ? null : model.simplifiedQ();
+            if (exceedsC || Q.compareTo(this.QThreshold()) > 0) {
+                if(verbose())
                     System.out.println(tabSpaceChars + " Performing Block Replication on " + model.name());
-                    return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
-                }
+                return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, model.upperBoundC(true), Q);
+            }
+
+            exceedsC = model.exceedsC(this.CThreshold(), false);
+            Q = exceedsC ? null : model.Q();
+            if (exceedsC || Q.compareTo(this.QThreshold()) > 0) {
+                if(verbose())
+                    System.out.println(tabSpaceChars + " Performing DAG Inner Block Analysis on " + model.name());
+                return DAGInnerBlockAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, model.upperBoundC(false), Q);
             }
+
+            return exactAnalysis(model, timeLimit, step, error, tabSpaceChars, model.upperBoundC(false), Q);
         }
 
-        return forwardAnalysis(model, timeLimit, step, error, tabSpaceChars);
+        return exactAnalysis(model, timeLimit, step, error, tabSpaceChars);
     }
 }
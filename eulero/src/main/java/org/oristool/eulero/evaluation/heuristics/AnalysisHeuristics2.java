@@ -48,27 +48,22 @@ public class AnalysisHeuristics2 extends AnalysisHeuristicsStrategy {
 
         if(model.type().equals(ActivityType.DAG)) {
             // Check Complexity
-            if (!(model.simplifiedC().compareTo(model.C()) == 0) || !(model.simplifiedQ().compareTo(model.Q()) == 0)) {
-                if(model.C().compareTo(this.CThreshold()) > 0 || model.Q().compareTo(this.QThreshold()) > 0){
+            if (model.exceedsC(this.CThreshold(), false) || model.Q().compareTo(this.QThreshold()) > 0) {
+                // Q equals simplified Q only when all nested activities are leaves, and then C equals simplified C
+                if (!(model.simplifiedQ().compareTo(model.Q()) == 0)) {
                     if(verbose())
                         System.out.println(tabSpaceChars + " Performing DAG Inner Block Analysis on " + model.name());
-                    return DAGInnerBlockAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+                    return DAGInnerBlockAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, model.upperBoundC(false), model.Q());
                 }
 
-                if (model.simplifiedC().compareTo(this.CThreshold()) > 0 || model.simplifiedQ().compareTo(this.QThreshold()) > 0) {
-                    if(verbose())
-                        System.out.println(tabSpaceChars + " Performing Block Replication on " + model.name());
-                    return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
-                }
-            } else {
-                if (model.simplifiedC().compareTo(this.CThreshold()) > 0 || model.simplifiedQ().compareTo(this.QThreshold()) > 0) {
-                    if(verbose())
-                        System.out.println(tabSpaceChars + " Performing Block Replication on " + model.name());
-                    return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
-                }
+                if(verbose())
+                    System.out.println(tabSpaceChars + " Performing Block Replication on " + model.name());
+                return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, model.upperBoundC(false), model.Q());
             }
+
+            return exactAnalysis(model, timeLimit, step, error, tabSpaceChars, model.upperBoundC(false), model.Q());
         }
 
-        return forwardAnalysis(model, timeLimit, step, error, tabSpaceChars);
+        return exactAnalysis(model, timeLimit, step, error, tabSpaceChars);
     }
 }
@@ -18,28 +18,52 @@
 package org.oristool.eulero.evaluation.heuristics;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.oristool.eulero.evaluation.convolution.ConvolutionKernel;
+import org.oristool.eulero.evaluation.convolution.FFTConvolution;
 import org.oristool.eulero.modeling.*;
 import org.oristool.eulero.evaluation.approximator.Approximator;
+import org.oristool.eulero.metrics.AnalysisMetrics;
+import org.oristool.eulero.metrics.ThreadAllocation;
+import org.oristool.eulero.simulation.CompletionHistogram;
+import org.oristool.eulero.simulation.MonteCarloSimulator;
+import org.oristool.eulero.solver.AnalysisPath;
+import org.oristool.eulero.solver.CostEstimate;
+import org.oristool.eulero.solver.CostEstimator;
 import org.oristool.eulero.ui.ActivityViewer;
 import org.oristool.models.stpn.RewardRate;
 import org.oristool.models.stpn.TransientSolution;
 import org.oristool.models.stpn.trees.DeterministicEnablingState;
 import org.oristool.models.stpn.trees.StochasticTransitionFeature;
-import org.oristool.petrinet.Marking;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public abstract class AnalysisHeuristicsStrategy {
+    private static final long SIMULATION_SEED = 1;
+    private static final int SIMULATION_BATCH = 16 * MonteCarloSimulator.CHUNK_RUNS;
+
     private final String heuristicName;
     private final BigInteger CThreshold;
     private final BigInteger QThreshold;
     private final Approximator approximator;
     private final boolean plotIntermediate;
     private final boolean verbose;
+    private ConvolutionKernel convolution = new FFTConvolution();
+    private ForkJoinPool pool;
+    private CDFCache cache;
+    private CostEstimator costEstimator;
+    private final AtomicLong solverInvocations = new AtomicLong();
+    private AnalysisMetrics metrics = AnalysisMetrics.NOOP;
+    private AnalysisTrace trace;
+    // nesting depth of the sub-block analyzed by each thread
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
 
     public AnalysisHeuristicsStrategy(String heuristicName, BigInteger CThreshold, BigInteger QThreshold, Approximator approximator, boolean verbose, boolean plotIntermediate){
         this.heuristicName = heuristicName;
@@ -62,11 +86,11 @@ public abstract class AnalysisHeuristicsStrategy {
     public abstract double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars);
 
     public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars){
-        return analyze(model, timeLimit, step, BigDecimal.ONE, error, tabSpaceChars);
+        return node(model, () -> analyze(model, timeLimit, step, BigDecimal.ONE, error, tabSpaceChars));
     }
 
     public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step){
-        return analyze(model, timeLimit, step, BigDecimal.ONE, BigDecimal.valueOf(0.001), "---");
+        return node(model, () -> analyze(model, timeLimit, step, BigDecimal.ONE, BigDecimal.valueOf(0.001), "---"));
     }
 
     public boolean verbose() { return verbose; }
@@ -87,144 +111,382 @@ public abstract class AnalysisHeuristicsStrategy {
         return heuristicName;
     }
 
-    public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error) {
-        return this.analyze(model, timeLimit, step, forwardReductionFactor, error, "---");
+    public ConvolutionKernel convolution() {
+        return convolution;
     }
 
-    public double[] numericalXOR(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars, boolean verbose){
-        double[] solution = new double[timeLimit.divide(step).intValue() + 1];
+    /**
+     * Sets the kernel used to convolve the CDFs of SEQ blocks.
+     */
+    public void setConvolution(ConvolutionKernel convolution) {
+        this.convolution = Objects.requireNonNull(convolution);
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars + " Numerical XOR Analysis of " + model.name());
+    public int parallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
 
-        long time = System.nanoTime();
-        for(Activity act: ((XOR) model).activities()){
-            double[] activityCDF = analyze(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
-            double prob = ((XOR) model).probs().get(((XOR) model).activities().indexOf(act));
-            for(int t = 0; t < solution.length; t++){
-                solution[t] += prob * activityCDF[t];
-            }
-        }
+    /**
+     * Sets the number of worker threads used to analyze the children of XOR,
+     * AND and SEQ blocks concurrently. With {@code parallelism <= 1} children
+     * are analyzed sequentially by the calling thread.
+     *
+     * Children CDFs are always combined in model order, so the results are
+     * identical to the sequential ones.
+     */
+    public void setParallelism(int parallelism) {
+        if (pool != null)
+            pool.shutdown();
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars +  " Analysis of " +  model.name() + " done in " + String.format("%.3f seconds",
-                    (System.nanoTime() - time)/1e9) + "...");
+    public CDFCache cache() {
+        return cache;
+    }
 
-        return solution;
+    /**
+     * Sets the cache of sub-block CDFs shared by structurally identical blocks;
+     * {@code null}, the default, disables caching.
+     */
+    public void setCache(CDFCache cache) {
+        this.cache = cache;
     }
 
-    public double[] numericalXOR(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
-        return numericalXOR(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, false);
+    public CostEstimator costEstimator() {
+        return costEstimator;
     }
 
-    public double[] numericalAND(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
-        double[] solution = new double[timeLimit.divide(step).intValue() + 1];
+    /**
+     * Sets the cost model used to choose how to solve blocks that are not
+     * decomposed further, and records their measured costs for calibration;
+     * {@code null} (the default) always uses forward analysis.
+     */
+    public void setCostEstimator(CostEstimator costEstimator) {
+        this.costEstimator = costEstimator;
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars + " Numerical AND Analysis of " + model.name());
+    /**
+     * Number of blocks solved by Sirio (forward or regenerative transient
+     * analysis) or by simulation, since creation or the last reset.
+     */
+    public long solverInvocations() {
+        return solverInvocations.get();
+    }
 
-        long time = System.nanoTime();
+    public void resetSolverInvocations() {
+        solverInvocations.set(0);
+    }
 
-        Arrays.fill(solution, 1.0);
-        for(Activity act: ((AND) model).activities()){
-            double[] activityCDF = analyze(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
-            for(int t = 0; t < solution.length; t++){
-                solution[t] *= activityCDF[t];
-            }
-        }
+    public AnalysisMetrics metrics() {
+        return metrics;
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars +  " Analysis of " +  model.name() + " done in " + String.format("%.3f seconds",
-                (System.nanoTime() - time)/1e9) + "...");
+    /**
+     * Sets where measurements of the analysis are sent ({@link AnalysisMetrics#NOOP}
+     * by default).
+     */
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
 
-        return solution;
+    public AnalysisTrace trace() {
+        return trace;
     }
 
-    public double[] numericalSEQ(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
-        double[] solution = new double[timeLimit.divide(step).intValue() + 1];
+    /**
+     * Sets the trace receiving the decisions of the analysis, or {@code null}
+     * (the default) not to trace; it must not change during an analysis.
+     */
+    public void setTrace(AnalysisTrace trace) {
+        this.trace = trace;
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars + " Numerical SEQ Analysis of " + model.name());
+    private AnalysisTrace.Node enter(Activity model, AnalysisTrace.Decision decision, BigInteger C, BigInteger Q) {
+        AnalysisTrace trace = this.trace;
+        return trace != null ? trace.enter(model, decision, C, Q) : null;
+    }
 
-        long time = System.nanoTime();
+    private void exit(AnalysisTrace.Node node) {
+        if (node != null)
+            trace.exit(node);
+    }
 
-        for (Activity act : ((SEQ) model).activities()) {
+    /**
+     * Runs the analysis of a block within a node of the trace.
+     */
+    private double[] traced(Activity model, AnalysisTrace.Decision decision, BigInteger C, BigInteger Q, Supplier<double[]> analysis) {
+        AnalysisTrace.Node node = enter(model, decision, C, Q);
+        try {
+            return analysis.get();
+        } finally {
+            exit(node);
+        }
+    }
 
-            if (act.equals(((SEQ) model).activities().get(0))) {
-                solution = analyze(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
+    /**
+     * Analyzes a sub-block, reusing the CDF of a structurally identical block
+     * analyzed with the same parameters.
+     */
+    protected double[] analyzeCached(Activity activity, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        int[] depth = this.depth.get();
+        depth[0]++;
+        try {
+            metrics.record(AnalysisMetrics.RECURSION_DEPTH, depth[0]);
+            CDFCache cache = this.cache;
+            if (cache == null)
+                return node(activity, () -> analyze(activity, timeLimit, step, forwardReductionFactor, error, tabSpaceChars));
+
+            String key = CDFCache.key(activity, timeLimit, step, forwardReductionFactor, error);
+            double[] cdf = cache.get(key);
+            if (cdf == null) {
+                metrics.increment(AnalysisMetrics.CACHE_MISSES);
+                cdf = node(activity, () -> analyze(activity, timeLimit, step, forwardReductionFactor, error, tabSpaceChars));
+                cache.put(key, cdf);
             } else {
-                double[] convolution = new double[solution.length];
-                double[] activityCDF = analyze(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
+                metrics.increment(AnalysisMetrics.CACHE_HITS);
+                exit(enter(activity, AnalysisTrace.Decision.CACHED, null, null));
+                if (verbose)
+                    System.out.println(tabSpaceChars + " Cached CDF of block " + activity.name());
+            }
 
-                for (int x = 1; x < solution.length; x++) {
-                    for (int u = 1; u <= x; u++)
-                        convolution[x] += (solution[u] - solution[u - 1]) * (activityCDF[x - u + 1] + activityCDF[x - u]) * 0.5;
-                }
+            return cdf;
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * Analysis of a block of the model (not of the simplified blocks that
+     * replace it), timed by block type; the class graphs enumerated
+     * meanwhile are recorded in the same metrics.
+     */
+    private double[] node(Activity model, Supplier<double[]> analysis) {
+        AnalysisMetrics metrics = this.metrics;
+        long time = System.nanoTime();
+        double[] cdf = Activity.withMetrics(metrics, analysis);
+        metrics.time(AnalysisMetrics.NODE_TIME + model.type(), System.nanoTime() - time);
+        return cdf;
+    }
 
-                solution = convolution;
+    /**
+     * Analyzes independent sub-blocks, possibly in parallel. Structurally
+     * identical sub-blocks are analyzed only once.
+     *
+     * @return the CDFs of the activities, in the same order
+     */
+    protected List<double[]> analyzeAll(List<Activity> activities, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        ForkJoinPool pool = this.pool;
+
+        // first activity of each group of identical siblings
+        List<Activity> distinct = new ArrayList<>();
+        int[] group = new int[activities.size()];
+        if (cache != null) {
+            Map<String, Integer> groups = new HashMap<>();
+            for (int i = 0; i < activities.size(); i++) {
+                String key = CDFCache.key(activities.get(i), timeLimit, step, forwardReductionFactor, error);
+                Integer index = groups.putIfAbsent(key, distinct.size());
+                if (index == null) {
+                    index = distinct.size();
+                    distinct.add(activities.get(i));
+                }
+                group[i] = index;
             }
+        } else {
+            distinct.addAll(activities);
+            Arrays.setAll(group, i -> i);
         }
 
-        if(verbose)
-            System.out.println(tabSpaceChars +  " Analysis of " +  model.name() + " done in " + String.format("%.3f seconds",
-                (System.nanoTime() - time)/1e9) + "...");
+        AnalysisTrace trace = this.trace;
+        AnalysisTrace.Node parent = trace != null ? trace.current() : null;
+        BudgetedAnalysis budgeted = BudgetedAnalysis.current(this);
+        int parentDepth = depth.get()[0];
+        List<double[]> distinctSolutions = new ArrayList<>();
+        if (pool == null || distinct.size() < 2) {
+            for (Activity act : distinct) {
+                distinctSolutions.add(analyzeCached(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars));
+            }
+        } else {
+            List<ForkJoinTask<double[]>> tasks = new ArrayList<>();
+            for (Activity act : distinct) {
+                tasks.add(ForkJoinTask.adapt(() -> forked(trace, parent, budgeted, parentDepth,
+                        () -> analyzeCached(act, timeLimit, step, forwardReductionFactor, error, tabSpaceChars))));
+            }
 
-        return solution;
+            if (ForkJoinTask.getPool() == pool) {
+                // nested block: fork in the current pool, work-stealing while waiting
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+
+            for (ForkJoinTask<double[]> task : tasks) {
+                distinctSolutions.add(task.join());
+            }
+        }
+
+        List<double[]> solutions = new ArrayList<>();
+        boolean[] used = new boolean[distinct.size()];
+        for (int i = 0; i < activities.size(); i++) {
+            double[] solution = distinctSolutions.get(group[i]);
+            solutions.add(used[group[i]] ? solution.clone() : solution);
+            used[group[i]] = true;
+        }
+        return solutions;
     }
 
-    public double[] DAGInnerBlockAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
-        Map<String, Activity> toBeSimplifiedActivityMap = getDeepestComplexDAG(model);
-        Activity toBeSimplifiedActivity = toBeSimplifiedActivityMap.get("activity");
-        Activity toBeSimplifiedActivityParent = toBeSimplifiedActivityMap.get("parent");
-        double aux = toBeSimplifiedActivity.max().doubleValue();
-        int mag = 1;
-        while (aux > 10) {
-            mag = mag * 10;
-            aux = aux / 10;
+    /**
+     * Runs the analysis of a sub-block forked to another thread within the
+     * trace node, the budgeted analysis and at the depth of its parent.
+     */
+    private double[] forked(AnalysisTrace trace, AnalysisTrace.Node parent, BudgetedAnalysis budgeted, int parentDepth, Supplier<double[]> analysis) {
+        int[] depth = this.depth.get();
+        int previousDepth = depth[0];
+        depth[0] = parentDepth;
+        try {
+            return BudgetedAnalysis.within(budgeted, () -> trace != null ? trace.within(parent, analysis) : analysis.get());
+        } finally {
+            depth[0] = previousDepth;
         }
-        BigDecimal innerActivityStep = BigDecimal.valueOf(mag * Math.pow(10, -2));
+    }
 
-        ArrayList<Pair<BigDecimal, StochasticTransitionFeature>> approximationFeature =  approximator().getApproximatedStochasticTransitionFeatures(
-                analyze(toBeSimplifiedActivity, toBeSimplifiedActivity.max().precision() >= 309 ? timeLimit : toBeSimplifiedActivity.max(), innerActivityStep, forwardReductionFactor, error, tabSpaceChars + "---"  ),
-                toBeSimplifiedActivity.min().doubleValue(), (toBeSimplifiedActivity.max().precision() >= 309 ? timeLimit : toBeSimplifiedActivity.max()).doubleValue(), innerActivityStep);
+    public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error) {
+        return node(model, () -> this.analyze(model, timeLimit, step, forwardReductionFactor, error, "---"));
+    }
 
-        Activity newActivity = new Simple(toBeSimplifiedActivity.name() + "_N",
-                approximationFeature.stream().map(Pair::getRight).collect(Collectors.toCollection(ArrayList::new)),
-                approximationFeature.stream().map(Pair::getLeft).collect(Collectors.toCollection(ArrayList::new)));
+    /**
+     * Combines the CDFs of the children of a block, traced and logged when
+     * verbose.
+     */
+    private double[] numerical(Activity model, String tabSpaceChars, boolean verbose, Supplier<double[]> combination) {
+        return traced(model, AnalysisTrace.Decision.NUMERICAL, null, null, () -> {
+            if(verbose)
+                System.out.println(tabSpaceChars + " Numerical " + model.type() + " Analysis of " + model.name());
 
-        if(verbose)
-            System.out.println(tabSpaceChars + "---"  + " Block Analysis: Choose inner block " + toBeSimplifiedActivity.name());
+            long time = System.nanoTime();
+            double[] solution = combination.get();
+
+            if(verbose)
+                System.out.println(tabSpaceChars +  " Analysis of " +  model.name() + " done in " + String.format("%.3f seconds",
+                        (System.nanoTime() - time)/1e9) + "...");
+
+            return solution;
+        });
+    }
 
-        if(plotIntermediate){
-            TransientSolution<DeterministicEnablingState, RewardRate> testAct = toBeSimplifiedActivity.simulate(timeLimit.toString(), step.toString(), 5000);
-            double[] testActCDF = new double[testAct.getSolution().length];
-            for(int i = 0; i < testActCDF.length; i++){
-                testActCDF[i] = testAct.getSolution()[i][0][0];
+    public double[] numericalXOR(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars, boolean verbose){
+        return numerical(model, tabSpaceChars, verbose, () -> {
+            double[] solution = new double[TimeGrid.of(step).samples(timeLimit)];
+            List<double[]> activityCDFs = analyzeAll(model.activities(), timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
+            for(int i = 0; i < activityCDFs.size(); i++){
+                double[] activityCDF = activityCDFs.get(i);
+                double prob = ((XOR) model).probs().get(i);
+                for(int t = 0; t < solution.length; t++){
+                    solution[t] += prob * activityCDF[t];
+                }
             }
+            return solution;
+        });
+    }
 
-            TransientSolution<DeterministicEnablingState, RewardRate> newAct = newActivity.analyze(timeLimit.toString(), step.toString(), "0.001");
-            double[] newActcdf = new double[newAct.getSolution().length];
-            for(int i = 0; i < newActcdf.length; i++){
-                newActcdf[i] = newAct.getSolution()[i][0][0];
+    public double[] numericalXOR(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        return numericalXOR(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, false);
+    }
+
+    public double[] numericalAND(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        return numerical(model, tabSpaceChars, verbose, () -> {
+            double[] solution = new double[TimeGrid.of(step).samples(timeLimit)];
+            Arrays.fill(solution, 1.0);
+            for(double[] activityCDF: analyzeAll(model.activities(), timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---")){
+                for(int t = 0; t < solution.length; t++){
+                    solution[t] *= activityCDF[t];
+                }
             }
+            return solution;
+        });
+    }
 
-            toBeSimplifiedActivity.replace(newActivity);
-            int activityIndex = ((DAG) toBeSimplifiedActivityParent).activities().indexOf(toBeSimplifiedActivity);
-            ((DAG) toBeSimplifiedActivityParent).activities().set(activityIndex, newActivity);
-            toBeSimplifiedActivityParent.resetComplexityMeasure();
-            ActivityViewer.CompareResults(newActivity.name(), List.of("Real", "Appr"), List.of(new EvaluationResult("real", testActCDF, 0, testActCDF.length, step.doubleValue(), 0), new EvaluationResult("appr", newActcdf, 0, newActcdf.length, step.doubleValue(), 0)));
-        } else {
-            toBeSimplifiedActivity.replace(newActivity);
-            int activityIndex = ((DAG) toBeSimplifiedActivityParent).activities().indexOf(toBeSimplifiedActivity);
-            ((DAG) toBeSimplifiedActivityParent).activities().set(activityIndex, newActivity);
-            toBeSimplifiedActivityParent.resetComplexityMeasure();
-        }
-        if(verbose)
-            System.out.println(tabSpaceChars + "---"  + " Approximated inner block " + toBeSimplifiedActivity.name());
+    public double[] numericalSEQ(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        return numerical(model, tabSpaceChars, verbose, () -> {
+            List<double[]> activityCDFs = analyzeAll(model.activities(), timeLimit, step, forwardReductionFactor, error, tabSpaceChars + "---");
+            double[] solution = activityCDFs.get(0);
+            for (int i = 1; i < activityCDFs.size(); i++) {
+                solution = convolution.convolve(solution, activityCDFs.get(i));
+            }
+            return solution;
+        });
+    }
 
-        model.resetComplexityMeasure();
+    public double[] DAGInnerBlockAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
+        return DAGInnerBlockAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, null, null);
+    }
 
-        return this.analyze(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+    /**
+     * Approximates the deepest complex inner block of a DAG, then analyzes
+     * the simplified DAG.
+     *
+     * @param C C evaluated by the heuristic, recorded in the trace
+     * @param Q Q evaluated by the heuristic, recorded in the trace
+     */
+    protected double[] DAGInnerBlockAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars, BigInteger C, BigInteger Q){
+        return traced(model, AnalysisTrace.Decision.INNER_BLOCK, C, Q, () -> {
+            Map<String, Activity> toBeSimplifiedActivityMap = getDeepestComplexDAG(model);
+            Activity toBeSimplifiedActivity = toBeSimplifiedActivityMap.get("activity");
+            Activity toBeSimplifiedActivityParent = toBeSimplifiedActivityMap.get("parent");
+            BigDecimal innerTimeLimit = TimeGrid.isUnbounded(toBeSimplifiedActivity.max()) ? timeLimit : toBeSimplifiedActivity.max();
+            BigDecimal innerActivityStep = TimeGrid.fairStep(innerTimeLimit.doubleValue());
+
+            double[] innerCDF = analyzeCached(toBeSimplifiedActivity, innerTimeLimit, innerActivityStep, forwardReductionFactor, error, tabSpaceChars + "---"  );
+            long time = System.nanoTime();
+            AnalysisTrace.Node approximation = enter(toBeSimplifiedActivity, AnalysisTrace.Decision.APPROXIMATION, null, null);
+            ArrayList<Pair<BigDecimal, StochasticTransitionFeature>> approximationFeature;
+            try {
+                approximationFeature = approximator().getApproximatedStochasticTransitionFeatures(
+                        innerCDF, toBeSimplifiedActivity.min().doubleValue(), innerTimeLimit.doubleValue(), innerActivityStep);
+            } finally {
+                exit(approximation);
+            }
+            metrics.time(AnalysisMetrics.APPROXIMATION_TIME, System.nanoTime() - time);
+
+            Activity newActivity = new Simple(toBeSimplifiedActivity.name() + "_N",
+                    approximationFeature.stream().map(Pair::getRight).collect(Collectors.toCollection(ArrayList::new)),
+                    approximationFeature.stream().map(Pair::getLeft).collect(Collectors.toCollection(ArrayList::new)));
+
+            if(verbose)
+                System.out.println(tabSpaceChars + "---"  + " Block Analysis: Choose inner block " + toBeSimplifiedActivity.name());
+
+            if(plotIntermediate){
+                TransientSolution<DeterministicEnablingState, RewardRate> testAct = toBeSimplifiedActivity.simulate(timeLimit.toString(), step.toString(), 5000);
+                double[] testActCDF = new double[testAct.getSolution().length];
+                for(int i = 0; i < testActCDF.length; i++){
+                    testActCDF[i] = testAct.getSolution()[i][0][0];
+                }
+
+                TransientSolution<DeterministicEnablingState, RewardRate> newAct = newActivity.analyze(timeLimit.toString(), step.toString(), "0.001");
+                double[] newActcdf = new double[newAct.getSolution().length];
+                for(int i = 0; i < newActcdf.length; i++){
+                    newActcdf[i] = newAct.getSolution()[i][0][0];
+                }
+
+                toBeSimplifiedActivity.replace(newActivity);
+                int activityIndex = ((DAG) toBeSimplifiedActivityParent).activities().indexOf(toBeSimplifiedActivity);
+                ((DAG) toBeSimplifiedActivityParent).activities().set(activityIndex, newActivity);
+                toBeSimplifiedActivityParent.markModified();
+                toBeSimplifiedActivityParent.resetComplexityMeasure();
+                ActivityViewer.CompareResults(newActivity.name(), List.of("Real", "Appr"), List.of(new EvaluationResult("real", testActCDF, 0, testActCDF.length, step.doubleValue(), 0), new EvaluationResult("appr", newActcdf, 0, newActcdf.length, step.doubleValue(), 0)));
+            } else {
+                toBeSimplifiedActivity.replace(newActivity);
+                int activityIndex = ((DAG) toBeSimplifiedActivityParent).activities().indexOf(toBeSimplifiedActivity);
+                ((DAG) toBeSimplifiedActivityParent).activities().set(activityIndex, newActivity);
+                toBeSimplifiedActivityParent.markModified();
+                toBeSimplifiedActivityParent.resetComplexityMeasure();
+            }
+            if(verbose)
+                System.out.println(tabSpaceChars + "---"  + " Approximated inner block " + toBeSimplifiedActivity.name());
+
+            model.resetComplexityMeasure();
+
+            return this.analyze(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+        });
     }
 
     public Map<String, Activity> getDeepestComplexDAG(Activity model){
@@ -243,91 +505,248 @@ public abstract class AnalysisHeuristicsStrategy {
     }
 
     public double[] InnerBlockReplicationAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars){
-        ArrayList<DAG> replicatedBlocks = new ArrayList<>();
-        ArrayList<DAG> sortedReplicatedBlocks = new ArrayList<>();
-        for(Activity activity: ((DAG) model).end().pre()){
-            DAG replicatedBlock = ((DAG) model).copyRecursive(((DAG) model).begin(), activity, "_before_" + activity.name());
-            replicatedBlocks.add(replicatedBlock);
-            replicatedBlock.C();
-            replicatedBlock.Q();
-            sortedReplicatedBlocks.add(replicatedBlock);
-        }
-
-        sortedReplicatedBlocks.sort(Comparator.comparing(Activity::C).thenComparing(Activity::Q));
-        DAG chosenReplicatedBlock = sortedReplicatedBlocks.get(sortedReplicatedBlocks.size() - 1);
+        return InnerBlockReplicationAnalysis(model, timeLimit, step, forwardReductionFactor, error, tabSpaceChars, null, null);
+    }
 
-        DAG nestedDAG;
-        if(sortedReplicatedBlocks.size() > 1){
-            nestedDAG = ((DAG) model).nest(((DAG) model).end().pre().get(replicatedBlocks.indexOf(chosenReplicatedBlock)));
-        } else {
-            Activity endActivity = chosenReplicatedBlock.end().pre().get(0);
-            chosenReplicatedBlock.end().removePrecondition(endActivity);
-            for(Activity activity: endActivity.pre()){
-                chosenReplicatedBlock.end().addPrecondition(activity);
+    /**
+     * Replaces a DAG with a nesting of the replicated blocks before one of
+     * its final activities, then analyzes it.
+     *
+     * @param C C evaluated by the heuristic, recorded in the trace
+     * @param Q Q evaluated by the heuristic, recorded in the trace
+     */
+    protected double[] InnerBlockReplicationAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error, String tabSpaceChars, BigInteger C, BigInteger Q){
+        return traced(model, AnalysisTrace.Decision.BLOCK_REPLICATION, C, Q, () -> {
+            ArrayList<DAG> replicatedBlocks = new ArrayList<>();
+            ArrayList<DAG> sortedReplicatedBlocks = new ArrayList<>();
+            for(Activity activity: ((DAG) model).end().pre()){
+                DAG replicatedBlock = ((DAG) model).copyRecursive(((DAG) model).begin(), activity, "_before_" + activity.name());
+                replicatedBlocks.add(replicatedBlock);
+                replicatedBlock.C();
+                replicatedBlock.Q();
+                sortedReplicatedBlocks.add(replicatedBlock);
             }
-            while(endActivity.pre().size() > 0){
-                endActivity.removePrecondition(endActivity.pre().get(endActivity.pre().size() - 1));
+
+            sortedReplicatedBlocks.sort(Comparator.comparing(Activity::C).thenComparing(Activity::Q));
+            DAG chosenReplicatedBlock = sortedReplicatedBlocks.get(sortedReplicatedBlocks.size() - 1);
+
+            DAG nestedDAG;
+            if(sortedReplicatedBlocks.size() > 1){
+                nestedDAG = ((DAG) model).nest(((DAG) model).end().pre().get(replicatedBlocks.indexOf(chosenReplicatedBlock)));
+            } else {
+                Activity endActivity = chosenReplicatedBlock.end().pre().get(0);
+                chosenReplicatedBlock.end().removePrecondition(endActivity);
+                for(Activity activity: endActivity.pre()){
+                    chosenReplicatedBlock.end().addPrecondition(activity);
+                }
+                while(endActivity.pre().size() > 0){
+                    endActivity.removePrecondition(endActivity.pre().get(endActivity.pre().size() - 1));
+                }
+                nestedDAG = DAG.sequence(model.name() + "_sequenced",
+                        chosenReplicatedBlock, endActivity);
             }
-            nestedDAG = DAG.sequence(model.name() + "_sequenced",
-                    chosenReplicatedBlock, endActivity);
-        }
 
-        if(verbose)
-            System.out.println(tabSpaceChars + "---"  + " Replicated block before " + sortedReplicatedBlocks.get(sortedReplicatedBlocks.size() - 1).name().split("_before_")[1]);
+            if(verbose)
+                System.out.println(tabSpaceChars + "---"  + " Replicated block before " + sortedReplicatedBlocks.get(sortedReplicatedBlocks.size() - 1).name().split("_before_")[1]);
 
-        nestedDAG.setMin(nestedDAG.low());
-        nestedDAG.setMax(nestedDAG.upp());
+            nestedDAG.setMin(nestedDAG.low());
+            nestedDAG.setMax(nestedDAG.upp());
 
-        if(plotIntermediate){
-            TransientSolution<DeterministicEnablingState, RewardRate> simulate = model.simulate(timeLimit.toString(), step.toString(), 5000);
-            double[] simulation = new double[simulate.getSolution().length];
-            for(int i = 0; i < simulation.length; i++){
-                simulation[i] = simulate.getSolution()[i][0][0];
-            }
+            if(plotIntermediate){
+                TransientSolution<DeterministicEnablingState, RewardRate> simulate = model.simulate(timeLimit.toString(), step.toString(), 5000);
+                double[] simulation = new double[simulate.getSolution().length];
+                for(int i = 0; i < simulation.length; i++){
+                    simulation[i] = simulate.getSolution()[i][0][0];
+                }
 
-            double[] simulation2 = this.analyze(nestedDAG, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+                double[] simulation2 = this.analyze(nestedDAG, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
 
-            ActivityViewer.CompareResults("Inner Block Replication: " + model.name(), List.of("Real", "Appr"), List.of(new EvaluationResult("real", simulation, 0, simulation.length, step.doubleValue(), 0), new EvaluationResult("appr", simulation2, 0, simulation2.length, step.doubleValue(), 0)));
-        }
+                ActivityViewer.CompareResults("Inner Block Replication: " + model.name(), List.of("Real", "Appr"), List.of(new EvaluationResult("real", simulation, 0, simulation.length, step.doubleValue(), 0), new EvaluationResult("appr", simulation2, 0, simulation2.length, step.doubleValue(), 0)));
+            }
 
-        model.resetComplexityMeasure();
-        return this.analyze(nestedDAG, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+            model.resetComplexityMeasure();
+            return this.analyze(nestedDAG, timeLimit, step, forwardReductionFactor, error, tabSpaceChars);
+        });
     }
 
     public double[] regenerativeTransientAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal sampleFactor, BigDecimal error, String tabSpaceChars){
+        return traced(model, AnalysisTrace.Decision.REGENERATIVE, null, null, () -> {
+            if(verbose)
+                System.out.println(tabSpaceChars + " Reg Analysis of block " + model.name());
+
+            int samples = TimeGrid.of(step).ticks(timeLimit, RoundingMode.HALF_DOWN);
+            BigDecimal fineStep = step.divide(sampleFactor);
+            BudgetMonitor monitor = monitor(model, timeLimit, fineStep, error, AnalysisPath.REGENERATIVE);
+            double[] fine = transientAnalysis(model, timeLimit, fineStep, error, tabSpaceChars, AnalysisPath.REGENERATIVE, monitor);
+            if (fine == null)
+                return degrade(model, timeLimit, step, error, tabSpaceChars, monitor, samples);
+
+            double[] solution = new double[samples];
+            for(int i = 0; i < solution.length; i++){
+                solution[i] = fine[i * sampleFactor.intValue()];
+            }
+
+            return solution;
+        });
+    }
+
+    /**
+     * Solves a block that is not decomposed further, with the path predicted
+     * to be the cheapest by the cost model (forward analysis if none is set).
+     */
+    public double[] exactAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars){
+        return exactAnalysis(model, timeLimit, step, error, tabSpaceChars, null, null);
+    }
+
+    /**
+     * Solves a block as {@link #exactAnalysis(Activity, BigDecimal, BigDecimal, BigDecimal, String)}.
+     *
+     * @param C C evaluated by the heuristic, recorded in the trace
+     * @param Q Q evaluated by the heuristic, recorded in the trace
+     */
+    protected double[] exactAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars, BigInteger C, BigInteger Q){
+        CostEstimator costEstimator = this.costEstimator;
+        if (costEstimator == null || model instanceof Simple)
+            return forwardAnalysis(model, timeLimit, step, error, tabSpaceChars, C, Q);
+
+        CostEstimate estimate = costEstimator.cheapest(model, timeLimit, step, error,
+                EnumSet.of(AnalysisPath.FORWARD, AnalysisPath.REGENERATIVE, AnalysisPath.SIMULATION));
         if(verbose)
-            System.out.println(tabSpaceChars + " Reg Analysis of block " + model.name());
+            System.out.println(tabSpaceChars + " Predicted cost of block " + model.name() + " " + estimate);
+
+        AnalysisPath path = estimate.path();
+        AnalysisTrace.Decision decision = path == AnalysisPath.SIMULATION ? AnalysisTrace.Decision.SIMULATION
+                : path == AnalysisPath.REGENERATIVE ? AnalysisTrace.Decision.REGENERATIVE : AnalysisTrace.Decision.FORWARD;
+        return traced(model, decision, C, Q, () -> {
+            long time = System.nanoTime();
+            long allocated = ThreadAllocation.bytes();
+            BudgetMonitor monitor;
+            double[] solution;
+            if (path == AnalysisPath.SIMULATION) {
+                // the cheapest path is run anyway, stopping at the deadlines
+                BudgetedAnalysis budgeted = BudgetedAnalysis.current(this);
+                monitor = budgeted != null ? budgeted.monitor() : null;
+                solution = simulate(model, timeLimit, step, error, monitor, tabSpaceChars);
+            } else {
+                monitor = monitor(model, timeLimit, step, error, path);
+                solution = transientAnalysis(model, timeLimit, step, error, tabSpaceChars, path, monitor);
+                if (solution == null)
+                    return degrade(model, timeLimit, step, error, tabSpaceChars, monitor, TimeGrid.of(step).samples(timeLimit));
+            }
+
+            // only runs completed on the predicted path calibrate the cost model
+            if (monitor == null || monitor.exceeded() == null)
+                costEstimator.record(model, timeLimit, step, error, path,
+                        (System.nanoTime() - time) / 1e9, ThreadAllocation.bytes() - allocated);
+            return solution;
+        });
+    }
+
+    /**
+     * Transient analysis of a block with the forward or regenerative solver,
+     * or {@code null} if it exceeds the budget enforced by {@code monitor}.
+     */
+    double[] transientAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars, AnalysisPath path, BudgetMonitor monitor) {
+        if (monitor != null && monitor.exceeded() != null)
+            return null;
 
         long time = System.nanoTime();
-        TransientSolution<DeterministicEnablingState, RewardRate> transientSolution = model.analyze(timeLimit.toString(), step.divide(sampleFactor).toString(), error.toString());
+        solverInvocations.incrementAndGet();
+        TransientSolution<?, RewardRate> transientSolution;
+        if (path == AnalysisPath.REGENERATIVE)
+            transientSolution = model.analyze(timeLimit.toString(), step.toString(), error.toString(), metrics, monitor);
+        else
+            transientSolution = model.forwardAnalyze(timeLimit.toString(), step.toString(), error.toString(), metrics, monitor);
+        if (monitor != null && monitor.exceeded() != null)
+            return null;
+
         if(verbose)
             System.out.println(tabSpaceChars +  " Analysis done in " + String.format("%.3f seconds",
                 (System.nanoTime() - time)/1e9) + "...");
+        return toArray(transientSolution);
+    }
 
-        double[] solution = new double[timeLimit.divide(step, RoundingMode.HALF_DOWN).intValue()];
-        for(int i = 0; i < solution.length; i++){
-            solution[i] = transientSolution.getSolution()[i * sampleFactor.intValue()][0][0];
+    /**
+     * Simulates a block with the compiled sampler, with enough runs for the
+     * error target; with a monitor, runs in batches and stops at its
+     * deadlines.
+     */
+    double[] simulate(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, BudgetMonitor monitor, String tabSpaceChars) {
+        long time = System.nanoTime();
+        solverInvocations.incrementAndGet();
+        int runs = CostEstimator.simulationRuns(error);
+        MonteCarloSimulator simulator = new MonteCarloSimulator(model, timeLimit, step);
+        double[] solution;
+        // runs on the calling thread, which may be a pool worker
+        if (monitor == null) {
+            solution = simulator.simulate(runs, 1, SIMULATION_SEED);
+        } else {
+            CompletionHistogram histogram = simulator.histogram();
+            SplittableRandom seeds = new SplittableRandom(SIMULATION_SEED);
+            do {
+                simulator.accumulate(histogram, (int) Math.min(SIMULATION_BATCH, runs - histogram.runs()), 1, seeds.nextLong());
+            } while (histogram.runs() < runs && !monitor.deadlineReached());
+
+            if (histogram.runs() < runs)
+                BudgetedAnalysis.current(this).record(model, monitor.exceeded(), Degradation.Fallback.FEWER_RUNS, tabSpaceChars);
+            solution = histogram.cdf();
         }
-
+        metrics.time(AnalysisMetrics.SIMULATION, System.nanoTime() - time);
         return solution;
     }
 
-    public double[] forwardAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars){
-        if(verbose)
-            System.out.println(tabSpaceChars + " Forward Analysis of block " + model.name());
-
-        long time = System.nanoTime();
-        TransientSolution<Marking, RewardRate> transientSolution = model.forwardAnalyze(timeLimit.toString(), step.toString(), error.toString());
+    /**
+     * Monitor enforcing the budget of the current budgeted analysis on the
+     * transient analysis of a block, or {@code null} without budget.
+     */
+    private BudgetMonitor monitor(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, AnalysisPath path) {
+        BudgetedAnalysis budgeted = BudgetedAnalysis.current(this);
+        return budgeted != null ? budgeted.monitor(model, timeLimit, step, error, path) : null;
+    }
 
-        if(verbose)
-            System.out.println(tabSpaceChars +  " Analysis done in " + String.format("%.3f seconds",
-                (System.nanoTime() - time)/1e9) + "...");
+    /**
+     * Solves a block whose transient analysis exceeded the budget enforced
+     * by {@code monitor} with a cheaper path.
+     */
+    private double[] degrade(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars, BudgetMonitor monitor, int samples) {
+        return BudgetedAnalysis.current(this).degrade(model, timeLimit, step, error, tabSpaceChars, monitor.exceeded(), samples);
+    }
 
+    private static double[] toArray(TransientSolution<?, ?> transientSolution) {
         double[] solution = new double[transientSolution.getSolution().length];
         for(int i = 0; i < solution.length; i++){
             solution[i] = transientSolution.getSolution()[i][0][0];
         }
-
         return solution;
     }
+
+    public double[] forwardAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars){
+        return forwardAnalysis(model, timeLimit, step, error, tabSpaceChars, null, null);
+    }
+
+    private double[] forwardAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars, BigInteger C, BigInteger Q){
+        AnalysisTrace.Node node = enter(model, AnalysisTrace.Decision.FORWARD, C, Q);
+        try {
+            if (model instanceof Simple) {
+                double[] closedForm = ClosedFormCDF.of((Simple) model, timeLimit, step, error);
+                if (closedForm != null) {
+                    if (node != null)
+                        node.setDecision(AnalysisTrace.Decision.CLOSED_FORM);
+                    return closedForm;
+                }
+            }
+
+            if(verbose)
+                System.out.println(tabSpaceChars + " Forward Analysis of block " + model.name());
+
+            BudgetMonitor monitor = monitor(model, timeLimit, step, error, AnalysisPath.FORWARD);
+            double[] solution = transientAnalysis(model, timeLimit, step, error, tabSpaceChars, AnalysisPath.FORWARD, monitor);
+            if (solution == null)
+                return degrade(model, timeLimit, step, error, tabSpaceChars, monitor, TimeGrid.of(step).samples(timeLimit));
+
+            return solution;
+        } finally {
+            exit(node);
+        }
+    }
 }
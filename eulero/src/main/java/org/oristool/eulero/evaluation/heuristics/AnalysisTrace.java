@@ -0,0 +1,268 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.oristool.eulero.metrics.ThreadAllocation;
+import org.oristool.eulero.modeling.Activity;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Tree of the decisions taken by an analysis, mirroring its recursion.
+ *
+ * Each node records the analyzed block, the technique chosen for it, the
+ * complexity measures that the heuristic compared with its thresholds to
+ * choose it ({@code null} if it did not evaluate them, as for numerical
+ * blocks), and the wall time and bytes allocated by the analyzing thread
+ * until completion. Sub-blocks forked to other
+ * threads are attached to the right parent, but their allocations are only
+ * counted in their own nodes.
+ *
+ * The tree can be exported as JSON or as folded stacks (one line per path
+ * with its self time in microseconds), the input format of flame graph tools.
+ */
+public class AnalysisTrace {
+    public enum Decision {
+        NUMERICAL,
+        BLOCK_REPLICATION,
+        INNER_BLOCK,
+        APPROXIMATION,
+        FORWARD,
+        REGENERATIVE,
+        SIMULATION,
+        CLOSED_FORM,
+        CACHED
+    }
+
+    public static class Node {
+        private final String name;
+        private final String type;
+        private final BigInteger C;
+        private final BigInteger Q;
+        private final Node parent;
+        private final List<Node> children = new ArrayList<>();
+        private final long start;
+        private final long startAllocated;
+        private Decision decision;
+        private long nanos;
+        private long allocated;
+        private Degradation degradation;
+
+        private Node(Activity activity, Decision decision, BigInteger C, BigInteger Q, Node parent) {
+            this.name = activity.name();
+            this.type = activity.type().toString();
+            this.C = C;
+            this.Q = Q;
+            this.decision = decision;
+            this.parent = parent;
+            this.startAllocated = ThreadAllocation.bytes();
+            this.start = System.nanoTime();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public Decision decision() {
+            return decision;
+        }
+
+        void setDecision(Decision decision) {
+            this.decision = decision;
+        }
+
+        /**
+         * C as evaluated by the heuristic: exact if it was computed, an upper
+         * bound otherwise.
+         */
+        public BigInteger C() {
+            return C;
+        }
+
+        public BigInteger Q() {
+            return Q;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * Wall time not spent in children analyzed by the same call.
+         */
+        public long selfNanos() {
+            long self = nanos;
+            for (Node child : children()) {
+                self -= child.nanos;
+            }
+            return Math.max(self, 0);
+        }
+
+        public long allocatedBytes() {
+            return allocated;
+        }
+
+        /**
+         * Cheaper path taken because the block exceeded its budget, or
+         * {@code null}.
+         */
+        public Degradation degradation() {
+            return degradation;
+        }
+
+        void setDegradation(Degradation degradation) {
+            this.degradation = degradation;
+        }
+
+        public List<Node> children() {
+            synchronized (children) {
+                return new ArrayList<>(children);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            json.put("type", type);
+            json.put("decision", decision.toString());
+            json.put("C", C != null ? C.toString() : null);
+            json.put("Q", Q != null ? Q.toString() : null);
+            json.put("timeMillis", nanos / 1e6);
+            json.put("allocatedBytes", allocated);
+            json.put("degradation", degradation != null ? degradation.toString() : null);
+            JSONArray array = new JSONArray();
+            for (Node child : children()) {
+                array.add(child.toJson());
+            }
+            json.put("children", array);
+            return json;
+        }
+
+        private void folded(String prefix, BufferedWriter writer) throws IOException {
+            String frame = prefix + (prefix.isEmpty() ? "" : ";")
+                    + name.replace(';', '_') + " [" + decision + "]";
+            long micros = selfNanos() / 1000;
+            if (micros > 0) {
+                writer.write(frame + " " + micros);
+                writer.newLine();
+            }
+
+            for (Node child : children()) {
+                child.folded(frame, writer);
+            }
+        }
+    }
+
+    private final List<Node> roots = new ArrayList<>();
+    private final ThreadLocal<Node> current = new ThreadLocal<>();
+
+    /**
+     * Opens a node as a child of the current node of this thread.
+     *
+     * @param C C compared with its threshold by the heuristic, or {@code null}
+     * @param Q Q compared with its threshold by the heuristic, or {@code null}
+     */
+    public Node enter(Activity activity, Decision decision, BigInteger C, BigInteger Q) {
+        Node parent = current.get();
+        Node node = new Node(activity, decision, C, Q, parent);
+        List<Node> siblings = parent != null ? parent.children : roots;
+        synchronized (siblings) {
+            siblings.add(node);
+        }
+        current.set(node);
+        return node;
+    }
+
+    /**
+     * Closes a node opened by this thread, which must be the current one.
+     */
+    public void exit(Node node) {
+        node.nanos = System.nanoTime() - node.start;
+        node.allocated = ThreadAllocation.bytes() - node.startAllocated;
+        current.set(node.parent);
+    }
+
+    public Node current() {
+        return current.get();
+    }
+
+    /**
+     * Runs an analysis, possibly on another thread, with the given node as
+     * parent of the nodes it opens.
+     */
+    public <T> T within(Node parent, Supplier<T> analysis) {
+        Node previous = current.get();
+        current.set(parent);
+        try {
+            return analysis.get();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    public List<Node> roots() {
+        synchronized (roots) {
+            return new ArrayList<>(roots);
+        }
+    }
+
+    public void clear() {
+        synchronized (roots) {
+            roots.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public String toJson() {
+        JSONArray array = new JSONArray();
+        for (Node root : roots()) {
+            array.add(root.toJson());
+        }
+        return array.toJSONString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the tree as folded stacks, e.g. for {@code flamegraph.pl}.
+     */
+    public void writeFolded(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Node root : roots()) {
+                root.folded("", writer);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.oristool.analyzer.log.AnalysisMonitor;
+
+/**
+ * Interrupts the transient analysis of a block when it exceeds its budget.
+ *
+ * Sirio polls {@link #interruptRequested()} before expanding each state
+ * class, so polls are counted as classes; the clock and the heap are read
+ * every {@link #CHECK_INTERVAL} polls.
+ */
+class BudgetMonitor implements AnalysisMonitor {
+    private static final int CHECK_INTERVAL = 64;
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final long analysisDeadline;
+    private final long blockDeadline;
+    private final long maxClasses;
+    private final long maxHeap;
+    private final long startHeap;
+    private long classes;
+    private volatile AnalysisBudget.Resource exceeded;
+
+    /**
+     * @param analysisDeadline {@link System#nanoTime()} at which the whole
+     *        analysis must end, or {@link #NO_DEADLINE}
+     */
+    BudgetMonitor(AnalysisBudget budget, long analysisDeadline) {
+        long now = System.nanoTime();
+        this.analysisDeadline = analysisDeadline;
+        this.blockDeadline = budget.blockTime() != null ? now + budget.blockTime().toNanos() : NO_DEADLINE;
+        this.maxClasses = budget.maxClasses();
+        this.maxHeap = budget.maxHeap();
+        this.startHeap = usedHeap();
+        if (expired(analysisDeadline, now))
+            exceeded = AnalysisBudget.Resource.ANALYSIS_TIME;
+    }
+
+    /**
+     * Resource exceeded, or {@code null} if the analysis is within budget.
+     */
+    AnalysisBudget.Resource exceeded() {
+        return exceeded;
+    }
+
+    /**
+     * Marks the budget as exceeded before running, e.g. on a prediction.
+     */
+    void exceed(AnalysisBudget.Resource resource) {
+        if (exceeded == null)
+            exceeded = resource;
+    }
+
+    @Override
+    public void notifyMessage(String message) {
+    }
+
+    @Override
+    public void notifyProgress(int progress) {
+    }
+
+    @Override
+    public boolean interruptRequested() {
+        if (exceeded != null)
+            return true;
+
+        classes++;
+        if (classes > maxClasses) {
+            exceed(AnalysisBudget.Resource.CLASSES);
+        } else if (classes % CHECK_INTERVAL == 0) {
+            long now = System.nanoTime();
+            if (expired(blockDeadline, now))
+                exceed(AnalysisBudget.Resource.BLOCK_TIME);
+            else if (expired(analysisDeadline, now))
+                exceed(AnalysisBudget.Resource.ANALYSIS_TIME);
+            else if (usedHeap() - startHeap > maxHeap)
+                exceed(AnalysisBudget.Resource.HEAP);
+        }
+        return exceeded != null;
+    }
+
+    /**
+     * Checks the deadlines outside of Sirio, e.g. between simulation batches.
+     *
+     * @return whether the budget is exceeded
+     */
+    boolean deadlineReached() {
+        long now = System.nanoTime();
+        if (expired(blockDeadline, now))
+            exceed(AnalysisBudget.Resource.BLOCK_TIME);
+        else if (expired(analysisDeadline, now))
+            exceed(AnalysisBudget.Resource.ANALYSIS_TIME);
+        return exceeded != null;
+    }
+
+    static boolean expired(long deadline, long now) {
+        return deadline != NO_DEADLINE && now - deadline >= 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,229 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.oristool.eulero.metrics.AnalysisMetrics;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ActivityType;
+import org.oristool.eulero.modeling.DAG;
+import org.oristool.eulero.solver.AnalysisPath;
+import org.oristool.eulero.solver.CostEstimate;
+import org.oristool.eulero.solver.CostEstimator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Analysis of a model with a strategy within an {@link AnalysisBudget}.
+ *
+ * Blocks exceeding the budget (or predicted to exceed it by the cost
+ * estimator of the strategy) are solved with a cheaper path, and each
+ * {@link Degradation} is recorded. The strategy may be shared by analyses
+ * running on other threads, with or without a budget; an instance analyzes
+ * one model at a time.
+ */
+public class BudgetedAnalysis {
+    /**
+     * Ratio between the step of the analysis and the coarser step used when
+     * a block exceeds its budget.
+     */
+    private static final int COARSENING = 4;
+    // budgeted analysis run by each thread, including the workers of its sub-blocks
+    private static final ThreadLocal<BudgetedAnalysis> CURRENT = new ThreadLocal<>();
+
+    private final AnalysisHeuristicsStrategy strategy;
+    private final AnalysisBudget budget;
+    private final List<Degradation> degradations = new ArrayList<>();
+    private long deadline = BudgetMonitor.NO_DEADLINE;
+
+    public BudgetedAnalysis(AnalysisHeuristicsStrategy strategy, AnalysisBudget budget) {
+        this.strategy = Objects.requireNonNull(strategy);
+        this.budget = Objects.requireNonNull(budget);
+    }
+
+    public AnalysisHeuristicsStrategy strategy() {
+        return strategy;
+    }
+
+    public AnalysisBudget budget() {
+        return budget;
+    }
+
+    /**
+     * Analyzes a model; the analysis time of the budget starts now, and the
+     * degradations of the previous analysis are discarded.
+     */
+    public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error) {
+        synchronized (degradations) {
+            degradations.clear();
+        }
+        deadline = budget.analysisTime() != null ? System.nanoTime() + budget.analysisTime().toNanos() : BudgetMonitor.NO_DEADLINE;
+        return within(this, () -> strategy.analyze(model, timeLimit, step, forwardReductionFactor, error));
+    }
+
+    public double[] analyze(Activity model, BigDecimal timeLimit, BigDecimal step) {
+        return analyze(model, timeLimit, step, BigDecimal.ONE, BigDecimal.valueOf(0.001));
+    }
+
+    /**
+     * Analyzes a model up to {@code timeLimit}, recording the computation
+     * time and the degradations in the result.
+     */
+    public EvaluationResult evaluate(String title, Activity model, BigDecimal timeLimit, BigDecimal step) {
+        long start = System.nanoTime();
+        double[] cdf = analyze(model, timeLimit, step);
+        EvaluationResult result = new EvaluationResult(title, cdf, 0, cdf.length, step.doubleValue(), System.nanoTime() - start);
+        result.setDegradations(degradations());
+        return result;
+    }
+
+    /**
+     * Blocks solved with a cheaper path in the last analysis, because they
+     * exceeded the budget.
+     */
+    public List<Degradation> degradations() {
+        synchronized (degradations) {
+            return List.copyOf(degradations);
+        }
+    }
+
+    /**
+     * Budgeted analysis of the strategy run by the calling thread, or
+     * {@code null}.
+     */
+    static BudgetedAnalysis current(AnalysisHeuristicsStrategy strategy) {
+        BudgetedAnalysis current = CURRENT.get();
+        return current != null && current.strategy == strategy ? current : null;
+    }
+
+    /**
+     * Runs an operation, e.g. the analysis of a forked sub-block, within a
+     * budgeted analysis ({@code null} for none).
+     */
+    static <T> T within(BudgetedAnalysis analysis, Supplier<T> operation) {
+        BudgetedAnalysis previous = CURRENT.get();
+        CURRENT.set(analysis);
+        try {
+            return operation.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Monitor enforcing the deadlines and limits of the budget.
+     */
+    BudgetMonitor monitor() {
+        return new BudgetMonitor(budget, deadline);
+    }
+
+    /**
+     * Monitor enforcing the budget on the transient analysis of a block,
+     * already exceeded if the cost estimator predicts that it would not fit.
+     */
+    BudgetMonitor monitor(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, AnalysisPath path) {
+        BudgetMonitor monitor = monitor();
+        CostEstimator costEstimator = strategy.costEstimator();
+        if (costEstimator != null) {
+            CostEstimate estimate = costEstimator.estimate(model, timeLimit, step, error, path);
+            if (budget.blockTime() != null && estimate.seconds() > budget.blockTime().toNanos() / 1e9)
+                monitor.exceed(AnalysisBudget.Resource.BLOCK_TIME);
+            else if (estimate.bytes() > budget.maxHeap())
+                monitor.exceed(AnalysisBudget.Resource.HEAP);
+        }
+        return monitor;
+    }
+
+    /**
+     * Solves a block that exceeded its budget with the first applicable
+     * cheaper path: approximation of its most complex inner block, forward
+     * analysis with a coarser step (unless too many classes or the whole
+     * analysis time are the problem), or simulation.
+     *
+     * @param samples length of the CDF expected by the caller
+     */
+    double[] degrade(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, String tabSpaceChars, AnalysisBudget.Resource exceeded, int samples) {
+        if (model.type().equals(ActivityType.DAG) && strategy.approximator() != null && hasComplexInnerBlock(model)) {
+            record(model, exceeded, Degradation.Fallback.APPROXIMATION, tabSpaceChars);
+            return fit(strategy.DAGInnerBlockAnalysis(model, timeLimit, step, BigDecimal.ONE, error, tabSpaceChars), samples);
+        }
+
+        if (exceeded == AnalysisBudget.Resource.BLOCK_TIME || exceeded == AnalysisBudget.Resource.HEAP) {
+            BigDecimal coarseStep = step.multiply(BigDecimal.valueOf(COARSENING));
+            double[] coarse = strategy.transientAnalysis(model, timeLimit, coarseStep, error, tabSpaceChars, AnalysisPath.FORWARD,
+                    monitor(model, timeLimit, coarseStep, error, AnalysisPath.FORWARD));
+            if (coarse != null) {
+                record(model, exceeded, Degradation.Fallback.COARSER_STEP, tabSpaceChars);
+                return fit(refine(coarse, COARSENING), samples);
+            }
+        }
+
+        record(model, exceeded, Degradation.Fallback.SIMULATION, tabSpaceChars);
+        return fit(strategy.simulate(model, timeLimit, step, error, monitor(), tabSpaceChars), samples);
+    }
+
+    /**
+     * Records a block solved with a cheaper path, also in the current node of
+     * the trace and in the metrics of the strategy.
+     */
+    void record(Activity model, AnalysisBudget.Resource exceeded, Degradation.Fallback fallback, String tabSpaceChars) {
+        Degradation degradation = new Degradation(model.name(), exceeded, fallback);
+        synchronized (degradations) {
+            degradations.add(degradation);
+        }
+
+        AnalysisTrace trace = strategy.trace();
+        if (trace != null && trace.current() != null)
+            trace.current().setDegradation(degradation);
+        strategy.metrics().increment(AnalysisMetrics.DEGRADATIONS);
+        if(strategy.verbose())
+            System.out.println(tabSpaceChars + " Budget of block " + model.name() + " exceeded: " + exceeded + ", falling back to " + fallback);
+    }
+
+    private static boolean hasComplexInnerBlock(Activity model) {
+        return ((DAG) model).activities().stream().anyMatch(t -> t.C().doubleValue() > 1 || t.Q().doubleValue() > 1);
+    }
+
+    /**
+     * Linear interpolation of a CDF on a grid with a step {@code factor}
+     * times finer.
+     */
+    private static double[] refine(double[] coarse, int factor) {
+        double[] fine = new double[(coarse.length - 1) * factor + 1];
+        for (int i = 0; i < fine.length; i++) {
+            int j = i / factor;
+            double w = (double) (i % factor) / factor;
+            fine[i] = w == 0 ? coarse[j] : (1 - w) * coarse[j] + w * coarse[j + 1];
+        }
+        return fine;
+    }
+
+    /**
+     * Truncates a CDF, or extends it with its last value, to the given length.
+     */
+    private static double[] fit(double[] cdf, int samples) {
+        double[] fitted = Arrays.copyOf(cdf, samples);
+        if (cdf.length > 0 && samples > cdf.length)
+            Arrays.fill(fitted, cdf.length, samples, cdf[cdf.length - 1]);
+        return fitted;
+    }
+}
@@ -0,0 +1,114 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.StructuralHash;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of sub-block CDFs, keyed by the structural hash of the
+ * block and by the analysis parameters.
+ *
+ * The capacity is the total number of cached samples; least recently used
+ * CDFs are evicted when it is exceeded. Arrays are copied on insertion and on
+ * lookup, so callers are free to modify them.
+ */
+public class CDFCache {
+    public static final long DEFAULT_CAPACITY = 1L << 22;
+
+    private final long capacity;
+    private final LinkedHashMap<String, double[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long samples;
+    private long hits;
+    private long misses;
+
+    public CDFCache(long capacity){
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must be non-negative");
+        this.capacity = capacity;
+    }
+
+    public CDFCache(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Builds the cache key of an activity analyzed with the given parameters.
+     */
+    public static String key(Activity activity, BigDecimal timeLimit, BigDecimal step, BigDecimal forwardReductionFactor, BigDecimal error) {
+        return StructuralHash.of(activity)
+                + "|" + timeLimit.stripTrailingZeros().toPlainString()
+                + "|" + step.stripTrailingZeros().toPlainString()
+                + "|" + forwardReductionFactor.stripTrailingZeros().toPlainString()
+                + "|" + error.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Returns a copy of the cached CDF, or {@code null} if missing.
+     */
+    public synchronized double[] get(String key) {
+        double[] cdf = entries.get(key);
+        if (cdf == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return cdf.clone();
+    }
+
+    public synchronized void put(String key, double[] cdf) {
+        if (cdf.length > capacity)
+            return;
+
+        double[] previous = entries.put(key, cdf.clone());
+        samples += cdf.length - (previous != null ? previous.length : 0);
+
+        Iterator<Map.Entry<String, double[]>> eldest = entries.entrySet().iterator();
+        while (samples > capacity && eldest.hasNext()) {
+            samples -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        samples = 0;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+}
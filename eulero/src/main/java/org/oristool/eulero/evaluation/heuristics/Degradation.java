@@ -0,0 +1,62 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+/**
+ * Record of a block solved with a cheaper path after exceeding its
+ * {@link AnalysisBudget}.
+ */
+public class Degradation {
+    public enum Fallback {
+        /** Inner block replaced by its approximation. */
+        APPROXIMATION,
+        /** Transient analysis with a coarser time step, interpolated. */
+        COARSER_STEP,
+        /** Simulation of the block. */
+        SIMULATION,
+        /** Simulation stopped at a deadline, before the runs needed for the error target. */
+        FEWER_RUNS
+    }
+
+    private final String block;
+    private final AnalysisBudget.Resource exceeded;
+    private final Fallback fallback;
+
+    public Degradation(String block, AnalysisBudget.Resource exceeded, Fallback fallback) {
+        this.block = block;
+        this.exceeded = exceeded;
+        this.fallback = fallback;
+    }
+
+    public String block() {
+        return block;
+    }
+
+    public AnalysisBudget.Resource exceeded() {
+        return exceeded;
+    }
+
+    public Fallback fallback() {
+        return fallback;
+    }
+
+    @Override
+    public String toString() {
+        return block + ": " + exceeded + " exceeded, " + fallback;
+    }
+}
@@ -19,6 +19,8 @@ package org.oristool.eulero.evaluation.heuristics;
 
 import org.oristool.models.stpn.TransientSolution;
 
+import java.util.List;
+
 public class EvaluationResult {
     private String title;
     private final double[] cdf;
@@ -26,6 +28,7 @@ public class EvaluationResult {
     private final int max;
     private final double step;
     private final long computationTime;
+    private List<Degradation> degradations = List.of();
 
     public EvaluationResult(String title, double[] cdf, int min, int max, double step, long computationTime){
         this.title = title;
@@ -113,4 +116,16 @@ public class EvaluationResult {
     public void setTitle(String title){
         this.title = title;
     }
+
+    /**
+     * Blocks solved with a cheaper path because they exceeded the budget of
+     * the analysis; empty if the result is not degraded.
+     */
+    public List<Degradation> degradations() {
+        return degradations;
+    }
+
+    public void setDegradations(List<Degradation> degradations) {
+        this.degradations = List.copyOf(degradations);
+    }
 }
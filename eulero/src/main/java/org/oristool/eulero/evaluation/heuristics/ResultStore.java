@@ -0,0 +1,207 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file of sampled CDF and PDF columns.
+ *
+ * The file starts with a 64-byte header (step, min, max, number of samples,
+ * computation time and a hash of the analyzed model), followed by the CDF
+ * and PDF columns as little-endian doubles. Readers map the file and access
+ * the columns as {@link DoubleBuffer} views, without parsing or copying;
+ * {@link #exportCsv(Path)} writes the text files of previous versions.
+ */
+public final class ResultStore {
+    private static final int MAGIC = 0x45555253;  // "EURS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+
+    private final ByteBuffer buffer;
+    private final double step;
+    private final int min;
+    private final int max;
+    private final int samples;
+    private final long computationTime;
+    private final long modelHash;
+
+    private ResultStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.step = buffer.getDouble(8);
+        this.min = buffer.getInt(16);
+        this.max = buffer.getInt(20);
+        this.samples = buffer.getInt(24);
+        this.computationTime = buffer.getLong(32);
+        this.modelHash = buffer.getLong(40);
+    }
+
+    /**
+     * Writes the CDF of a result and its PDF, replacing the file atomically.
+     *
+     * @param modelHash identifier of the analyzed model, such as
+     *        {@code ModelFormat.hash(model)}, or 0 if unknown
+     */
+    public static void write(EvaluationResult result, long modelHash, Path file) throws IOException {
+        double[] cdf = result.cdf();
+        double step = result.step();
+        long size = HEADER + 2L * Double.BYTES * cdf.length;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many samples for a result store: " + cdf.length);
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putDouble(8, step);
+            buffer.putInt(16, result.min());
+            buffer.putInt(20, result.max());
+            buffer.putInt(24, cdf.length);
+            buffer.putInt(28, 2);
+            buffer.putLong(32, result.computationTime());
+            buffer.putLong(40, modelHash);
+
+            buffer.position(HEADER);
+            DoubleBuffer columns = buffer.asDoubleBuffer();
+            columns.put(cdf);
+            // PDF as in EvaluationResult.pdf(), without a temporary array
+            for (int i = 0; i < cdf.length; i++)
+                columns.put((cdf[i] - (i > 0 ? cdf[i - 1] : 0.0)) / step);
+            buffer.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a file written by {@link #write}.
+     */
+    public static ResultStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER)
+                throw new IOException("Not a result store: " + file);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a result store: " + file);
+            int version = buffer.getInt(4);
+            if (version != VERSION)
+                throw new IOException("Unsupported result store version " + version);
+            if (channel.size() != HEADER + 2L * Double.BYTES * buffer.getInt(24))
+                throw new IOException("Truncated result store: " + file);
+
+            // the mapping stays valid after the channel is closed
+            return new ResultStore(buffer);
+        }
+    }
+
+    public double step() {
+        return step;
+    }
+
+    public int min() {
+        return min;
+    }
+
+    public int max() {
+        return max;
+    }
+
+    public int samples() {
+        return samples;
+    }
+
+    public long computationTime() {
+        return computationTime;
+    }
+
+    public long modelHash() {
+        return modelHash;
+    }
+
+    /**
+     * Read-only view of the CDF column.
+     */
+    public DoubleBuffer cdf() {
+        return column(0);
+    }
+
+    /**
+     * Read-only view of the PDF column.
+     */
+    public DoubleBuffer pdf() {
+        return column(1);
+    }
+
+    private DoubleBuffer column(int index) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(HEADER + index * samples * Double.BYTES);
+        view.limit(HEADER + (index + 1) * samples * Double.BYTES);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the stored CDF into a result.
+     */
+    public EvaluationResult toResult(String title) {
+        double[] cdf = new double[samples];
+        cdf().get(cdf);
+        return new EvaluationResult(title, cdf, min, max, step, computationTime);
+    }
+
+    /**
+     * Writes {@code CDF.txt}, {@code PDF.txt} and {@code computation_times.txt}
+     * in the given directory.
+     */
+    public void exportCsv(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        DoubleBuffer cdf = cdf();
+        DoubleBuffer pdf = pdf();
+        int scale = BigDecimal.valueOf(step).scale();
+
+        try (BufferedWriter cdfWriter = Files.newBufferedWriter(directory.resolve("CDF.txt"));
+             BufferedWriter pdfWriter = Files.newBufferedWriter(directory.resolve("PDF.txt"))) {
+            cdfWriter.write("t,f\n");
+            pdfWriter.write("t,f\n");
+            for (int j = 0; j < samples; j++) {
+                String x = BigDecimal.valueOf((min + j) * step).setScale(scale, RoundingMode.HALF_DOWN).toString();
+                cdfWriter.append(x).append(',').append(Double.toString(cdf.get(j))).append('\n');
+                pdfWriter.append(x).append(',').append(Double.toString(pdf.get(j))).append('\n');
+            }
+        }
+
+        Files.writeString(directory.resolve("computation_times.txt"), computationTime / 1e9 + "s");
+    }
+}
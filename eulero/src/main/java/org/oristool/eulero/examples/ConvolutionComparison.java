@@ -0,0 +1,73 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.examples;
+
+import org.oristool.eulero.evaluation.convolution.ConvolutionKernel;
+import org.oristool.eulero.evaluation.convolution.DirectConvolution;
+import org.oristool.eulero.evaluation.convolution.FFTConvolution;
+
+/**
+ * Compares accuracy and throughput of the FFT convolution against the direct
+ * trapezoidal sum used by SEQ blocks, on a SEQ of a U(0, 3) and an EXP(1)
+ * activity sampled over [0, 10].
+ */
+public class ConvolutionComparison {
+    public static void main(String[] args) {
+        ConvolutionKernel direct = new DirectConvolution();
+        ConvolutionKernel fft = new FFTConvolution(0);
+        int[] sizes = new int[] { 100, 1000, 10000, 100000 };
+
+        System.out.println("samples, max abs error, direct [ms], fft [ms], speedup");
+        for (int n : sizes) {
+            double step = 10.0 / (n - 1);
+            double[] uniform = new double[n];
+            double[] exponential = new double[n];
+            for (int i = 0; i < n; i++) {
+                uniform[i] = Math.min(1.0, i * step / 3.0);
+                exponential[i] = 1 - Math.exp(-i * step);
+            }
+
+            int repetitions = Math.max(1, 100000 / n);
+            double directTime = time(direct, uniform, exponential, repetitions);
+            double fftTime = time(fft, uniform, exponential, repetitions);
+
+            double[] expected = direct.convolve(uniform, exponential);
+            double[] actual = fft.convolve(uniform, exponential);
+            double maxError = 0;
+            for (int i = 0; i < n; i++) {
+                maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+            }
+
+            System.out.println(String.format("%d, %.3e, %.3f, %.3f, %.1fx",
+                    n, maxError, directTime, fftTime, directTime / fftTime));
+        }
+    }
+
+    private static double time(ConvolutionKernel kernel, double[] first, double[] second, int repetitions) {
+        // warm-up
+        for (int i = 0; i < repetitions; i++) {
+            kernel.convolve(first, second);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            kernel.convolve(first, second);
+        }
+        return (System.nanoTime() - start) / 1e6 / repetitions;
+    }
+}
@@ -22,29 +22,44 @@ import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
 import org.oristool.eulero.evaluation.heuristics.EvaluationResult;
+import org.oristool.eulero.evaluation.heuristics.ResultStore;
 import org.oristool.eulero.modeling.*;
 import org.oristool.models.stpn.trees.StochasticTransitionFeature;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ExampleHelper {
+    public static final String XML_MODEL = "structure_tree.xml";
+    public static final String BINARY_MODEL = "structure_tree.bin";
+    public static final String RESULTS = "results.bin";
+
+    // creating a context introspects all model classes: do it once
+    private static class Context {
+        private static final JAXBContext INSTANCE = create();
+
+        private static JAXBContext create() {
+            try {
+                return JAXBContext.newInstance(Activity.class, Simple.class, SEQ.class, AND.class, XOR.class, DAG.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
     public static Activity jaxbXmlFileToObject(String fileName, List<StochasticTransitionFeature> features, List<BigDecimal> weights) {
 
         File xmlFile = new File(fileName);
 
-        JAXBContext jaxbContext;
         try
         {
-            jaxbContext = JAXBContext.newInstance(Activity.class);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+            Unmarshaller jaxbUnmarshaller = Context.INSTANCE.createUnmarshaller();
 
             Activity test = (Activity) jaxbUnmarshaller.unmarshal(xmlFile);
 
@@ -65,133 +80,39 @@ public class ExampleHelper {
     }
 
     public static void attachFeatures(Activity model, ArrayList<StochasticTransitionFeature> features, ArrayList<BigDecimal> weights){
-        ArrayList<StochasticTransitionFeature> beginEndFeature = new ArrayList<>();
-        beginEndFeature.add(StochasticTransitionFeature.newDeterministicInstance(BigDecimal.ZERO));
-        ArrayList<BigDecimal> beginEndWeights = new ArrayList<>();
-        beginEndWeights.add(BigDecimal.ONE);
-
-        if(model instanceof Simple){
-            ((Simple) model).setFeatures(features);
-            ((Simple) model).setWeights(weights);
-        }
-
-        if(model instanceof SEQ){
-            ((Simple)((SEQ) model).begin()).setFeatures(beginEndFeature);
-            ((Simple)((SEQ) model).begin()).setWeights(beginEndWeights);
-            ((Simple)((SEQ) model).begin()).setFeatures(beginEndFeature);
-            ((Simple)((SEQ) model).begin()).setWeights(beginEndWeights);
-
-            ((Simple)((SEQ) model).end()).setFeatures(beginEndFeature);
-            ((Simple)((SEQ) model).end()).setWeights(beginEndWeights);
-            ((Simple)((SEQ) model).end()).setFeatures(beginEndFeature);
-            ((Simple)((SEQ) model).end()).setWeights(beginEndWeights);
-
-            Activity pre = ((SEQ) model).begin();
-            for(Activity act: ((SEQ) model).activities()){
-                attachFeatures(act, features, weights);
-                act.pre().add(pre);
-                pre.post().add(act);
-                pre = act;
-            }
-            ((SEQ) model).end().pre().add(pre);
-            pre.post().add(((SEQ) model).end());
-        }
-
-        if(model instanceof AND){
-            ((Simple)((AND) model).begin()).setFeatures(beginEndFeature);
-            ((Simple)((AND) model).begin()).setWeights(beginEndWeights);
-            ((Simple)((AND) model).begin()).setFeatures(beginEndFeature);
-            ((Simple)((AND) model).begin()).setWeights(beginEndWeights);
-
-            ((Simple)((AND) model).end()).setFeatures(beginEndFeature);
-            ((Simple)((AND) model).end()).setWeights(beginEndWeights);
-            ((Simple)((AND) model).end()).setFeatures(beginEndFeature);
-            ((Simple)((AND) model).end()).setWeights(beginEndWeights);
-
-            Activity pre = ((AND) model).begin();
-            for(Activity act: ((AND) model).activities()){
-                attachFeatures(act, features, weights);
-                act.pre().add(pre);
-                ((AND) model).end().pre().add(act);
-            }
-        }
-
-        if(model instanceof XOR){
-            for(Activity act: ((XOR) model).activities()){
-                attachFeatures(act, features, weights);
-            }
-        }
-
-        if(model instanceof DAG){
-            ((DAG) model).begin().post().clear();
-            restorePreconditionToDAG(((DAG) model), features, weights);
-        }
+        ModelLoader.restore(model, features, weights);
     }
 
     public static void restorePreconditionToDAG(DAG dag, ArrayList<StochasticTransitionFeature> features, ArrayList<BigDecimal> weights){
-        List<DAGEdge> edges = dag.edges();
-        for(Activity activity: dag.activities()){
-            activity.post().clear();
-            activity.pre().clear();
-            attachFeatures(activity, features, weights);
-            List<String> predecessorNames = edges.stream().filter(t -> t.getPost().equals(activity.name())).map(t -> t.getPre()).collect(Collectors.toList());
-            if(predecessorNames.isEmpty()){
-                activity.addPrecondition(dag.begin());
-            } else {
-                List<Activity> predecessorNodes = dag.activities().stream().filter(t -> predecessorNames.contains(t.name())).collect(Collectors.toList());
-                activity.addPrecondition(predecessorNodes.toArray(Activity[]::new));
-            }
-        }
-
-        List<String> lastNodeNames = edges.stream().map(t->t.getPre()).collect(Collectors.toList());
-        List<Activity> lastNodes = dag.activities().stream().filter(t -> !lastNodeNames.contains(t.name())).collect(Collectors.toList());
-
-        dag.end().pre().clear();
-        dag.end().addPrecondition(lastNodes.toArray(Activity[]::new));
+        ModelLoader.restore(dag, features, weights);
     }
 
-    public static void storeResults(EvaluationResult result, String savePath){
+    /**
+     * Stores the result in {@code results.bin}, then exports the CSV files
+     * from it.
+     *
+     * @param modelHash hash of the analyzed model, as returned by
+     *        {@link #objectToBinary}: it must be taken before the analysis,
+     *        which may simplify the model in place
+     * @throws UncheckedIOException if the results cannot be written
+     */
+    public static void storeResults(EvaluationResult result, long modelHash, String savePath){
         final boolean append = true, autoflush = true;
         PrintStream printStream = new PrintStream(System.out, autoflush);
         System.setOut(printStream);
 
         System.out.println("\nStoring Results...");
-        String pathPrefix = savePath + "/";
-        File path = new File(pathPrefix);
+        File path = new File(savePath);
         if(!path.exists()){
             path.mkdirs();
         }
 
-        double[] cdf = result.cdf();
-        double[] pdf = result.pdf();
-
-        StringBuilder cdfString = new StringBuilder();
-        StringBuilder pdfString = new StringBuilder();
-        cdfString.append("t,f\n");
-        pdfString.append("t,f\n");
-        for(int j = 0; j < cdf.length; j++){
-            BigDecimal x = BigDecimal.valueOf((result.min() + j) * result.step())
-                    .setScale(BigDecimal.valueOf(result.step()).scale(), RoundingMode.HALF_DOWN);
-            cdfString.append(x.toString()).append(",").append(cdf[j]).append("\n");
-            pdfString.append(x.toString()).append(",").append(pdf[j]).append("\n");
-        }
-
-        long time = result.computationTime();
-
         try {
-            FileWriter cdfWriter = new FileWriter(pathPrefix + "/CDF.txt");
-            FileWriter pdfWriter = new FileWriter(pathPrefix + "/PDF.txt");
-            FileWriter timeWriter = new FileWriter(pathPrefix + "/computation_times.txt");
-
-            timeWriter.write(time/1e9 + "s");
-            timeWriter.close();
-            cdfWriter.write(cdfString.toString());
-            cdfWriter.close();
-            pdfWriter.write(pdfString.toString());
-            pdfWriter.close();
+            Path store = Path.of(savePath, RESULTS);
+            ResultStore.write(result, modelHash, store);
+            ResultStore.open(store).exportCsv(Path.of(savePath));
         } catch (IOException e) {
-            System.out.println("An error occurred.");
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -203,17 +124,14 @@ public class ExampleHelper {
         }
         try
         {
-            //Create JAXB Context
-            JAXBContext jaxbContext = JAXBContext.newInstance(Simple.class, SEQ.class, AND.class, XOR.class, DAG.class);
-
             //Create Marshaller
-            Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
+            Marshaller jaxbMarshaller = Context.INSTANCE.createMarshaller();
 
             //Required formatting??
             jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 
             //Store XML to File
-            File file = new File(testCasePath + "/structure_tree.xml");
+            File file = new File(testCasePath + "/" + XML_MODEL);
 
             //Writes XML file to file-system
             jaxbMarshaller.marshal(model, file);
@@ -223,4 +141,36 @@ public class ExampleHelper {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Reads a model stored by {@link #objectToBinary}, with its features.
+     *
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static Activity binaryFileToObject(String fileName) {
+        try {
+            return ModelFormat.load(Path.of(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves a model in {@code structure_tree.bin}.
+     *
+     * @return the hash of the saved model, to be stored with its results
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static long objectToBinary(Activity model, String testCasePath) {
+        File folder = new File(testCasePath);
+        if(!folder.exists()){
+            folder.mkdirs();
+        }
+        try {
+            ModelFormat.save(model, Path.of(testCasePath, BINARY_MODEL));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ModelFormat.hash(model);
+    }
 }
@@ -18,15 +18,21 @@
 package org.oristool.eulero.examples;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.oristool.eulero.evaluation.heuristics.AnalysisBudget;
 import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
+import org.oristool.eulero.evaluation.heuristics.BudgetedAnalysis;
 import org.oristool.eulero.evaluation.heuristics.EvaluationResult;
 import org.oristool.eulero.modelgeneration.RandomGenerator;
+import org.oristool.eulero.modelgeneration.blocksettings.BlockTypeSetting;
 import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.suite.SuiteRunner;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 public class GenerateModelSuiteAndEvaluate {
     public static void main(String[] args) throws Exception {
@@ -41,30 +47,47 @@ public class GenerateModelSuiteAndEvaluate {
             suiteDirectoryName = ModelSuiteGenerationParameter.directoryPath;
         }
 
+        SuiteRunner runner = new SuiteRunner(Path.of(suiteDirectoryName), ModelSuiteGenerationParameter.threads);
+        runner.setTimeBudget(ModelSuiteGenerationParameter.timeBudget);
+        runner.setBudget(ModelSuiteGenerationParameter.budget());
 
-        for(ArrayList settings: ModelSuiteGenerationParameter.SETTINGS()){
+        // seeds are drawn here, in case order, so models do not depend on scheduling
+        SplittableRandom seeds = new SplittableRandom(ModelSuiteGenerationParameter.seed);
+
+        for(ArrayList<Set<BlockTypeSetting>> settings: ModelSuiteGenerationParameter.SETTINGS()){
             for(int i = 0; i < ModelSuiteGenerationParameter.casePerSetting; i++){
-                String directory = suiteDirectoryName + "/" + "depth_" + settings.size();
+                String id = "depth_" + settings.size() + "/model_" + String.format("%02d" , i);
+                long seed = seeds.nextLong();
 
-                RandomGenerator randomGenerator = new RandomGenerator(Set.of(Pair.of(List.of(ModelSuiteGenerationParameter.feature), List.of(BigDecimal.ONE))), settings);
-                Activity model = randomGenerator.generateBlock(settings.size());
+                runner.add(id, () -> {
+                    RandomGenerator randomGenerator = new RandomGenerator(Set.of(Pair.of(List.of(ModelSuiteGenerationParameter.feature), List.of(BigDecimal.ONE))), settings);
+                    Activity model = randomGenerator.generateBlock(settings.size(), seed);
+                    ExampleHelper.jaxbObjectToXML(model, suiteDirectoryName + "/" + id);
+                    return model;
+                }, GenerateModelSuiteAndEvaluate::evaluate);
+            }
+        }
 
-                ExampleHelper.jaxbObjectToXML(model, directory + "/model_" + String.format("%02d" , i));
-                AnalysisHeuristicsStrategy strategy = ModelSuiteGenerationParameter.strategy.get(0);
-                double[] cdf = strategy.analyze(model, model.max().add(BigDecimal.ONE), model.getFairTimeTick());
+        for(SuiteRunner.Outcome outcome: runner.run()){
+            System.out.println(outcome);
+        }
+    }
 
-                EvaluationResult result = new EvaluationResult(
-                        "Test",
-                        cdf,
-                        0,
-                        cdf.length,
-                        model.getFairTimeTick().doubleValue(),
-                        0
-                );
+    static EvaluationResult evaluate(Activity model, AnalysisBudget budget){
+        AnalysisHeuristicsStrategy strategy = ModelSuiteGenerationParameter.strategy.get(0);
+        if (budget != null)
+            return new BudgetedAnalysis(strategy, budget).evaluate("Test", model, model.max().add(BigDecimal.ONE), model.getFairTimeTick());
 
-                ExampleHelper.storeResults(result, directory + "/model_" + String.format("%02d" , i));
-            }
-        }
+        long start = System.nanoTime();
+        double[] cdf = strategy.analyze(model, model.max().add(BigDecimal.ONE), model.getFairTimeTick());
 
+        return new EvaluationResult(
+                "Test",
+                cdf,
+                0,
+                cdf.length,
+                model.getFairTimeTick().doubleValue(),
+                System.nanoTime() - start
+        );
     }
 }
@@ -18,12 +18,14 @@
 package org.oristool.eulero.examples;
 
 import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
+import org.oristool.eulero.evaluation.heuristics.AnalysisBudget;
 import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristics1;
 import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
 import org.oristool.eulero.modelgeneration.blocksettings.*;
 import org.oristool.models.stpn.trees.StochasticTransitionFeature;
 
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +34,13 @@ import java.util.Set;
 public class ModelSuiteGenerationParameter {
     public static final String directoryPath = System.getProperty("user.dir") + "/model_suite";
     public static final int casePerSetting = 10;
+    public static final long seed = 42;
+    public static final int threads = Runtime.getRuntime().availableProcessors();
+    public static final Duration timeBudget = Duration.ofMinutes(30);
+    // analyses degrade before the time budget of the case interrupts them
+    public static final Duration analysisTime = Duration.ofMinutes(25);
+    public static final Duration blockTime = Duration.ofMinutes(5);
+    public static final long maxHeap = 16L << 30;
     public static final StochasticTransitionFeature feature = StochasticTransitionFeature.newUniformInstance("0", "1");
     public static final List<AnalysisHeuristicsStrategy> strategy = List.of(
             new AnalysisHeuristics1(
@@ -41,6 +50,14 @@ public class ModelSuiteGenerationParameter {
             )
     );
 
+    public static AnalysisBudget budget(){
+        AnalysisBudget budget = new AnalysisBudget();
+        budget.setAnalysisTime(analysisTime);
+        budget.setBlockTime(blockTime);
+        budget.setMaxHeap(maxHeap);
+        return budget;
+    }
+
     public static ArrayList<ArrayList<Set<BlockTypeSetting>>> SETTINGS(){
         ArrayList<ArrayList<Set<BlockTypeSetting>>> settings = new ArrayList<>();
         settings.add(settings1());
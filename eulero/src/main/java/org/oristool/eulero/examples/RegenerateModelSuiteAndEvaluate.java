@@ -2,13 +2,12 @@ package org.oristool.eulero.examples;
 
 import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
 import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristics1;
-import org.oristool.eulero.evaluation.heuristics.AnalysisHeuristicsStrategy;
-import org.oristool.eulero.evaluation.heuristics.EvaluationResult;
 import org.oristool.eulero.modeling.*;
+import org.oristool.eulero.suite.SuiteRunner;
 
 import java.io.File;
-import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.Objects;
 
 public class RegenerateModelSuiteAndEvaluate {
@@ -24,34 +23,28 @@ public class RegenerateModelSuiteAndEvaluate {
             suiteDirectoryName = ModelSuiteGenerationParameter.directoryPath;
         }
 
-        File modelSuiteReplica = new File(suiteDirectoryName + "_replica");
-        if(!modelSuiteReplica.exists()){
-            modelSuiteReplica.mkdirs();
-        }
-
         File modelSuite = new File(suiteDirectoryName);
+        SuiteRunner runner = new SuiteRunner(Path.of(suiteDirectoryName + "_replica"), ModelSuiteGenerationParameter.threads);
+        runner.setTimeBudget(ModelSuiteGenerationParameter.timeBudget);
+        runner.setBudget(ModelSuiteGenerationParameter.budget());
 
         for(File depth: Objects.requireNonNull(modelSuite.listFiles(File::isDirectory))){
-            String depthReplicaPath = modelSuiteReplica.getAbsolutePath() + "/" + depth.getName();
             for(File modelFolder: Objects.requireNonNull(depth.listFiles(File::isDirectory))){
-                Activity loadedModel = ExampleHelper.jaxbXmlFileToObject(modelFolder.getAbsolutePath() + "/structure_tree.xml");
-                String modelReplicaPath = depthReplicaPath + '/' + modelFolder.getName();
-                ExampleHelper.jaxbObjectToXML(loadedModel, modelReplicaPath);
-
-                AnalysisHeuristicsStrategy strategy = ModelSuiteGenerationParameter.strategy.get(0);
-                double[] cdf = strategy.analyze(loadedModel, loadedModel.max().add(BigDecimal.ONE), loadedModel.getFairTimeTick());
-
-                EvaluationResult result = new EvaluationResult(
-                        "Test",
-                        cdf,
-                        0,
-                        cdf.length,
-                        loadedModel.getFairTimeTick().doubleValue(),
-                        0
-                );
-
-                ExampleHelper.storeResults(result, modelReplicaPath);
+                String id = depth.getName() + "/" + modelFolder.getName();
+                runner.add(id, () -> {
+                    // binary models keep their features, older suites only have the XML
+                    File binaryModel = new File(modelFolder, ExampleHelper.BINARY_MODEL);
+                    Activity loadedModel = binaryModel.exists()
+                            ? ExampleHelper.binaryFileToObject(binaryModel.getAbsolutePath())
+                            : ExampleHelper.jaxbXmlFileToObject(modelFolder.getAbsolutePath() + "/" + ExampleHelper.XML_MODEL);
+                    ExampleHelper.jaxbObjectToXML(loadedModel, suiteDirectoryName + "_replica/" + id);
+                    return loadedModel;
+                }, GenerateModelSuiteAndEvaluate::evaluate);
             }
         }
+
+        for(SuiteRunner.Outcome outcome: runner.run()){
+            System.out.println(outcome);
+        }
     }
 }
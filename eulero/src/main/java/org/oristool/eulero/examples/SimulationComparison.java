@@ -0,0 +1,92 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.examples;
+
+import com.google.common.collect.Lists;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.DAG;
+import org.oristool.eulero.modeling.Simple;
+import org.oristool.eulero.modeling.XOR;
+import org.oristool.eulero.simulation.MonteCarloSimulator;
+import org.oristool.models.stpn.TransientSolution;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Compares the STPN simulation of {@link Activity#simulate(String, String, int)}
+ * against the compiled {@link MonteCarloSimulator} on a DAG with nested
+ * SEQ, AND and XOR blocks.
+ */
+public class SimulationComparison {
+    public static void main(String[] args) {
+        StochasticTransitionFeature feature = StochasticTransitionFeature.newUniformInstance("0", "1");
+
+        Activity Q = DAG.sequence("Q",
+                DAG.forkJoin("Q1", new Simple("Q1A", feature), new Simple("Q1B", feature)),
+                DAG.forkJoin("Q2", new Simple("Q2A", feature), new Simple("Q2B", feature))
+        );
+        Activity R = DAG.forkJoin("R",
+                new XOR("R1",
+                        List.of(new Simple("R1A", feature), new Simple("R1B", feature)),
+                        List.of(0.3, 0.7)),
+                DAG.sequence("R2", new Simple("R2A", feature), new Simple("R2B", feature))
+        );
+        Activity S = DAG.sequence("S",
+                new Simple("SA", feature), new Simple("SB", feature), new Simple("SC", feature));
+
+        DAG top = DAG.empty("TOP");
+        Q.addPrecondition(top.begin());
+        R.addPrecondition(top.begin());
+        S.addPrecondition(R, Q);
+        top.end().addPrecondition(S);
+        top.setMin(top.getMinBound(top.end()));
+        top.setMax(top.getMaxBound(top.end()));
+        top.setActivities(Lists.newArrayList(Q, R, S));
+
+        String timeLimit = top.max().toString();
+        String step = "0.01";
+        int[] runs = new int[] { 1000, 10000, 100000 };
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("runs, stpn [ms], compiled [ms], compiled " + threads + " threads [ms], max cdf diff");
+        for (int n : runs) {
+            long start = System.nanoTime();
+            TransientSolution<?, ?> stpn = top.simulate(timeLimit, step, n);
+            double stpnTime = (System.nanoTime() - start) / 1e6;
+
+            MonteCarloSimulator simulator = new MonteCarloSimulator(top, new BigDecimal(timeLimit), new BigDecimal(step));
+            start = System.nanoTime();
+            double[] compiled = simulator.simulate(n, 1, 42L);
+            double compiledTime = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            simulator.simulate(n, threads, 42L);
+            double parallelTime = (System.nanoTime() - start) / 1e6;
+
+            double maxDiff = 0;
+            for (int t = 0; t < compiled.length; t++) {
+                maxDiff = Math.max(maxDiff, Math.abs(stpn.getSolution()[t][0][0] - compiled[t]));
+            }
+
+            System.out.println(String.format("%d, %.1f, %.1f, %.1f, %.4f",
+                    n, stpnTime, compiledTime, parallelTime, maxDiff));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.examples;
+
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.DAG;
+import org.oristool.eulero.modeling.Simple;
+import org.oristool.eulero.modeling.XOR;
+import org.oristool.eulero.simulation.MonteCarloSimulator;
+import org.oristool.eulero.simulation.SimulationEstimate;
+import org.oristool.eulero.simulation.VarianceReduction;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Reports the variance reduction of antithetic variates, branch importance
+ * sampling and common random numbers on a workflow whose tail is driven by a
+ * rare XOR branch.
+ */
+public class VarianceReductionComparison {
+    public static void main(String[] args) {
+        BigDecimal timeLimit = BigDecimal.valueOf(12);
+        BigDecimal step = BigDecimal.valueOf(0.01);
+        int runs = 100000;
+
+        MonteCarloSimulator base = new MonteCarloSimulator(model("1"), timeLimit, step);
+        MonteCarloSimulator variant = new MonteCarloSimulator(model("1.2"), timeLimit, step);
+        int tail = base.samples() - 1;
+
+        SimulationEstimate antithetic = VarianceReduction.antithetic(base, runs / 2, 42L);
+        SimulationEstimate importance = VarianceReduction.branchImportance(base, runs, 42L);
+        SimulationEstimate common = VarianceReduction.commonRandomNumbers(variant, base, runs, 42L);
+
+        System.out.println("method, F(T), overall reduction, reduction at T");
+        System.out.println(String.format("antithetic, %.6f, %.2f, %.2f", antithetic.values()[tail],
+                antithetic.varianceReduction(), antithetic.varianceReduction(tail)));
+        System.out.println(String.format("branch importance, %.6f, %.2f, %.2f", importance.values()[tail],
+                importance.varianceReduction(), importance.varianceReduction(tail)));
+        System.out.println(String.format("common random numbers (difference), %.6f, %.2f, %.2f", common.values()[tail],
+                common.varianceReduction(), common.varianceReduction(tail)));
+    }
+
+    private static Activity model(String slowMax) {
+        StochasticTransitionFeature feature = StochasticTransitionFeature.newUniformInstance("0", slowMax);
+
+        return DAG.sequence("TOP",
+                DAG.forkJoin("A", new Simple("A1", feature), new Simple("A2", feature)),
+                new XOR("B",
+                        List.of(
+                                new Simple("FAST", StochasticTransitionFeature.newUniformInstance("0", "1")),
+                                new Simple("SLOW", StochasticTransitionFeature.newUniformInstance("5", "10"))
+                        ),
+                        List.of(0.99, 0.01)),
+                new Simple("C", feature)
+        );
+    }
+}
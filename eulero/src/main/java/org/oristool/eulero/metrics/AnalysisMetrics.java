@@ -0,0 +1,94 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.metrics;
+
+/**
+ * Receives measurements of an analysis: counters, timers and distributions
+ * of values, identified by name.
+ *
+ * Implementations must be thread-safe, since blocks may be analyzed in
+ * parallel. The names used by the analysis are the constants of this class;
+ * {@link #NOOP} discards everything.
+ */
+public abstract class AnalysisMetrics {
+    /**
+     * Prefix of the timers of the analysis of each block, followed by its
+     * type ({@code SIMPLE}, {@code SEQ}, {@code AND}, {@code XOR},
+     * {@code DAG}); times include nested blocks.
+     */
+    public static final String NODE_TIME = "analysis.time.";
+    public static final String TREE_TRANSIENT = "solver.treeTransient";
+    public static final String REG_TRANSIENT = "solver.regTransient";
+    public static final String SIMULATION = "solver.simulation";
+    /**
+     * Distribution of the regenerations reached by each RegTransient
+     * invocation.
+     */
+    public static final String REGENERATIONS = "solver.regTransient.regenerations";
+    /**
+     * Distribution of the reachable markings found by each TreeTransient
+     * invocation.
+     */
+    public static final String TREE_STATES = "solver.treeTransient.states";
+    /**
+     * Distribution of the states of the class graphs enumerated to compute
+     * C, including enumerations stopped at a threshold.
+     */
+    public static final String CLASS_GRAPH_SIZE = "classGraph.size";
+    public static final String APPROXIMATION_TIME = "approximation.time";
+    public static final String CACHE_HITS = "cache.hits";
+    public static final String CACHE_MISSES = "cache.misses";
+    /**
+     * Distribution of the nesting depth of analyzed sub-blocks, 1 for the
+     * blocks of the analyzed model.
+     */
+    public static final String RECURSION_DEPTH = "recursion.depth";
+    /**
+     * Blocks solved with a cheaper path after exceeding their budget.
+     */
+    public static final String DEGRADATIONS = "budget.degradations";
+
+    public static final AnalysisMetrics NOOP = new NoOpMetrics();
+
+    /**
+     * Adds to a counter.
+     */
+    public abstract void count(String name, long delta);
+
+    /**
+     * Records an occurrence of a timed operation.
+     */
+    public abstract void time(String name, long nanos);
+
+    /**
+     * Records a value of a distribution.
+     */
+    public abstract void record(String name, double value);
+
+    public void increment(String name) {
+        count(name, 1);
+    }
+
+    /**
+     * Whether measurements are kept: callers can skip computing expensive
+     * values otherwise.
+     */
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.metrics;
+
+import org.oristool.eulero.simulation.QuantileSketch;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps measurements in memory, for tests, benchmarks and reports.
+ *
+ * Timers and distributions keep their count, sum, extremes and a
+ * {@link QuantileSketch}; times are stored in nanoseconds.
+ */
+public class InMemoryMetrics extends AnalysisMetrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Distribution> timers = new ConcurrentHashMap<>();
+    private final Map<String, Distribution> distributions = new ConcurrentHashMap<>();
+
+    /**
+     * Summary of recorded values.
+     */
+    public static class Distribution {
+        private final QuantileSketch sketch = new QuantileSketch();
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        synchronized void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sketch.add(Math.max(value, 0));
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized double sum() {
+            return sum;
+        }
+
+        public synchronized double mean() {
+            return count > 0 ? sum / count : Double.NaN;
+        }
+
+        public synchronized double min() {
+            return min;
+        }
+
+        public synchronized double max() {
+            return max;
+        }
+
+        public synchronized double quantile(double q) {
+            return sketch.quantile(q);
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0)
+                return "count=0";
+            return String.format("count=%d mean=%.4g min=%.4g p50=%.4g p99=%.4g max=%.4g",
+                    count, mean(), min, sketch.quantile(0.5), sketch.quantile(0.99), max);
+        }
+    }
+
+    @Override
+    public void count(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    public void time(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Distribution()).add(nanos);
+    }
+
+    @Override
+    public void record(String name, double value) {
+        distributions.computeIfAbsent(name, k -> new Distribution()).add(value);
+    }
+
+    public long counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Timer with the given name, or an empty one.
+     */
+    public Distribution timer(String name) {
+        return timers.getOrDefault(name, new Distribution());
+    }
+
+    /**
+     * Distribution with the given name, or an empty one.
+     */
+    public Distribution distribution(String name) {
+        return distributions.getOrDefault(name, new Distribution());
+    }
+
+    public void clear() {
+        counters.clear();
+        timers.clear();
+        distributions.clear();
+    }
+
+    /**
+     * One line per measurement, sorted by name; times in milliseconds.
+     */
+    public String report() {
+        StringBuilder b = new StringBuilder();
+        new TreeMap<>(counters).forEach((name, counter) -> b.append(name).append(' ').append(counter.sum()).append('\n'));
+        new TreeMap<>(timers).forEach((name, timer) -> {
+            synchronized (timer) {
+                b.append(name).append(String.format(" count=%d total=%.3fms mean=%.3fms max=%.3fms\n",
+                        timer.count, timer.sum / 1e6, timer.mean() / 1e6, timer.max / 1e6));
+            }
+        });
+        new TreeMap<>(distributions).forEach((name, distribution) -> b.append(name).append(' ').append(distribution).append('\n'));
+        return b.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
@@ -0,0 +1,102 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Emits measurements as Java Flight Recorder events, so that analyses can be
+ * profiled in production without output; events are committed only while a
+ * recording enables them.
+ *
+ * Timers are emitted when the operation ends, with its duration as a field.
+ */
+public class JfrMetrics extends AnalysisMetrics {
+
+    @Name("org.oristool.eulero.Counter")
+    @Label("Eulero Counter")
+    @Category({"Eulero", "Analysis"})
+    @StackTrace(false)
+    static class CounterEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Delta")
+        long delta;
+    }
+
+    @Name("org.oristool.eulero.Timer")
+    @Label("Eulero Timer")
+    @Category({"Eulero", "Analysis"})
+    @StackTrace(false)
+    static class TimerEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("org.oristool.eulero.Value")
+    @Label("Eulero Value")
+    @Category({"Eulero", "Analysis"})
+    @StackTrace(false)
+    static class ValueEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Value")
+        double value;
+    }
+
+    @Override
+    public void count(String name, long delta) {
+        CounterEvent event = new CounterEvent();
+        if (event.isEnabled()) {
+            event.name = name;
+            event.delta = delta;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void time(String name, long nanos) {
+        TimerEvent event = new TimerEvent();
+        if (event.isEnabled()) {
+            event.name = name;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void record(String name, double value) {
+        ValueEvent event = new ValueEvent();
+        if (event.isEnabled()) {
+            event.name = name;
+            event.value = value;
+            event.commit();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return FlightRecorder.isAvailable();
+    }
+}
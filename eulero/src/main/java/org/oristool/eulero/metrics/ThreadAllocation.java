@@ -0,0 +1,41 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bytes allocated by the calling thread, for measurements taken as the
+ * difference of two readings.
+ */
+public final class ThreadAllocation {
+    private static final ThreadMXBean BEAN = ManagementFactory.getThreadMXBean();
+
+    private ThreadAllocation() {}
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 on JVMs not
+     * measuring allocations.
+     */
+    public static long bytes() {
+        if (BEAN instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+}
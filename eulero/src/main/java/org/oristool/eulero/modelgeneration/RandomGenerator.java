@@ -27,30 +27,64 @@ import java.math.BigInteger;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Generates random activity trees from per-level block settings.
+ *
+ * With {@link #generateBlock(int, long)}, models are a function of the seed:
+ * each sub-block draws from its own stream split from the stream of its
+ * parent, in a fixed order, so generating models on several threads gives
+ * the same results as generating them one at a time. Settings of a level are
+ * drawn in order of type and probability, features in the order given to the
+ * constructor (which must be a {@link List} or a single feature for the order
+ * to be reproducible).
+ */
 public class RandomGenerator {
-    private Set<Pair<List<StochasticTransitionFeature>, List<BigDecimal>>> features;
-    private ArrayList<Set<BlockTypeSetting>> settings;
+    private static final Comparator<BlockTypeSetting> SETTING_ORDER =
+            Comparator.comparing(BlockTypeSetting::getType).thenComparingDouble(BlockTypeSetting::getProbability);
+
+    private List<Pair<List<StochasticTransitionFeature>, List<BigDecimal>>> features;
+    private ArrayList<List<BlockTypeSetting>> settings;
 
     public RandomGenerator(StochasticTransitionFeature feature, ArrayList<Set<BlockTypeSetting>> settings){
-        this.settings = settings;
-        this.features = Set.of(Pair.of(List.of(feature), List.of(BigDecimal.ONE)));
+        this(List.of(Pair.of(List.of(feature), List.of(BigDecimal.ONE))), settings);
     }
     public RandomGenerator(Set<Pair<List<StochasticTransitionFeature>, List<BigDecimal>>> features, ArrayList<Set<BlockTypeSetting>> settings){
-        this.settings = settings;
-        this.features = features;
+        this(new ArrayList<>(features), settings);
+    }
+    public RandomGenerator(List<Pair<List<StochasticTransitionFeature>, List<BigDecimal>>> features, ArrayList<Set<BlockTypeSetting>> settings){
+        if (features.isEmpty())
+            throw new IllegalArgumentException("At least one feature is required");
+        this.features = List.copyOf(features);
+        this.settings = new ArrayList<>();
+        for (Set<BlockTypeSetting> levelSettings : settings) {
+            List<BlockTypeSetting> level = new ArrayList<>(levelSettings);
+            level.sort(SETTING_ORDER);
+            this.settings.add(level);
+        }
     }
 
     public Activity generateBlock(int depthLevel){
+        return generateBlock(depthLevel, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Generates a block determined by the given seed.
+     */
+    public Activity generateBlock(int depthLevel, long seed){
         int[] activityNameCounter = new int[1];
-        return generateBlock(depthLevel, activityNameCounter, "", "");
+        return generateBlock(depthLevel, new SplittableRandom(seed), activityNameCounter, "", "");
     }
 
     public Activity generateBlock(int depthLevel, int[] activityNameCounter, String simpleActivityPrefix,  String simpleActivitySuffix){
+        return generateBlock(depthLevel, new SplittableRandom(), activityNameCounter, simpleActivityPrefix, simpleActivitySuffix);
+    }
+
+    private Activity generateBlock(int depthLevel, SplittableRandom random, int[] activityNameCounter, String simpleActivityPrefix,  String simpleActivitySuffix){
         if(depthLevel > 0) {
-            Set<BlockTypeSetting> levelSetting = settings.get(settings.size() - depthLevel);
+            List<BlockTypeSetting> levelSetting = settings.get(settings.size() - depthLevel);
 
             //Choosing Block Type
-            double randomSample = Math.random();
+            double randomSample = random.nextDouble();
             double low = 0;
             double upp = 0;
             BlockTypeSetting chosenBlock = null;
@@ -66,12 +100,11 @@ public class RandomGenerator {
                 int minBreadthValue = ((WellNestedBlockSetting) chosenBlock).getMinimumBreadth();
                 int maxBreadthValue = ((WellNestedBlockSetting) chosenBlock).getMaximumBreadth();
                 minBreadthValue = maxBreadthValue;
-                Random rand = new Random();
-                int breadth = rand.nextInt((maxBreadthValue - minBreadthValue) + 1) + minBreadthValue;
+                int breadth = random.nextInt((maxBreadthValue - minBreadthValue) + 1) + minBreadthValue;
 
                 ArrayList<Activity> activities = new ArrayList<>();
                 for (int i = 0; i < breadth; i++) {
-                    activities.add(generateBlock(depthLevel - 1, activityNameCounter, simpleActivityPrefix, simpleActivitySuffix));
+                    activities.add(generateBlock(depthLevel - 1, random.split(), activityNameCounter, simpleActivityPrefix, simpleActivitySuffix));
                 }
 
                 if (chosenBlock instanceof ANDBlockSetting) {
@@ -100,16 +133,15 @@ public class RandomGenerator {
             if (chosenBlock instanceof DAGBlockSetting) {
                 StringBuilder name = new StringBuilder("DAG(");
                 ArrayList<ArrayList<Activity>> levels = new ArrayList<>();
-                Random rand = new Random();
-                int levelNumber = rand.nextInt((((DAGBlockSetting) chosenBlock).getMaximumLevels() - ((DAGBlockSetting) chosenBlock).getMinimumLevels()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumLevels();
+                int levelNumber = random.nextInt((((DAGBlockSetting) chosenBlock).getMaximumLevels() - ((DAGBlockSetting) chosenBlock).getMinimumLevels()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumLevels();
 
                 ArrayList<Activity> dagActivities = new ArrayList<>();
                 for(int i = 0; i < levelNumber; i++){
                     ArrayList<Activity> level = new ArrayList<>();
-                    int nodeNumber = rand.nextInt((((DAGBlockSetting) chosenBlock).getMaximumLevelBreadth() - ((DAGBlockSetting) chosenBlock).getMinimumLevelBreadth()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumLevelBreadth();
+                    int nodeNumber = random.nextInt((((DAGBlockSetting) chosenBlock).getMaximumLevelBreadth() - ((DAGBlockSetting) chosenBlock).getMinimumLevelBreadth()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumLevelBreadth();
 
                     for(int j = 0; j < nodeNumber; j++){
-                        Activity node = generateBlock(depthLevel - 1, activityNameCounter, simpleActivityPrefix, simpleActivitySuffix);
+                        Activity node = generateBlock(depthLevel - 1, random.split(), activityNameCounter, simpleActivityPrefix, simpleActivitySuffix);
                         name.append(node.name()).append(j != nodeNumber - 1 ? ", " : "");
                         level.add(node);
                         dagActivities.add(node);
@@ -150,10 +182,10 @@ public class RandomGenerator {
 
                     for(Activity act: nodes){
                         if(act.pre().isEmpty()){
-                            int maximumPredecessorNumber = rand.nextInt((((DAGBlockSetting) chosenBlock).getMaximumNodeConnection() - ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection();
+                            int maximumPredecessorNumber = random.nextInt((((DAGBlockSetting) chosenBlock).getMaximumNodeConnection() - ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection();
                             ArrayList<Activity> removed = new ArrayList<>();
                             for(int j = 0; j < maximumPredecessorNumber; j++){
-                                int nodeIndex = rand.nextInt(predecessors.size());
+                                int nodeIndex = random.nextInt(predecessors.size());
                                 act.addPrecondition(predecessors.get(nodeIndex));
                                 DAGEdge edge = new DAGEdge(predecessors.get(nodeIndex).name(), act.name());
                                 edges.add(edge);
@@ -163,10 +195,10 @@ public class RandomGenerator {
                         }
 
                         if(act.post().isEmpty()) {
-                            int maximumSuccessorNumber = rand.nextInt((((DAGBlockSetting) chosenBlock).getMaximumNodeConnection() - ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection();
+                            int maximumSuccessorNumber = random.nextInt((((DAGBlockSetting) chosenBlock).getMaximumNodeConnection() - ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection()) + 1) + ((DAGBlockSetting) chosenBlock).getMinimumNodeConnection();
                             ArrayList<Activity> removed = new ArrayList<>();
                             for (int j = 0; j < maximumSuccessorNumber; j++) {
-                                int nodeIndex = rand.nextInt(successors.size());
+                                int nodeIndex = random.nextInt(successors.size());
                                 successors.get(nodeIndex).addPrecondition(act);
                                 DAGEdge edge = new DAGEdge(act.name(), successors.get(nodeIndex).name());
                                 edges.add(edge);
@@ -187,9 +219,8 @@ public class RandomGenerator {
 
         //We reach the end of the tree --> generate an activity
         String name = simpleActivityPrefix + "A" + activityNameCounter[0]++ + simpleActivitySuffix;
-        List<Pair<List<StochasticTransitionFeature>, List<BigDecimal>>> myList = new ArrayList<>(this.features);
-        Collections.shuffle(myList);
-        return new Simple(name, new ArrayList<>(myList.get(0).getLeft()), new ArrayList<>(myList.get(0).getRight()));
+        Pair<List<StochasticTransitionFeature>, List<BigDecimal>> feature = features.get(random.nextInt(features.size()));
+        return new Simple(name, new ArrayList<>(feature.getLeft()), new ArrayList<>(feature.getRight()));
     }
 
 }
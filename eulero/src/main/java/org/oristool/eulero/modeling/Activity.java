@@ -21,11 +21,18 @@ import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import jakarta.xml.bind.annotation.*;
 import org.oristool.analyzer.graph.SuccessionGraph;
+import org.oristool.analyzer.log.AnalysisMonitor;
 import org.oristool.analyzer.log.NoOpLogger;
 import org.oristool.analyzer.state.State;
+import org.oristool.eulero.metrics.AnalysisMetrics;
+import org.oristool.eulero.simulation.CompletionHistogram;
+import org.oristool.eulero.simulation.ConfidenceBound;
+import org.oristool.eulero.simulation.MonteCarloSimulator;
 import org.oristool.models.pn.PetriStateFeature;
 import org.oristool.models.stpn.RewardRate;
 import org.oristool.models.stpn.TransientSolution;
@@ -57,6 +64,11 @@ import org.oristool.util.Pair;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 public abstract class Activity implements Serializable {
+    private static final AtomicLong MODIFICATIONS = new AtomicLong();
+    private static final AtomicLong EDGE_CHANGES = new AtomicLong();
+    // receives the sizes of the class graphs enumerated by each thread
+    private static final ThreadLocal<AnalysisMetrics> ENUMERATION_METRICS = ThreadLocal.withInitial(() -> AnalysisMetrics.NOOP);
+
     @XmlElements({
             @XmlElement(name = "EFT", type = Simple.class, required = true),
             @XmlElement(name = "EFT", type = SEQ.class, required = true),
@@ -87,6 +99,28 @@ public abstract class Activity implements Serializable {
 
     private BigInteger simplifiedQ;
 
+    @XmlTransient
+    private volatile long modified = MODIFICATIONS.incrementAndGet();
+
+    @XmlTransient
+    private volatile long edgesModified = EDGE_CHANGES.incrementAndGet();
+
+    /**
+     * Global modification count and {@link #lastModified()} computed at that
+     * count, replaced together.
+     */
+    @XmlTransient
+    private volatile long[] lastModifiedMemo;
+
+    @XmlTransient
+    private transient volatile StructuralHash.Stamped structuralHash;
+
+    @XmlTransient
+    private long cStamp = -1;
+
+    @XmlTransient
+    private long qStamp = -1;
+
     @XmlTransient
     private List<Activity> pre = new ArrayList<>();
 
@@ -112,6 +146,7 @@ public abstract class Activity implements Serializable {
 
     public void setActivities( List<Activity> activities){
         this.activities = activities;
+        markModified();
     }
     
     /**
@@ -133,6 +168,7 @@ public abstract class Activity implements Serializable {
      */
     public void setPre(List<Activity> pre) {
         this.pre = pre;
+        markEdgesModified();
     }
 
     /**
@@ -140,6 +176,7 @@ public abstract class Activity implements Serializable {
      */
     public void setPost(List<Activity> post) {
         this.post = post;
+        markEdgesModified();
     }
 
     /**
@@ -157,34 +194,192 @@ public abstract class Activity implements Serializable {
         return max;
     }
 
+    /**
+     * Complexity measures are cached, and recomputed only after a change to
+     * this activity or to the activities nested in it.
+     */
     public BigInteger C() {
-        return !Objects.isNull(C) ? C : computeC(false);
+        refreshC();
+        return C;
     }
 
     public BigInteger Q() {
-        return !Objects.isNull(Q) ? Q : computeQ(false);
+        refreshQ();
+        return Q;
     }
 
     public BigInteger simplifiedC() {
-        return !Objects.isNull(simplifiedC) ? simplifiedC : computeC(true);
+        refreshC();
+        return simplifiedC;
     }
 
     public BigInteger simplifiedQ() {
-        return !Objects.isNull(simplifiedQ) ? simplifiedQ : computeQ(true);
+        refreshQ();
+        return simplifiedQ;
     }
 
+    /**
+     * Brings the complexity measures up to date, recomputing them only if the
+     * activity changed since they were last computed.
+     */
     public void resetComplexityMeasure(){
-        computeC(true);
-        computeC(false);
-        computeQ(true);
-        computeQ(false);
+        refreshC();
+        refreshQ();
+    }
+
+    private boolean isCUpToDate() {
+        return !Objects.isNull(C) && !Objects.isNull(simplifiedC) && cStamp >= lastModified();
+    }
+
+    private void refreshC() {
+        if (!isCUpToDate()) {
+            computeC(false);
+            // computing C normalizes support bounds of nested activities
+            cStamp = lastModified();
+        }
+    }
+
+    private void refreshQ() {
+        if (Objects.isNull(Q) || Objects.isNull(simplifiedQ) || qStamp < lastModified()) {
+            computeQ(false);
+            qStamp = lastModified();
+        }
+    }
+
+    /**
+     * Upper bound on C (or on the simplified C) derived from the structure of
+     * the activity, without enumerating its class graph. When the measure is
+     * already computed and up to date, its exact value is returned.
+     */
+    public BigInteger upperBoundC(boolean simplified) {
+        if (isCUpToDate())
+            return simplified ? simplifiedC : C;
+
+        return structuralUpperBoundC(simplified);
+    }
+
+    /**
+     * Structural upper bound on C; by default, the exact value.
+     */
+    protected BigInteger structuralUpperBoundC(boolean simplified) {
+        return simplified ? simplifiedC() : C();
+    }
+
+    /**
+     * Checks whether C (or the simplified C) is greater than the threshold.
+     *
+     * The structural upper bound is tried first; when it is not conclusive,
+     * the class graph is enumerated only until a state above the threshold
+     * is found.
+     */
+    public boolean exceedsC(BigInteger threshold, boolean simplified) {
+        if (upperBoundC(simplified).compareTo(threshold) <= 0)
+            return false;
+
+        if (isCUpToDate() || nested().isEmpty())
+            return (simplified ? simplifiedC() : C()).compareTo(threshold) > 0;
+
+        if (enumerateC(threshold, simplified) == null)
+            return true;
+
+        cStamp = lastModified();
+        return false;
+    }
+
+    /**
+     * Records a change to this activity, invalidating the cached complexity
+     * measures of the activity and of the blocks that contain it. Structural
+     * setters call it automatically; it must be called explicitly after
+     * modifying the list returned by {@link #activities()}.
+     */
+    public final void markModified() {
+        modified = MODIFICATIONS.incrementAndGet();
+        // invalidates memos of lastModified() taken before the stamp was stored
+        MODIFICATIONS.incrementAndGet();
+    }
+
+    /**
+     * Stamp of the latest change to any activity.
+     */
+    static long currentModification() {
+        return MODIFICATIONS.get();
+    }
+
+    /**
+     * Records a change to the pre or post list of this activity, which is
+     * also a change to the activity.
+     */
+    private void markEdgesModified() {
+        edgesModified = EDGE_CHANGES.incrementAndGet();
+        // as in markModified, for checks that read the count first
+        EDGE_CHANGES.incrementAndGet();
+        markModified();
+    }
+
+    /**
+     * Stamp of the latest change to the edges of any activity.
+     */
+    static long currentEdgeChange() {
+        return EDGE_CHANGES.get();
+    }
+
+    /**
+     * Stamp of the latest change to the edges of this activity.
+     */
+    final long edgeChange() {
+        return edgesModified;
+    }
+
+    /**
+     * Stamp of the latest change to this activity or to the activities nested
+     * in it.
+     *
+     * The nested activities are visited again only after a change to any
+     * activity, so repeated calls on an unchanged model take constant time.
+     */
+    public final long lastModified() {
+        long count = MODIFICATIONS.get();
+        long[] memo = lastModifiedMemo;
+        if (memo != null && memo[0] == count)
+            return memo[1];
+
+        long stamp = latestModification();
+        lastModifiedMemo = new long[] { count, stamp };
+        return stamp;
+    }
+
+    /**
+     * Computes {@link #lastModified()} from the stamps of this activity and
+     * of the activities nested in it.
+     */
+    protected long latestModification() {
+        long stamp = modified;
+        for (Activity nested : nested()) {
+            stamp = Math.max(stamp, nested.lastModified());
+        }
+        return stamp;
+    }
+
+    /**
+     * Structural hash as last computed, with the stamp it was computed at.
+     */
+    StructuralHash.Stamped structuralHash() {
+        return structuralHash;
+    }
+
+    void setStructuralHash(StructuralHash.Stamped structuralHash) {
+        this.structuralHash = structuralHash;
     }
 
     public void setMin(BigDecimal min) {
+        if (Objects.isNull(this.min) || Objects.isNull(min) ? this.min != min : this.min.compareTo(min) != 0)
+            markModified();
         this.min = min;
     }
 
     public void setMax(BigDecimal max) {
+        if (Objects.isNull(this.max) || Objects.isNull(max) ? this.max != max : this.max.compareTo(max) != 0)
+            markModified();
         this.max = max;
     }
 
@@ -205,13 +400,7 @@ public abstract class Activity implements Serializable {
     }
 
     public BigDecimal getFairTimeTick(){
-        double aux = this.max().doubleValue();
-        int mag = 1;
-        while (aux > 10) {
-            mag = mag * 10;
-            aux = aux / 10;
-        }
-        return BigDecimal.valueOf(mag * Math.pow(10, -2));
+        return TimeGrid.fairStep(this.max().doubleValue());
     }
 
     /** Activities that are part of this one */
@@ -233,6 +422,30 @@ public abstract class Activity implements Serializable {
     public abstract Activity copyRecursive(String suffix);
 
     public BigInteger computeC(boolean getSimplified){
+        return enumerateC(null, getSimplified);
+    }
+
+    /**
+     * Runs an operation, recording in {@link AnalysisMetrics#CLASS_GRAPH_SIZE}
+     * the size of the class graphs enumerated by the calling thread to
+     * compute C meanwhile.
+     */
+    public static <T> T withMetrics(AnalysisMetrics metrics, Supplier<T> operation) {
+        AnalysisMetrics previous = ENUMERATION_METRICS.get();
+        ENUMERATION_METRICS.set(metrics);
+        try {
+            return operation.get();
+        } finally {
+            ENUMERATION_METRICS.set(previous);
+        }
+    }
+
+    /**
+     * Computes C and simplified C over the class graph of the TPN. If a
+     * threshold is given, the enumeration stops as soon as a marking exceeds
+     * it (on C or simplified C, as selected) and {@code null} is returned.
+     */
+    private BigInteger enumerateC(BigInteger threshold, boolean getSimplified){
         //System.out.println("Calcolo C");
 
         long time = System.nanoTime();
@@ -249,9 +462,42 @@ public abstract class Activity implements Serializable {
         builder.markRegenerations(true);
         builder.excludeZeroProb(true);
 
+        boolean[] exceeded = new boolean[] { false };
+        if (threshold != null) {
+            // timed transitions with their input places and contribution to C
+            List<Transition> timed = new ArrayList<>();
+            List<List<Place>> inputs = new ArrayList<>();
+            List<BigInteger> weights = new ArrayList<>();
+            for (Transition t : pn.getTransitions()) {
+                if (!t.getFeature(TimedTransitionFeature.class).isImmediate()) {
+                    List<Place> places = new ArrayList<>();
+                    for (Precondition p : pn.getPreconditions(t))
+                        places.add(p.getPlace());
+                    timed.add(t);
+                    inputs.add(places);
+                    weights.add(getSimplified ? BigInteger.ONE : t.getFeature(ConcurrencyTransitionFeature.class).getC());
+                }
+            }
+
+            builder.stopOn(marking -> {
+                if (!exceeded[0]) {
+                    BigInteger value = BigInteger.ZERO;
+                    for (int i = 0; i < timed.size(); i++) {
+                        if (inputs.get(i).stream().allMatch(p -> marking.getTokens(p) > 0))
+                            value = value.add(weights.get(i));
+                    }
+                    exceeded[0] = value.compareTo(threshold) > 0;
+                }
+                return exceeded[0];
+            });
+        }
+
         TimedAnalysis analysis = builder.build();
 
         SuccessionGraph graph = analysis.compute(pn, m);
+        ENUMERATION_METRICS.get().record(AnalysisMetrics.CLASS_GRAPH_SIZE, graph.getStates().size());
+        if (exceeded[0])
+            return null;
 
         // Get C
         BigInteger maxC = BigInteger.ZERO;
@@ -314,6 +560,8 @@ public abstract class Activity implements Serializable {
                 throw new IllegalArgumentException(this + " already present in " + other);
             pre.add(other);
             other.post.add(this);
+            markEdgesModified();
+            other.markEdgesModified();
         }
     }
        
@@ -326,6 +574,8 @@ public abstract class Activity implements Serializable {
             throw new IllegalArgumentException(other + " not present in " + this);
         if (!other.post.remove(this))
             throw new IllegalArgumentException(this + " not present in " + other);
+        markEdgesModified();
+        other.markEdgesModified();
     }
     
     /**
@@ -349,7 +599,7 @@ public abstract class Activity implements Serializable {
      * if the visit is interrupted by the observer.
      */
     public final boolean dfs(boolean pre, DFSObserver observer) {
-        Set<Activity> opened = new HashSet<>();
+        Set<Activity> opened = Collections.newSetFromMap(new IdentityHashMap<>());
         Deque<Activity> open = new ArrayDeque<>();
         Deque<Iterator<Activity>> openAdj = new ArrayDeque<>();
 
@@ -549,6 +799,21 @@ public abstract class Activity implements Serializable {
     
     public TransientSolution<DeterministicEnablingState, RewardRate> 
             analyze(String timeBound, String timeStep, String error) {
+        return analyze(timeBound, timeStep, error, AnalysisMetrics.NOOP);
+    }
+
+    public TransientSolution<DeterministicEnablingState, RewardRate>
+            analyze(String timeBound, String timeStep, String error, AnalysisMetrics metrics) {
+        return analyze(timeBound, timeStep, error, metrics, null);
+    }
+
+    /**
+     * Regenerative transient analysis of the STPN of the activity, timed in
+     * {@link AnalysisMetrics#REG_TRANSIENT}. The analysis stops early, with
+     * a partial solution, when the monitor (if any) requests it.
+     */
+    public TransientSolution<DeterministicEnablingState, RewardRate>
+            analyze(String timeBound, String timeStep, String error, AnalysisMetrics metrics, AnalysisMonitor monitor) {
         
         // input data
         BigDecimal bound = new BigDecimal(timeBound);
@@ -571,13 +836,15 @@ public abstract class Activity implements Serializable {
         builder.timeStep(step);
         builder.greedyPolicy(bound, epsilon);
         builder.markingFilter(MarkingCondition.fromString(cond));
+        if (monitor != null)
+            builder.monitor(monitor);
 
         RegTransient analysis = builder.build();
         long start = System.nanoTime(); 
         TransientSolution<DeterministicEnablingState, Marking> probs =
                 analysis.compute(pn, m);
-        /*System.out.println(String.format("Analysis took %.3f seconds",
-                (System.nanoTime() - start)/1e9));*/
+        metrics.time(AnalysisMetrics.REG_TRANSIENT, System.nanoTime() - start);
+        metrics.record(AnalysisMetrics.REGENERATIONS, probs.getRegenerations().size());
 
         // evaluate reward
         return TransientSolution.computeRewards(false, probs, 
@@ -586,6 +853,21 @@ public abstract class Activity implements Serializable {
 
     public TransientSolution<Marking, RewardRate>
             forwardAnalyze(String timeBound, String timeStep, String error) {
+        return forwardAnalyze(timeBound, timeStep, error, AnalysisMetrics.NOOP);
+    }
+
+    public TransientSolution<Marking, RewardRate>
+            forwardAnalyze(String timeBound, String timeStep, String error, AnalysisMetrics metrics) {
+        return forwardAnalyze(timeBound, timeStep, error, metrics, null);
+    }
+
+    /**
+     * Transient analysis of the STPN of the activity on its transient tree,
+     * timed in {@link AnalysisMetrics#TREE_TRANSIENT}. The analysis stops
+     * early, with a partial solution, when the monitor (if any) requests it.
+     */
+    public TransientSolution<Marking, RewardRate>
+            forwardAnalyze(String timeBound, String timeStep, String error, AnalysisMetrics metrics, AnalysisMonitor monitor) {
 
         // input data
         BigDecimal bound = new BigDecimal(timeBound);
@@ -608,13 +890,15 @@ public abstract class Activity implements Serializable {
         builder.timeStep(step);
         builder.greedyPolicy(bound, epsilon);
         builder.markingFilter(MarkingCondition.fromString(cond));
+        if (monitor != null)
+            builder.monitor(monitor);
 
         TreeTransient analysis = builder.build();
         long start = System.nanoTime();
         TransientSolution<Marking, Marking> probs =
                 analysis.compute(pn, m);
-        /*System.out.println(String.format("Analysis took %.3f seconds",
-                (System.nanoTime() - start)/1e9));*/
+        metrics.time(AnalysisMetrics.TREE_TRANSIENT, System.nanoTime() - start);
+        metrics.record(AnalysisMetrics.TREE_STATES, probs.getColumnStates().size());
 
         // evaluate reward
         return TransientSolution.computeRewards(false, probs,
@@ -653,7 +937,7 @@ public abstract class Activity implements Serializable {
         // input data
         BigDecimal bound = new BigDecimal(timeBound);
         BigDecimal step = new BigDecimal(timeStep);
-        int samples = bound.divide(step).intValue() + 1;
+        int samples = TimeGrid.of(step).samples(bound);
         String cond = "pEND > 0";
 
         // build STPN
@@ -694,13 +978,75 @@ public abstract class Activity implements Serializable {
         return result;
     }
 
+    /**
+     * Simulates the activity on multiple threads, sampling its structure
+     * directly instead of running the STPN token game.
+     *
+     * @param threads number of worker threads
+     * @param seed seed of the random streams: results depend only on the seed
+     *        and on the number of runs
+     */
+    public TransientSolution<DeterministicEnablingState, RewardRate>
+            simulate(String timeBound, String timeStep, int runs, int threads, long seed) {
+
+        BigDecimal bound = new BigDecimal(timeBound);
+        BigDecimal step = new BigDecimal(timeStep);
+        double[] cdf = new MonteCarloSimulator(this, bound, step).simulate(runs, threads, seed);
+        return simulationSolution(bound, step, cdf);
+    }
+
+    /**
+     * Simulates the activity until the confidence interval of its CDF has at
+     * most the given half-width, instead of for a fixed number of runs or
+     * time.
+     *
+     * @param halfWidth target half-width of the confidence interval
+     * @param confidenceBound how the interval is computed
+     * @param confidence confidence level, such as 0.95
+     * @param maxRuns largest number of runs
+     * @return the completion times, with the CDF, the number of runs and the
+     *         half-width reached
+     */
+    public CompletionHistogram simulateUntil(String timeBound, String timeStep, double halfWidth,
+            ConfidenceBound confidenceBound, double confidence, long maxRuns, int threads, long seed) {
+
+        return new MonteCarloSimulator(this, new BigDecimal(timeBound), new BigDecimal(timeStep))
+                .simulateUntil(halfWidth, confidenceBound, confidence, maxRuns, threads, seed);
+    }
+
+    private TransientSolution<DeterministicEnablingState, RewardRate>
+            simulationSolution(BigDecimal bound, BigDecimal step, double[] cdf) {
+
+        String cond = "pEND > 0";
+
+        // the net is only needed to label the solution
+        PetriNet pn = new PetriNet();
+        Place in = pn.addPlace("pBEGIN");
+        Place out = pn.addPlace("pEND");
+        this.buildSTPN(pn, in, out, 1);
+
+        Marking m = new Marking();
+        m.addTokens(in, 1);
+
+        DeterministicEnablingState initialReg = new DeterministicEnablingState(m, pn);
+        TransientSolution<DeterministicEnablingState, RewardRate> result =
+                new TransientSolution<>(bound, step, List.of(initialReg),
+                        List.of(RewardRate.fromString(cond)), initialReg);
+
+        for (int t = 0; t < result.getSolution().length && t < cdf.length; t++) {
+            result.getSolution()[t][0][0] = cdf[t];
+        }
+
+        return result;
+    }
+
     public TransientSolution<DeterministicEnablingState, RewardRate>
             simulate(String timeBound, String timeStep, long timeout) {
 
         // input data
         BigDecimal bound = new BigDecimal(timeBound);
         BigDecimal step = new BigDecimal(timeStep);
-        int samples = bound.divide(step).intValue() + 1;
+        int samples = TimeGrid.of(step).samples(bound);
         String cond = "pEND > 0";
 
         // build STPN
@@ -0,0 +1,319 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.oristool.math.OmegaBigDecimal;
+import org.oristool.math.domain.DBMZone;
+import org.oristool.math.expression.AtomicTerm;
+import org.oristool.math.expression.Exmonomial;
+import org.oristool.math.expression.ExponentialTerm;
+import org.oristool.math.expression.Expolynomial;
+import org.oristool.math.expression.MonomialTerm;
+import org.oristool.math.expression.Variable;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+/**
+ * Samples the CDF of a {@link Simple} activity directly from the densities of
+ * its stochastic features, without building and analyzing a Petri net.
+ *
+ * Deterministic features are steps; every other piece of an expolynomial
+ * density is a sum of terms {@code c x^n e^(-lambda x)}, which are integrated
+ * analytically in doubles (uniform pieces are linear, Erlang pieces incomplete
+ * gamma functions). Mixtures follow the semantics of {@link Simple#buildSTPN}:
+ * branches are chosen with probability proportional to their weight, and
+ * exponential branches start after the largest LFT of the non-exponential
+ * ones (see {@link #expShift}).
+ */
+public final class ClosedFormCDF {
+    /** Accepted difference from 1 of the integral of a single feature. */
+    private static final double FEATURE_MASS_ERROR = 1e-9;
+
+    private ClosedFormCDF() {}
+
+    /**
+     * Samples the CDF of the activity at {@code 0, step, ..., timeLimit}.
+     *
+     * @param error largest accepted difference between 1 and the integral of
+     *        a density, beyond which the terms are too ill-conditioned
+     * @return the sampled CDF, or {@code null} if some feature cannot be
+     *         evaluated directly within the error
+     */
+    public static double[] of(Simple simple, BigDecimal timeLimit, BigDecimal step, BigDecimal error) {
+        List<StochasticTransitionFeature> features = simple.pdfFeatures();
+        List<BigDecimal> weights = simple.pdfWeights();
+        if (features == null || features.isEmpty())
+            return null;
+
+        TimeGrid grid = TimeGrid.of(step);
+        int samples = grid.samples(timeLimit);
+        double shift = expShift(features);
+
+        double totalWeight = 0;
+        for (int i = 0; i < features.size(); i++) {
+            totalWeight += features.size() > 1 ? weights.get(i).doubleValue() : 1.0;
+        }
+
+        double[] cdf = new double[samples];
+        try {
+            for (int i = 0; i < features.size(); i++) {
+                StochasticTransitionFeature feature = features.get(i);
+                double weight = (features.size() > 1 ? weights.get(i).doubleValue() : 1.0) / totalWeight;
+
+                double[] component = sample(feature, features.size() > 1 && feature.isEXP() ? shift : 0,
+                        samples, grid, error.doubleValue());
+                if (component == null)
+                    return null;
+
+                for (int t = 0; t < samples; t++) {
+                    cdf[t] += weight * component[t];
+                }
+            }
+        } catch (RuntimeException e) {
+            // densities that cannot be decomposed
+            return null;
+        }
+
+        for (int t = 0; t < samples; t++) {
+            cdf[t] = Math.min(1.0, Math.max(0.0, cdf[t]));
+        }
+        return cdf;
+    }
+
+    /**
+     * Delay of the exponential branches of a mixture: the largest LFT of the
+     * non-exponential branches. Branches with unbounded support, such as
+     * Erlang ones, have no LFT to wait for and are ignored.
+     */
+    static double expShift(List<StochasticTransitionFeature> features) {
+        double shift = 0;
+        for (StochasticTransitionFeature feature : features) {
+            double lft = value(feature.density().getDomainsLFT());
+            if (!feature.isEXP() && lft < Double.POSITIVE_INFINITY)
+                shift = Math.max(shift, lft);
+        }
+        return shift;
+    }
+
+    /**
+     * Samples the CDF of a single feature at {@code 0, step, ..., (samples - 1) * step}.
+     *
+     * @return the sampled CDF, or {@code null} if the feature cannot be
+     *         evaluated directly
+     */
+    public static double[] of(StochasticTransitionFeature feature, int samples, double step) {
+        try {
+            return sample(feature, 0, samples, TimeGrid.of(BigDecimal.valueOf(step)), FEATURE_MASS_ERROR);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the density of a feature at a point of its support, or returns
+     * 0 outside of it.
+     */
+    public static double density(StochasticTransitionFeature feature, double x) {
+        List<? extends DBMZone> domains = feature.density().getDomains();
+        for (int i = 0; i < domains.size(); i++) {
+            double a = value(domains.get(i).getBound(Variable.TSTAR, Variable.X).negate());
+            double b = value(domains.get(i).getBound(Variable.X, Variable.TSTAR));
+            if (a <= x && x <= b)
+                return evaluate(feature.density().getDensities().get(i), x);
+        }
+        return 0.0;
+    }
+
+    private static double[] sample(StochasticTransitionFeature feature, double shift, int samples, TimeGrid grid, double error) {
+        double[] cdf = new double[samples];
+        double eft = value(feature.density().getDomainsEFT());
+        double lft = value(feature.density().getDomainsLFT());
+
+        if (eft == lft) {
+            for (int t = 0; t < samples; t++) {
+                cdf[t] = grid.time(t) - shift >= eft ? 1.0 : 0.0;
+            }
+            return cdf;
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        List<? extends DBMZone> domains = feature.density().getDomains();
+        List<? extends Expolynomial> densities = feature.density().getDensities();
+        double mass = 0;
+        for (int i = 0; i < domains.size(); i++) {
+            Piece piece = Piece.of(densities.get(i),
+                    value(domains.get(i).getBound(Variable.TSTAR, Variable.X).negate()),
+                    value(domains.get(i).getBound(Variable.X, Variable.TSTAR)));
+            if (piece == null)
+                return null;
+            pieces.add(piece);
+            mass += piece.integral(piece.b);
+        }
+
+        if (!(Math.abs(mass - 1.0) <= error))
+            return null;
+
+        for (int t = 0; t < samples; t++) {
+            double x = grid.time(t) - shift;
+            for (Piece piece : pieces) {
+                if (x > piece.a)
+                    cdf[t] += piece.integral(Math.min(x, piece.b));
+            }
+        }
+        return cdf;
+    }
+
+    private static double evaluate(Expolynomial density, double x) {
+        Map<Variable, OmegaBigDecimal> value = new HashMap<>();
+        value.put(Variable.X, new OmegaBigDecimal(BigDecimal.valueOf(x)));
+        return density.evaluate(value).doubleValue();
+    }
+
+    private static double value(OmegaBigDecimal value) {
+        if (value.equals(OmegaBigDecimal.POSITIVE_INFINITY))
+            return Double.POSITIVE_INFINITY;
+        if (value.equals(OmegaBigDecimal.NEGATIVE_INFINITY))
+            return Double.NEGATIVE_INFINITY;
+        return value.doubleValue();
+    }
+
+    /**
+     * Density {@code sum c x^n e^(-lambda x)} on {@code [a, b]}.
+     */
+    private static final class Piece {
+        private final double a;
+        private final double b;
+        private final double[] constants;
+        private final int[] powers;
+        private final double[] rates;
+
+        private Piece(double a, double b, double[] constants, int[] powers, double[] rates) {
+            this.a = a;
+            this.b = b;
+            this.constants = constants;
+            this.powers = powers;
+            this.rates = rates;
+        }
+
+        /**
+         * Decomposes an expolynomial in {@code x}, or returns {@code null} if
+         * it has other terms or does not vanish on an unbounded support.
+         */
+        static Piece of(Expolynomial density, double a, double b) {
+            if (!(a < b) || a < 0)
+                return null;
+
+            List<Exmonomial> monomials = new ArrayList<>(density.getExmonomials());
+            double[] constants = new double[monomials.size()];
+            int[] powers = new int[monomials.size()];
+            double[] rates = new double[monomials.size()];
+            for (int m = 0; m < monomials.size(); m++) {
+                constants[m] = value(monomials.get(m).getConstantTerm());
+                for (AtomicTerm atom : monomials.get(m).getAtoms()) {
+                    if (atom instanceof MonomialTerm && ((MonomialTerm) atom).getVariable().equals(Variable.X)
+                            && ((MonomialTerm) atom).getAlpha() >= 0) {
+                        powers[m] += ((MonomialTerm) atom).getAlpha();
+                    } else if (atom instanceof ExponentialTerm && ((ExponentialTerm) atom).getVariable().equals(Variable.X)) {
+                        rates[m] += ((ExponentialTerm) atom).getLambda().doubleValue();
+                    } else {
+                        return null;
+                    }
+                }
+
+                if (b == Double.POSITIVE_INFINITY && !(rates[m] > 0))
+                    return null;
+            }
+
+            return new Piece(a, b, constants, powers, rates);
+        }
+
+        /**
+         * Integral of the density from {@code a} to {@code x}.
+         */
+        double integral(double x) {
+            double integral = 0;
+            for (int m = 0; m < constants.length; m++) {
+                integral += constants[m] * (primitive(powers[m], rates[m], x) - primitive(powers[m], rates[m], a));
+            }
+            return integral;
+        }
+
+        /**
+         * A primitive of {@code x^n e^(-lambda x)}.
+         */
+        private static double primitive(int n, double lambda, double x) {
+            if (lambda == 0)
+                return Math.pow(x, n + 1) / (n + 1);
+
+            if (lambda > 0) {
+                // n! / lambda^(n+1) times the regularized lower incomplete gamma P(n+1, lambda x)
+                double scale = 1 / lambda;
+                for (int k = 1; k <= n; k++)
+                    scale *= k / lambda;
+                return scale * lowerGamma(n + 1, lambda * x);
+            }
+
+            // increasing exponential on a bounded support
+            double sum = 0;
+            double coefficient = 1 / lambda;
+            for (int k = 0; k <= n; k++) {
+                sum += coefficient * Math.pow(x, n - k);
+                coefficient *= (n - k) / lambda;
+            }
+            return -Math.exp(-lambda * x) * sum;
+        }
+
+        /**
+         * Regularized lower incomplete gamma function {@code P(s, y)} for an
+         * integer {@code s}.
+         */
+        private static double lowerGamma(int s, double y) {
+            if (y <= 0)
+                return 0;
+            if (y == Double.POSITIVE_INFINITY)
+                return 1;
+
+            if (y < s) {
+                // e^-y y^s / s! * sum_k y^k / ((s+1)...(s+k)), without cancellation
+                double term = Math.exp(-y);
+                for (int k = 1; k <= s; k++)
+                    term *= y / k;
+                double sum = 0;
+                for (int k = 1; term > 1e-17 * sum; k++) {
+                    sum += term;
+                    term *= y / (s + k);
+                }
+                return sum;
+            }
+
+            // 1 - e^-y sum_{k<s} y^k / k!
+            double term = Math.exp(-y);
+            double sum = 0;
+            for (int k = 0; k < s; k++) {
+                sum += term;
+                term *= y / (k + 1);
+            }
+            return 1 - sum;
+        }
+    }
+}
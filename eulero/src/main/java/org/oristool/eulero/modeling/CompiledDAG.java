@@ -0,0 +1,319 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import java.util.*;
+
+/**
+ * Immutable, indexed view of the graph of a {@link DAG}.
+ *
+ * Nodes (including begin and end) get dense integer ids in topological order;
+ * dependencies are stored in compressed sparse rows of primitive arrays, in
+ * the order of the {@code pre()} and {@code post()} lists, so that visits
+ * explore nodes exactly as {@link Activity#dfs} does, with arrays instead of
+ * hash sets. A view is built by {@link DAG#compiled()} and is rebuilt there
+ * when a node or edge changes.
+ */
+public final class CompiledDAG {
+    private final Activity begin;
+    private final Activity end;
+    private final Activity[] nodes;
+    private final Map<Activity, Integer> ids;
+    private final int[] preOffsets;
+    private final int[] preTargets;
+    private final int[] postOffsets;
+    private final int[] postTargets;
+    private final boolean acyclic;
+    private final long stamp;
+    private volatile long checked;
+    private List<Activity> nested;
+
+    private CompiledDAG(Activity begin, Activity end, List<Activity> discovered, long stamp) {
+        this.begin = begin;
+        this.end = end;
+        this.stamp = stamp;
+        this.checked = stamp;
+
+        Map<Activity, Integer> discoveredIds = new IdentityHashMap<>();
+        for (int i = 0; i < discovered.size(); i++)
+            discoveredIds.put(discovered.get(i), i);
+
+        // topological order (Kahn), nodes on cycles at the end
+        int n = discovered.size();
+        int[] missing = new int[n];
+        for (int i = 0; i < n; i++)
+            missing[i] = discovered.get(i).pre().size();
+
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (missing[i] == 0) {
+                order[tail++] = i;
+                placed[i] = true;
+            }
+        }
+        while (head < tail) {
+            Activity next = discovered.get(order[head++]);
+            for (Activity post : next.post()) {
+                int p = discoveredIds.get(post);
+                if (--missing[p] == 0) {
+                    order[tail++] = p;
+                    placed[p] = true;
+                }
+            }
+        }
+        this.acyclic = tail == n;
+        for (int i = 0; i < n; i++) {
+            if (!placed[i])
+                order[tail++] = i;
+        }
+
+        this.nodes = new Activity[n];
+        this.ids = new IdentityHashMap<>();
+        for (int id = 0; id < n; id++) {
+            nodes[id] = discovered.get(order[id]);
+            ids.put(nodes[id], id);
+        }
+
+        this.preOffsets = new int[n + 1];
+        this.postOffsets = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            preOffsets[id + 1] = preOffsets[id] + nodes[id].pre().size();
+            postOffsets[id + 1] = postOffsets[id] + nodes[id].post().size();
+        }
+        this.preTargets = new int[preOffsets[n]];
+        this.postTargets = new int[postOffsets[n]];
+        for (int id = 0; id < n; id++) {
+            int k = preOffsets[id];
+            for (Activity pre : nodes[id].pre())
+                preTargets[k++] = ids.get(pre);
+            k = postOffsets[id];
+            for (Activity post : nodes[id].post())
+                postTargets[k++] = ids.get(post);
+        }
+    }
+
+    /**
+     * Compiles the graph of the activities connected to the begin and end of
+     * a DAG.
+     *
+     * @param stamp edge change count read before visiting the graph
+     */
+    static CompiledDAG of(DAG dag, long stamp) {
+        List<Activity> discovered = new ArrayList<>();
+        Set<Activity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.add(dag.begin());
+        discovered.add(dag.begin());
+        if (seen.add(dag.end()))
+            discovered.add(dag.end());
+
+        for (int i = 0; i < discovered.size(); i++) {
+            Activity next = discovered.get(i);
+            for (Activity pre : next.pre()) {
+                if (seen.add(pre))
+                    discovered.add(pre);
+            }
+            for (Activity post : next.post()) {
+                if (seen.add(post))
+                    discovered.add(post);
+            }
+        }
+
+        return new CompiledDAG(dag.begin(), dag.end(), discovered, stamp);
+    }
+
+    /**
+     * Whether no edge of the graph has changed since the view was compiled;
+     * changes to edges mark both of their endpoints.
+     *
+     * Takes constant time unless some edge, of this or of any other graph,
+     * changed since the previous check.
+     */
+    boolean isCurrent(DAG dag) {
+        if (dag.begin() != begin || dag.end() != end)
+            return false;
+
+        long count = Activity.currentEdgeChange();
+        if (count == checked)
+            return true;
+
+        for (Activity node : nodes) {
+            if (node.edgeChange() > stamp)
+                return false;
+        }
+        checked = count;
+        return true;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public Activity node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Id of a node, or -1 if it is not part of the graph.
+     */
+    public int id(Activity activity) {
+        Integer id = ids.get(activity);
+        return id != null ? id : -1;
+    }
+
+    public int begin() {
+        return ids.get(begin);
+    }
+
+    public int end() {
+        return ids.get(end);
+    }
+
+    /**
+     * Whether node ids are a topological order of the graph.
+     */
+    public boolean isAcyclic() {
+        return acyclic;
+    }
+
+    public int preCount(int id) {
+        return preOffsets[id + 1] - preOffsets[id];
+    }
+
+    /**
+     * Id of the k-th dependency of a node.
+     */
+    public int pre(int id, int k) {
+        return preTargets[preOffsets[id] + k];
+    }
+
+    public int postCount(int id) {
+        return postOffsets[id + 1] - postOffsets[id];
+    }
+
+    /**
+     * Id of the k-th activity depending on a node.
+     */
+    public int post(int id, int k) {
+        return postTargets[postOffsets[id] + k];
+    }
+
+    /**
+     * Explores the graph from an activity as {@link Activity#dfs}, following
+     * the compiled edges; the observer must not modify the graph.
+     */
+    public boolean dfs(Activity from, boolean pre, DFSObserver observer) {
+        int start = id(from);
+        if (start < 0)
+            throw new IllegalArgumentException("Activity " + from + " is not part of the graph");
+
+        int[] offsets = pre ? preOffsets : postOffsets;
+        int[] targets = pre ? preTargets : postTargets;
+        boolean[] opened = new boolean[nodes.length];
+        int[] open = new int[nodes.length];
+        int[] next = new int[nodes.length];
+        int depth = 0;
+
+        opened[start] = true;
+        if (!observer.onOpen(nodes[start], null))
+            return false;
+        open[0] = start;
+        next[0] = offsets[start];
+        depth = 1;
+
+        while (depth > 0) {
+            int node = open[depth - 1];
+            if (next[depth - 1] < offsets[node + 1]) {
+                int target = targets[next[depth - 1]++];
+                if (!opened[target]) {
+                    opened[target] = true;
+                    if (!observer.onOpen(nodes[target], nodes[node]))
+                        return false;
+                    open[depth] = target;
+                    next[depth] = offsets[target];
+                    depth++;
+                } else {
+                    if (!observer.onSkip(nodes[target], nodes[node]))
+                        return false;
+                }
+            } else {
+                depth--;
+                if (!observer.onClose(nodes[node]))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Activities reachable from begin, excluding begin and end, in the DFS
+     * order of {@link DAG#nested()}.
+     */
+    public synchronized List<Activity> nested() {
+        if (nested == null) {
+            List<Activity> activities = new ArrayList<>();
+            dfs(begin, false, new DFSObserver() {
+                @Override public boolean onOpen(Activity opened, Activity from) {
+                    if (opened != begin && opened != end)
+                        activities.add(opened);
+                    return true;
+                }
+            });
+            nested = Collections.unmodifiableList(activities);
+        }
+        return nested;
+    }
+
+    /**
+     * Activities that are both reachable from {@code from} and that reach
+     * {@code to}, in topological order; {@code from} is always included.
+     */
+    public Set<Activity> between(Activity from, Activity to) {
+        int source = id(from);
+        int target = id(to);
+        if (source < 0 || target < 0)
+            throw new IllegalArgumentException("Activities are not part of the graph");
+        if (!acyclic)
+            throw new IllegalStateException("Graph has cycles");
+
+        boolean[] reached = new boolean[nodes.length];
+        reached[source] = true;
+        for (int id = source + 1; id <= target; id++) {
+            for (int k = preOffsets[id]; k < preOffsets[id + 1] && !reached[id]; k++)
+                reached[id] = reached[preTargets[k]];
+        }
+
+        boolean[] reaching = new boolean[nodes.length];
+        reaching[target] = true;
+        for (int id = target - 1; id >= source; id--) {
+            for (int k = postOffsets[id]; k < postOffsets[id + 1] && !reaching[id]; k++)
+                reaching[id] = reaching[postTargets[k]];
+        }
+
+        Set<Activity> between = new LinkedHashSet<>();
+        between.add(from);
+        for (int id = source; id <= target; id++) {
+            if (reached[id] && reaching[id])
+                between.add(nodes[id]);
+        }
+        return between;
+    }
+}
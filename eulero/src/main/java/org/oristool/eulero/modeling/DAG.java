@@ -27,6 +27,7 @@
     import jakarta.xml.bind.annotation.XmlElementWrapper;
     import jakarta.xml.bind.annotation.XmlRootElement;
     import jakarta.xml.bind.annotation.XmlSeeAlso;
+    import jakarta.xml.bind.annotation.XmlTransient;
     import org.checkerframework.common.value.qual.DoubleVal;
     import org.oristool.models.pn.Priority;
     import org.oristool.models.stpn.trees.StochasticTransitionFeature;
@@ -52,6 +53,18 @@
         @XmlElement(name = "edge", required = true)
         private List<DAGEdge> edges = new ArrayList<>();
 
+        @XmlTransient
+        private final Map<Activity, BigDecimal[]> bounds = new IdentityHashMap<>();
+
+        @XmlTransient
+        private long boundsStamp = -1;
+
+        @XmlTransient
+        private long boundsCount = -1;
+
+        @XmlTransient
+        private volatile CompiledDAG compiled;
+
         /**
          * An empty DAG
          */
@@ -149,7 +162,8 @@
             boolean useBegin = begin().post().size() > 1;
             boolean useEnd = end().pre().size() > 1;
 
-            this.end().dfs(true, new DFSObserver() {
+            Set<Activity> added = Collections.newSetFromMap(new IdentityHashMap<>());
+            compiled().dfs(this.end(), true, new DFSObserver() {
                 @Override public boolean onSkip(Activity opened, Activity from) {
                     return onOpenOrSkip(opened, from);
                 }
@@ -163,7 +177,7 @@
                         throw new IllegalStateException("Empty DAG");
                     }
 
-                    if (!act.contains(opened)) {
+                    if (added.add(opened)) {
                         // will be in visit order (END to BEGIN)
                         act.add(opened);
                     }
@@ -341,20 +355,62 @@
             return problems;
         }
 
-        public List<Activity> nested() {
-            List<Activity> activities = new ArrayList<>();
+        /**
+         * Maximum weight of a set of concurrent nested activities, where each
+         * activity weighs its own bound on C (or 1, for the simplified C).
+         * Above 2^48 in total, the sum of the weights is returned instead
+         * (see {@link MaxAntichain#bound}).
+         */
+        @Override
+        protected BigInteger structuralUpperBoundC(boolean simplified) {
+            List<Activity> nodes = nested();
+            Map<Activity, Integer> index = new IdentityHashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                index.put(nodes.get(i), i);
+            }
 
-            this.begin().dfs(false, new DFSObserver() {
-                @Override public boolean onOpen(Activity opened, Activity from) {
-                    if (opened != begin() && opened != end()) {
-                        activities.add(opened);
-                    }
+            BigInteger[] weights = new BigInteger[nodes.size()];
+            int[][] successors = new int[nodes.size()][];
+            for (int i = 0; i < nodes.size(); i++) {
+                weights[i] = simplified ? BigInteger.ONE : nodes.get(i).upperBoundC(false);
+                successors[i] = nodes.get(i).post().stream()
+                        .filter(index::containsKey).mapToInt(index::get).toArray();
+            }
 
-                    return true;  // continue
-                }
-            });
+            return MaxAntichain.bound(weights, successors);
+        }
+
+        @Override
+        protected long latestModification() {
+            if (begin == null || end == null)
+                return super.latestModification();
+
+            // changes to the edges of begin and end are changes of this DAG
+            return Math.max(super.latestModification(), Math.max(begin.lastModified(), end.lastModified()));
+        }
 
-            return activities;
+        public List<Activity> nested() {
+            return new ArrayList<>(compiled().nested());
+        }
+
+        /**
+         * Indexed view of the graph of this DAG, compiled again after a change
+         * to the edges of its nodes. Changes to support bounds, features or
+         * nested blocks do not affect the view.
+         */
+        public CompiledDAG compiled() {
+            CompiledDAG view = compiled;
+            if (view != null && view.isCurrent(this))
+                return view;
+
+            synchronized (this) {
+                view = compiled;
+                if (view == null || !view.isCurrent(this)) {
+                    view = CompiledDAG.of(this, Activity.currentEdgeChange());
+                    compiled = view;
+                }
+                return view;
+            }
         }
 
         public void flatten() {
@@ -448,7 +504,8 @@
             boolean useBegin = begin().post().size() > 1;
             boolean useEnd = end().pre().size() > 1;
 
-            this.end().dfs(true, new DFSObserver() {
+            Set<Activity> added = Collections.newSetFromMap(new IdentityHashMap<>());
+            compiled().dfs(this.end(), true, new DFSObserver() {
                 @Override public boolean onSkip(Activity opened, Activity from) {
                     return onOpenOrSkip(opened, from);
                 }
@@ -462,7 +519,7 @@
                         throw new IllegalStateException("Empty DAG");
                     }
 
-                    if (!act.contains(opened)) {
+                    if (added.add(opened)) {
                         // will be in visit order (END to BEGIN)
                         act.add(opened);
                     }
@@ -571,41 +628,7 @@
          * @return       activities in-between (including BEGIN, END)
          */
         public Set<Activity> activitiesBetween(Activity begin, Activity end) {
-
-            Set<Activity> activitiesBetween = new HashSet<>();
-            Set<Activity> nodesOpen = new HashSet<>();
-            activitiesBetween.add(begin);
-
-            end.dfs(true, new DFSObserver() {
-                @Override public boolean onOpen(Activity opened, Activity from) {
-                    nodesOpen.add(opened);
-                    if (activitiesBetween.contains(opened)) {
-                        // all open nodes are between "begin" and "end"
-                        activitiesBetween.addAll(nodesOpen);
-                    }
-
-                    return true;  // continue
-                }
-
-                @Override public boolean onSkip(Activity skipped, Activity from) {
-                    if (activitiesBetween.contains(skipped)) {
-                        // all open nodes are between "begin" and "end"
-                        activitiesBetween.addAll(nodesOpen);
-                    }
-
-                    return true;
-                }
-
-                @Override public boolean onClose(Activity closed) {
-                    nodesOpen.remove(closed);
-                    if (closed.equals(end))
-                        return false;  // stop
-                    else
-                        return true;  // continue
-                }
-            });
-
-          return activitiesBetween;
+            return compiled().between(begin, end);
         }
 
         /**
@@ -837,8 +860,8 @@
                 sequenceNodes.add(wellNestIt(nodes.get(0).post()));
 
                 for(Activity act: sequenceNodes){
-                    act.pre().clear();
-                    act.post().clear();
+                    act.setPre(new ArrayList<>());
+                    act.setPost(new ArrayList<>());
                     name.append((sequenceNodes.indexOf(act) == sequenceNodes.size() - 1) ? act.name() + ")" : act.name() + ", ");
                 }
                 return DAG.sequence(name.toString(), sequenceNodes.toArray(Activity[]::new));
@@ -883,32 +906,118 @@
         }
 
         public BigDecimal getMinBound(Activity activity){
-            if(activity.equals(this.begin)){
-                return activity.low();
-            }
+            return bounds(activity)[0];
+        }
+
+        public BigDecimal getMaxBound(Activity activity){
+            return bounds(activity)[1];
+        }
 
-            BigDecimal maximumPredecessorLow = BigDecimal.ZERO;
-            for(Activity predecessor: activity.pre()){
-                maximumPredecessorLow = maximumPredecessorLow.max(getMinBound(predecessor));
+        /**
+         * Earliest and latest completion time of an activity of this DAG.
+         *
+         * Bounds of all activities are computed in one pass over the compiled
+         * graph in topological order, so that each node is visited once however
+         * many paths reach it, and are cached until the DAG is modified.
+         * Activities that are not part of this DAG are followed through their
+         * predecessors, as for nodes, but not cached.
+         */
+        private synchronized BigDecimal[] bounds(Activity activity) {
+            // the stamp can only change after a change to some activity
+            long count = Activity.currentModification();
+            if (count != boundsCount) {
+                long stamp = boundsStamp();
+                if (stamp != boundsStamp) {
+                    bounds.clear();
+                    boundsStamp = stamp;
+                }
+                boundsCount = count;
             }
 
-            return activity.low().add(maximumPredecessorLow);
-        }
+            BigDecimal[] cached = bounds.get(activity);
+            if (cached != null)
+                return cached;
 
-        public BigDecimal getMaxBound(Activity activity){
-            if(activity.equals(this.begin)){
-                return activity.upp();
+            CompiledDAG graph = compiled();
+            if (graph.id(activity) < 0) {
+                Map<Activity, BigDecimal[]> outside = new IdentityHashMap<>(bounds);
+                closeBounds(activity, outside);
+                return outside.get(activity);
             }
+            if (!graph.isAcyclic())
+                throw new IllegalStateException("Cycle in " + this);
+
+            // node ids are in topological order
+            for (int id = 0; id < graph.size(); id++) {
+                Activity node = graph.node(id);
+                if (node.equals(begin)) {
+                    bounds.put(node, new BigDecimal[] { node.low(), node.upp() });
+                    continue;
+                }
 
-            BigDecimal maximumPredecessorUpp = BigDecimal.ZERO;
-            for(Activity predecessor: activity.pre()){
-                maximumPredecessorUpp = maximumPredecessorUpp.max(getMaxBound(predecessor));
-                if(maximumPredecessorUpp.doubleValue() >= Double.MAX_VALUE){
-                    return BigDecimal.valueOf(Double.MAX_VALUE);
+                BigDecimal maximumPredecessorLow = BigDecimal.ZERO;
+                BigDecimal maximumPredecessorUpp = BigDecimal.ZERO;
+                for (int k = 0; k < graph.preCount(id); k++) {
+                    BigDecimal[] predecessorBounds = bounds.get(graph.node(graph.pre(id, k)));
+                    maximumPredecessorLow = maximumPredecessorLow.max(predecessorBounds[0]);
+                    maximumPredecessorUpp = maximumPredecessorUpp.max(predecessorBounds[1]);
                 }
+
+                bounds.put(node, nodeBounds(node, maximumPredecessorLow, maximumPredecessorUpp));
             }
 
-            return activity.upp().add(maximumPredecessorUpp);
+            return bounds.get(activity);
+        }
+
+        /**
+         * Adds the bounds of an activity and of its predecessors to {@code known}.
+         */
+        private void closeBounds(Activity activity, Map<Activity, BigDecimal[]> known) {
+            // predecessors are closed first
+            activity.dfs(true, new DFSObserver() {
+                @Override public boolean onClose(Activity closed) {
+                    if (known.containsKey(closed))
+                        return true;
+
+                    if (closed.equals(begin)) {
+                        known.put(closed, new BigDecimal[] { closed.low(), closed.upp() });
+                        return true;
+                    }
+
+                    BigDecimal maximumPredecessorLow = BigDecimal.ZERO;
+                    BigDecimal maximumPredecessorUpp = BigDecimal.ZERO;
+                    for (Activity predecessor : closed.pre()) {
+                        BigDecimal[] predecessorBounds = known.get(predecessor);
+                        maximumPredecessorLow = maximumPredecessorLow.max(predecessorBounds[0]);
+                        maximumPredecessorUpp = maximumPredecessorUpp.max(predecessorBounds[1]);
+                    }
+
+                    known.put(closed, nodeBounds(closed, maximumPredecessorLow, maximumPredecessorUpp));
+                    return true;
+                }
+            });
+        }
+
+        private static BigDecimal[] nodeBounds(Activity activity, BigDecimal maximumPredecessorLow,
+                                               BigDecimal maximumPredecessorUpp) {
+            BigDecimal upp = TimeGrid.isUnbounded(maximumPredecessorUpp) ?
+                    TimeGrid.UNBOUNDED : activity.upp().add(maximumPredecessorUpp);
+            return new BigDecimal[] { activity.low().add(maximumPredecessorLow), upp };
+        }
+
+        /**
+         * Latest change to the activities and edges of this DAG; unlike
+         * {@link #lastModified()}, changes to its own support bounds are ignored.
+         */
+        private long boundsStamp() {
+            if (begin == null || end == null)
+                return lastModified();
+
+            long stamp = Math.max(begin.lastModified(), end.lastModified());
+            for (Activity nested : nested()) {
+                stamp = Math.max(stamp, nested.lastModified());
+            }
+            return stamp;
         }
 
         public void setEdges( List<DAGEdge> edges){
@@ -0,0 +1,189 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Maximum total weight of a set of pairwise unordered nodes of a DAG.
+ *
+ * By Dilworth's theorem this equals the minimum flow from a source to a sink
+ * that crosses each node at least as many times as its weight, with paths
+ * allowed to traverse nodes freely. The minimum flow is obtained from a
+ * feasible flow (one source-node-sink path per unit of weight) by pushing back
+ * as much flow as possible from the sink to the source.
+ */
+final class MaxAntichain {
+    private static final long INFINITY = Long.MAX_VALUE / 4;
+    private static final int MAX_TOTAL_BITS = 48;
+
+    private final int[] head;
+    private int[] next = new int[16];
+    private int[] to = new int[16];
+    private long[] capacity = new long[16];
+    private int edges;
+
+    private MaxAntichain(int nodes) {
+        head = new int[nodes];
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Upper bound on the weight of an antichain: the exact maximum when the
+     * weights sum to at most 2^48, otherwise the sum of the weights. Flows are
+     * computed on longs, with capacities below {@code INFINITY}; the margin
+     * keeps sums of flows from overflowing or reaching it.
+     *
+     * @param weights non-negative weight of each node
+     * @param successors direct successors of each node
+     */
+    static BigInteger bound(BigInteger[] weights, int[][] successors) {
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger weight : weights) {
+            total = total.add(weight);
+        }
+
+        if (total.bitLength() > MAX_TOTAL_BITS)
+            return total;
+
+        return BigInteger.valueOf(weight(Arrays.stream(weights).mapToLong(BigInteger::longValueExact).toArray(), successors));
+    }
+
+    /**
+     * @param weights non-negative weight of each node
+     * @param successors direct successors of each node
+     * @return the maximum weight of an antichain
+     */
+    static long weight(long[] weights, int[][] successors) {
+        int n = weights.length;
+        int source = 2 * n;
+        int sink = 2 * n + 1;
+        MaxAntichain network = new MaxAntichain(2 * n + 2);
+
+        // node i is split in (2i) -> (2i + 1); the feasible flow carries weights[i] on it
+        long feasible = 0;
+        for (int i = 0; i < n; i++) {
+            network.add(source, 2 * i, weights[i]);
+            network.add(2 * i, 2 * i + 1, 0);
+            network.add(2 * i + 1, sink, weights[i]);
+            feasible += weights[i];
+            for (int j : successors[i]) {
+                network.add(2 * i + 1, 2 * j, 0);
+            }
+        }
+
+        return feasible - network.maxFlow(sink, source);
+    }
+
+    /**
+     * Adds an edge with unbounded capacity whose feasible flow can be reduced
+     * by at most {@code reducible}.
+     */
+    private void add(int from, int target, long reducible) {
+        edge(from, target, INFINITY);
+        edge(target, from, reducible);
+    }
+
+    private void edge(int from, int target, long residual) {
+        if (edges == to.length) {
+            next = Arrays.copyOf(next, 2 * edges);
+            to = Arrays.copyOf(to, 2 * edges);
+            capacity = Arrays.copyOf(capacity, 2 * edges);
+        }
+        to[edges] = target;
+        capacity[edges] = residual;
+        next[edges] = head[from];
+        head[from] = edges++;
+    }
+
+    /**
+     * Dinic's algorithm on the residual network.
+     */
+    private long maxFlow(int source, int sink) {
+        long flow = 0;
+        int[] level = new int[head.length];
+        int[] current = new int[head.length];
+        int[] path = new int[head.length];
+
+        while (true) {
+            Arrays.fill(level, -1);
+            level[source] = 0;
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                int u = queue.poll();
+                for (int e = head[u]; e != -1; e = next[e]) {
+                    if (capacity[e] > 0 && level[to[e]] < 0) {
+                        level[to[e]] = level[u] + 1;
+                        queue.add(to[e]);
+                    }
+                }
+            }
+
+            if (level[sink] < 0)
+                return flow;
+
+            System.arraycopy(head, 0, current, 0, head.length);
+            long pushed;
+            while ((pushed = augment(source, sink, level, current, path)) > 0) {
+                flow += pushed;
+            }
+        }
+    }
+
+    /**
+     * Pushes the bottleneck of a path of the level graph. The path is kept
+     * as a stack of edges, since level graphs of long chains are as deep as
+     * the DAG.
+     */
+    private long augment(int source, int sink, int[] level, int[] current, int[] path) {
+        int depth = 0;
+        int u = source;
+        while (u != sink) {
+            int e = current[u];
+            while (e != -1 && !(capacity[e] > 0 && level[to[e]] == level[u] + 1)) {
+                e = next[e];
+            }
+            current[u] = e;
+
+            if (e != -1) {
+                path[depth++] = e;
+                u = to[e];
+            } else if (depth == 0) {
+                return 0;
+            } else {
+                // dead end: retreat and skip the edge leading here
+                u = to[path[--depth] ^ 1];
+                current[u] = next[current[u]];
+            }
+        }
+
+        long pushed = INFINITY;
+        for (int i = 0; i < depth; i++) {
+            pushed = Math.min(pushed, capacity[path[i]]);
+        }
+        for (int i = 0; i < depth; i++) {
+            capacity[path[i]] -= pushed;
+            capacity[path[i] ^ 1] += pushed;
+        }
+        return pushed;
+    }
+}
@@ -0,0 +1,406 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.oristool.math.OmegaBigDecimal;
+import org.oristool.math.domain.DBMZone;
+import org.oristool.math.expression.AtomicTerm;
+import org.oristool.math.expression.Exmonomial;
+import org.oristool.math.expression.ExponentialTerm;
+import org.oristool.math.expression.Expolynomial;
+import org.oristool.math.expression.Variable;
+import org.oristool.math.function.GEN;
+import org.oristool.math.function.PartitionedGEN;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compact, versioned binary format for activity trees.
+ *
+ * Unlike the JAXB XML, models are stored with the stochastic features and
+ * weights of their {@link Simple} activities and with the {@code pre} and
+ * {@code post} lists of their DAGs as integer indices, so that they are read
+ * back ready for analysis. Records are written depth-first and read with a
+ * single pass over a stream, without an intermediate document; a file may
+ * hold several models, read one at a time by a {@link Reader}.
+ *
+ * Features are stored as exponential rates, deterministic values, or
+ * expolynomial densities on their domains; clock rates and weights of
+ * transitions are not stored.
+ */
+public final class ModelFormat {
+    private static final int MAGIC = 0x45554d42;  // "EUMB"
+    private static final int VERSION = 1;
+
+    private static final byte SIMPLE = 0;
+    private static final byte XOR = 1;
+    private static final byte SEQ = 2;
+    private static final byte AND = 3;
+    private static final byte DAG = 4;
+
+    private static final byte EXPONENTIAL = 0;
+    private static final byte DETERMINISTIC = 1;
+    private static final byte EXPOLYNOMIAL = 2;
+
+    private static final int BEGIN = -1;
+    private static final int END = -2;
+
+    private ModelFormat() {}
+
+    /**
+     * Writes a model to a file.
+     */
+    public static void save(Activity model, Path file) throws IOException {
+        try (Writer writer = new Writer(Files.newOutputStream(file))) {
+            writer.write(model);
+        }
+    }
+
+    /**
+     * Reads the first model of a file.
+     */
+    public static Activity load(Path file) throws IOException {
+        try (Reader reader = new Reader(Files.newInputStream(file))) {
+            Activity model = reader.next();
+            if (model == null)
+                throw new EOFException("No model in " + file);
+            return model;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the binary encoding of a model, identifying the
+     * model of stored results.
+     */
+    public static long hash(Activity model) {
+        HashStream digest = new HashStream();
+        try (Writer writer = new Writer(digest)) {
+            writer.write(model);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return digest.hash;
+    }
+
+    private static class HashStream extends OutputStream {
+        private long hash = 0xcbf29ce484222325L;
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+    }
+
+    /**
+     * Writes models to a stream, after a header.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        public Writer(OutputStream stream) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void write(Activity model) throws IOException {
+            out.writeBoolean(true);
+            writeActivity(model);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+        }
+
+        private void writeActivity(Activity activity) throws IOException {
+            out.writeByte(kind(activity));
+            out.writeUTF(activity.name());
+
+            if (activity instanceof Simple) {
+                Simple simple = (Simple) activity;
+                out.writeInt(simple.pdfFeatures().size());
+                for (int i = 0; i < simple.pdfFeatures().size(); i++) {
+                    writeFeature(simple.pdfFeatures().get(i));
+                    out.writeUTF(simple.pdfWeights().get(i).toString());
+                }
+
+            } else if (activity instanceof org.oristool.eulero.modeling.XOR) {
+                List<Double> probs = ((org.oristool.eulero.modeling.XOR) activity).probs();
+                out.writeInt(activity.activities().size());
+                for (int i = 0; i < activity.activities().size(); i++) {
+                    out.writeDouble(probs.get(i));
+                    writeActivity(activity.activities().get(i));
+                }
+
+            } else if (activity instanceof org.oristool.eulero.modeling.SEQ
+                    || activity instanceof org.oristool.eulero.modeling.AND) {
+                out.writeInt(activity.activities().size());
+                for (Activity child : activity.activities())
+                    writeActivity(child);
+
+            } else {
+                org.oristool.eulero.modeling.DAG dag = (org.oristool.eulero.modeling.DAG) activity;
+                List<Activity> nodes = dag.activities();
+                Map<Activity, Integer> index = new IdentityHashMap<>();
+                index.put(dag.begin(), BEGIN);
+                index.put(dag.end(), END);
+                for (int i = 0; i < nodes.size(); i++)
+                    index.put(nodes.get(i), i);
+
+                out.writeInt(nodes.size());
+                for (Activity child : nodes)
+                    writeActivity(child);
+
+                writeLinks(dag.begin(), index);
+                for (Activity child : nodes)
+                    writeLinks(child, index);
+                writeLinks(dag.end(), index);
+            }
+        }
+
+        private void writeLinks(Activity activity, Map<Activity, Integer> index) throws IOException {
+            for (List<Activity> links : List.of(activity.pre(), activity.post())) {
+                out.writeInt(links.size());
+                for (Activity linked : links) {
+                    Integer i = index.get(linked);
+                    if (i == null)
+                        throw new IllegalArgumentException(linked + " is not an activity of the DAG of " + activity);
+                    out.writeInt(i);
+                }
+            }
+        }
+
+        private void writeFeature(StochasticTransitionFeature feature) throws IOException {
+            OmegaBigDecimal eft = feature.density().getDomainsEFT();
+            OmegaBigDecimal lft = feature.density().getDomainsLFT();
+
+            if (feature.isEXP()) {
+                out.writeByte(EXPONENTIAL);
+                out.writeUTF(rate(feature).toString());
+            } else if (eft.compareTo(lft) == 0) {
+                out.writeByte(DETERMINISTIC);
+                out.writeUTF(eft.bigDecimalValue().toString());
+            } else {
+                out.writeByte(EXPOLYNOMIAL);
+                List<? extends DBMZone> domains = feature.density().getDomains();
+                out.writeInt(domains.size());
+                for (int i = 0; i < domains.size(); i++) {
+                    writeBound(domains.get(i).getBound(Variable.TSTAR, Variable.X).negate());
+                    writeBound(domains.get(i).getBound(Variable.X, Variable.TSTAR));
+                    out.writeUTF(feature.density().getDensities().get(i).toString());
+                }
+            }
+        }
+
+        /**
+         * Exact rate of an exponential feature, from the exponent of its
+         * density.
+         */
+        private BigDecimal rate(StochasticTransitionFeature feature) {
+            for (Exmonomial term : feature.density().getDensities().get(0).getExmonomials()) {
+                for (AtomicTerm atom : term.getAtoms()) {
+                    if (atom instanceof ExponentialTerm)
+                        return ((ExponentialTerm) atom).getLambda();
+                }
+            }
+            throw new IllegalArgumentException("No exponential term in " + feature);
+        }
+
+        private void writeBound(OmegaBigDecimal bound) throws IOException {
+            out.writeUTF(bound.isFinite() ? bound.bigDecimalValue().toString() : "inf");
+        }
+    }
+
+    /**
+     * Reads models from a stream, one at a time.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private boolean ended;
+
+        public Reader(InputStream stream) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a model file");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported model file version " + version);
+        }
+
+        /**
+         * Reads the next model, or returns {@code null} after the last one.
+         */
+        public Activity next() throws IOException {
+            if (ended || !in.readBoolean()) {
+                ended = true;
+                return null;
+            }
+            return readActivity();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private Activity readActivity() throws IOException {
+            byte kind = in.readByte();
+            String name = in.readUTF();
+
+            switch (kind) {
+                case SIMPLE: {
+                    int n = in.readInt();
+                    ArrayList<StochasticTransitionFeature> features = new ArrayList<>(n);
+                    ArrayList<BigDecimal> weights = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        features.add(readFeature());
+                        weights.add(new BigDecimal(in.readUTF()));
+                    }
+                    if (n == 1 && weights.get(0).compareTo(BigDecimal.ONE) == 0)
+                        return new Simple(name, features.get(0));
+                    return new Simple(name, features, weights);
+                }
+
+                case XOR: {
+                    int n = in.readInt();
+                    List<Double> probs = new ArrayList<>(n);
+                    List<Activity> alternatives = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        probs.add(in.readDouble());
+                        alternatives.add(readActivity());
+                    }
+                    return new org.oristool.eulero.modeling.XOR(name, alternatives, probs);
+                }
+
+                case SEQ:
+                case AND: {
+                    Activity[] children = new Activity[in.readInt()];
+                    for (int i = 0; i < children.length; i++)
+                        children[i] = readActivity();
+                    return kind == SEQ ? org.oristool.eulero.modeling.DAG.sequence(name, children)
+                            : org.oristool.eulero.modeling.DAG.forkJoin(name, children);
+                }
+
+                case DAG: {
+                    org.oristool.eulero.modeling.DAG dag = org.oristool.eulero.modeling.DAG.empty(name);
+                    List<Activity> nodes = new ArrayList<>();
+                    int n = in.readInt();
+                    for (int i = 0; i < n; i++)
+                        nodes.add(readActivity());
+
+                    readLinks(dag.begin(), dag, nodes);
+                    for (Activity node : nodes)
+                        readLinks(node, dag, nodes);
+                    readLinks(dag.end(), dag, nodes);
+
+                    List<DAGEdge> edges = new ArrayList<>();
+                    for (Activity node : nodes) {
+                        for (Activity post : node.post()) {
+                            if (post != dag.end())
+                                edges.add(DAGEdge.of(node.name(), post.name()));
+                        }
+                    }
+
+                    dag.setActivities(nodes);
+                    dag.setEdges(edges);
+                    dag.setMin(dag.low());
+                    dag.setMax(dag.upp());
+                    return dag;
+                }
+
+                default:
+                    throw new IOException("Unknown activity kind " + kind);
+            }
+        }
+
+        private void readLinks(Activity activity, org.oristool.eulero.modeling.DAG dag, List<Activity> nodes)
+                throws IOException {
+            List<Activity> pre = readIndices(dag, nodes);
+            List<Activity> post = readIndices(dag, nodes);
+            activity.setPre(pre);
+            activity.setPost(post);
+        }
+
+        private List<Activity> readIndices(org.oristool.eulero.modeling.DAG dag, List<Activity> nodes)
+                throws IOException {
+            int n = in.readInt();
+            List<Activity> links = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                int i = in.readInt();
+                if (i == BEGIN)
+                    links.add(dag.begin());
+                else if (i == END)
+                    links.add(dag.end());
+                else if (i >= 0 && i < nodes.size())
+                    links.add(nodes.get(i));
+                else
+                    throw new IOException("Invalid activity index " + i + " in " + dag);
+            }
+            return links;
+        }
+
+        private StochasticTransitionFeature readFeature() throws IOException {
+            byte kind = in.readByte();
+            switch (kind) {
+                case EXPONENTIAL:
+                    return StochasticTransitionFeature.newExponentialInstance(in.readUTF());
+                case DETERMINISTIC:
+                    return StochasticTransitionFeature.newDeterministicInstance(new BigDecimal(in.readUTF()));
+                case EXPOLYNOMIAL: {
+                    int n = in.readInt();
+                    List<GEN> pieces = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        DBMZone domain = new DBMZone(Variable.X);
+                        domain.setCoefficient(Variable.TSTAR, Variable.X, readBound().negate());
+                        domain.setCoefficient(Variable.X, Variable.TSTAR, readBound());
+                        pieces.add(new GEN(domain, Expolynomial.fromString(in.readUTF())));
+                    }
+                    return StochasticTransitionFeature.of(new PartitionedGEN(pieces));
+                }
+                default:
+                    throw new IOException("Unknown feature kind " + kind);
+            }
+        }
+
+        private OmegaBigDecimal readBound() throws IOException {
+            String bound = in.readUTF();
+            return bound.equals("inf") ? OmegaBigDecimal.POSITIVE_INFINITY : new OmegaBigDecimal(bound);
+        }
+    }
+
+    private static byte kind(Activity activity) {
+        if (activity instanceof Simple)
+            return SIMPLE;
+        if (activity instanceof org.oristool.eulero.modeling.XOR)
+            return XOR;
+        if (activity instanceof org.oristool.eulero.modeling.SEQ)
+            return SEQ;
+        if (activity instanceof org.oristool.eulero.modeling.AND)
+            return AND;
+        if (activity instanceof org.oristool.eulero.modeling.DAG)
+            return DAG;
+        throw new IllegalArgumentException("Unsupported activity " + activity);
+    }
+}
@@ -0,0 +1,139 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Restores the transient parts of a model read from XML: the stochastic
+ * features of its {@link Simple} activities, which are not serialized, and
+ * the {@code pre}/{@code post} links of its DAGs, which are serialized as
+ * lists of {@link DAGEdge} between activity names.
+ *
+ * Edges are restored in one pass, with a hash index from names to
+ * activities; activities without predecessors follow the begin of the DAG,
+ * those without successors precede its end. Models with repeated names,
+ * dangling or repeated edges, or cycles are rejected.
+ */
+public final class ModelLoader {
+
+    private ModelLoader() {}
+
+    /**
+     * Attaches the given features to all {@link Simple} activities and
+     * restores the edges of all DAGs, recursively.
+     *
+     * @throws IllegalArgumentException if the edges of a DAG are not valid
+     */
+    public static void restore(Activity model, List<StochasticTransitionFeature> features, List<BigDecimal> weights) {
+        if (model instanceof Simple) {
+            ((Simple) model).setFeatures(new ArrayList<>(features));
+            ((Simple) model).setWeights(new ArrayList<>(weights));
+        }
+
+        if (model instanceof XOR) {
+            for (Activity alternative : model.activities())
+                restore(alternative, features, weights);
+        }
+
+        if (model instanceof DAG) {
+            DAG dag = (DAG) model;
+            for (Activity a : List.of(dag.begin(), dag.end())) {
+                ((Simple) a).setFeatures(new ArrayList<>(List.of(
+                        StochasticTransitionFeature.newDeterministicInstance(BigDecimal.ZERO))));
+                ((Simple) a).setWeights(new ArrayList<>(List.of(BigDecimal.ONE)));
+            }
+
+            for (Activity activity : dag.activities())
+                restore(activity, features, weights);
+            restoreEdges(dag);
+        }
+    }
+
+    /**
+     * Rebuilds the {@code pre}/{@code post} links between the begin, end and
+     * activities of a DAG from its edges.
+     *
+     * @throws IllegalArgumentException if names are repeated, edges refer to
+     *         unknown activities or are repeated, or the edges form a cycle
+     */
+    public static void restoreEdges(DAG dag) {
+        List<String> problems = new ArrayList<>();
+        List<Activity> activities = dag.activities();
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < activities.size(); i++) {
+            if (index.putIfAbsent(activities.get(i).name(), i) != null)
+                problems.add(String.format("%s: Repeated activity %s", dag, activities.get(i).name()));
+        }
+
+        List<List<Activity>> pre = new ArrayList<>();
+        List<List<Activity>> post = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            pre.add(new ArrayList<>());
+            post.add(new ArrayList<>());
+        }
+
+        Set<String> restored = new HashSet<>();
+        for (DAGEdge edge : dag.edges()) {
+            Integer from = index.get(edge.getPre());
+            Integer to = index.get(edge.getPost());
+            if (from == null || to == null) {
+                problems.add(String.format("%s: Edge from %s to %s refers to an unknown activity",
+                        dag, edge.getPre(), edge.getPost()));
+            } else if (from.equals(to)) {
+                problems.add(String.format("%s: Self-loop on %s", dag, edge.getPre()));
+            } else if (!restored.add(edge.getPre() + "\n" + edge.getPost())) {
+                problems.add(String.format("%s: Repeated edge from %s to %s", dag, edge.getPre(), edge.getPost()));
+            } else {
+                pre.get(to).add(activities.get(from));
+                post.get(from).add(activities.get(to));
+            }
+        }
+
+        if (!problems.isEmpty())
+            throw new IllegalArgumentException(String.join("\n", problems));
+
+        List<Activity> first = new ArrayList<>();
+        List<Activity> last = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            Activity activity = activities.get(i);
+            if (pre.get(i).isEmpty()) {
+                pre.get(i).add(dag.begin());
+                first.add(activity);
+            }
+            if (post.get(i).isEmpty()) {
+                post.get(i).add(dag.end());
+                last.add(activity);
+            }
+            activity.setPre(pre.get(i));
+            activity.setPost(post.get(i));
+        }
+
+        dag.begin().setPost(first);
+        dag.end().setPre(last);
+
+        // activities on cycles without entry are not even reached from begin or end
+        CompiledDAG graph = dag.compiled();
+        if (!graph.isAcyclic() || graph.size() != activities.size() + 2)
+            throw new IllegalArgumentException(String.format("%s: Edges form a cycle", dag));
+    }
+}
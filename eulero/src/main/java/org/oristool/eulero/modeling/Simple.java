@@ -66,7 +66,7 @@ public class Simple extends Activity {
         super(name);
         setType(ActivityType.SIMPLE);
         setMin(pdf.density().getDomainsEFT().bigDecimalValue());
-        setMax((pdf.density().getDomainsLFT().bigDecimalValue() != null) ? pdf.density().getDomainsLFT().bigDecimalValue() : BigDecimal.valueOf(Double.MAX_VALUE));
+        setMax((pdf.density().getDomainsLFT().bigDecimalValue() != null) ? pdf.density().getDomainsLFT().bigDecimalValue() : TimeGrid.UNBOUNDED);
         setC(BigInteger.ONE);
         setQ(BigInteger.ONE);
         setSimplifiedC(BigInteger.ONE);
@@ -111,8 +111,22 @@ public class Simple extends Activity {
         );
     }
 
+    @Override
+    public BigInteger computeC(boolean getSimplified) {
+        setC(BigInteger.ONE);
+        setSimplifiedC(BigInteger.ONE);
+        return BigInteger.ONE;
+    }
+
+    @Override
+    protected BigInteger structuralUpperBoundC(boolean simplified) {
+        return BigInteger.ONE;
+    }
+
     @Override
     public BigInteger computeQ(boolean getSimplified) {
+        setQ(BigInteger.ONE);
+        setSimplifiedQ(BigInteger.ONE);
         return BigInteger.ONE;
     }
 
@@ -154,7 +168,10 @@ public class Simple extends Activity {
     }
 
     public double[] getNumericalCDF(BigDecimal timeLimit, BigDecimal step){
-        // Se si trova un modo più furbo di fare questa...
+        double[] closedForm = ClosedFormCDF.of(this, timeLimit, step, new BigDecimal("0.001"));
+        if (closedForm != null)
+            return closedForm;
+
         TransientSolution<DeterministicEnablingState, RewardRate> analysisSolution = this.analyze(timeLimit.toString(), step.toString(), "0.001");
         double[] cdf = new double[analysisSolution.getSolution().length];
         for(int i = 0; i < cdf.length; i++){
@@ -187,7 +204,7 @@ public class Simple extends Activity {
                 Place pDet = pn.addPlace("p_" + this.name() + "_" + pdfFeatures.indexOf(feature) + "DET");
                 Transition tDet = pn.addTransition(this.name() + "_DET");
                 tDet.addFeature(new Priority(prio));
-                tDet.addFeature(StochasticTransitionFeature.newDeterministicInstance(BigDecimal.valueOf(pdfFeatures.stream().filter(feat -> !feat.isEXP()).mapToDouble(feat -> feat.density().getDomainsLFT().doubleValue()).max().orElse(0)), MarkingExpr.ONE));
+                tDet.addFeature(StochasticTransitionFeature.newDeterministicInstance(BigDecimal.valueOf(ClosedFormCDF.expShift(pdfFeatures)), MarkingExpr.ONE));
 
                 pn.addPostcondition(immediateT, pDet);
                 pn.addPrecondition(pDet, tDet);
@@ -220,10 +237,12 @@ public class Simple extends Activity {
 
     public void setFeatures(ArrayList<StochasticTransitionFeature> pdfFeatures) {
         this.pdfFeatures = pdfFeatures;
+        markModified();
     }
 
     public void setWeights(ArrayList<BigDecimal> pdfWeights) {
         this.pdfWeights = pdfWeights;
+        markModified();
     }
 
 }
@@ -0,0 +1,226 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.oristool.math.OmegaBigDecimal;
+import org.oristool.math.domain.DBMZone;
+import org.oristool.math.expression.Expolynomial;
+import org.oristool.math.expression.Variable;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+/**
+ * Canonical hash of the structure of an activity tree.
+ *
+ * Names are ignored; the hash covers block types, the order of SEQ children,
+ * XOR probabilities, DAG edges and the stochastic features and weights of
+ * {@link Simple} activities. Two activities with the same hash have the same
+ * completion time distribution. Isomorphic DAGs whose nodes cannot be told
+ * apart structurally may get different hashes (the converse never happens).
+ */
+public final class StructuralHash {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * Digest of an activity and the {@link Activity#lastModified()} stamp
+     * it was computed at.
+     */
+    static final class Stamped {
+        private final long stamp;
+        private final String digest;
+
+        Stamped(long stamp, String digest) {
+            this.stamp = stamp;
+            this.digest = digest;
+        }
+    }
+
+    private StructuralHash() {}
+
+    /**
+     * Returns the SHA-256 hex digest of the canonical form of the activity.
+     *
+     * Digests are cached on the activities, and computed again only for
+     * the blocks changed since.
+     */
+    public static String of(Activity activity) {
+        return digest(activity, new IdentityHashMap<>());
+    }
+
+    /**
+     * Returns a canonical description of a stochastic feature: its support
+     * pieces and their expolynomial densities.
+     */
+    public static String featureForm(StochasticTransitionFeature feature) {
+        if (feature == null)
+            return "null";
+
+        StringBuilder b = new StringBuilder(feature.isEXP() ? "EXP" : "GEN");
+        List<? extends DBMZone> domains = feature.density().getDomains();
+        List<? extends Expolynomial> densities = feature.density().getDensities();
+        for (int i = 0; i < domains.size(); i++) {
+            b.append(String.format("[%s,%s]%s",
+                    bound(domains.get(i).getBound(Variable.TSTAR, Variable.X).negate()),
+                    bound(domains.get(i).getBound(Variable.X, Variable.TSTAR)),
+                    densities.get(i)));
+        }
+        return b.toString();
+    }
+
+    private static String bound(OmegaBigDecimal bound) {
+        if (bound.equals(OmegaBigDecimal.POSITIVE_INFINITY) || bound.equals(OmegaBigDecimal.NEGATIVE_INFINITY))
+            return bound.toString();
+        // same value at any scale
+        return bound.bigDecimalValue().stripTrailingZeros().toPlainString();
+    }
+
+    private static String digest(Activity activity, Map<Activity, String> memo) {
+        String digest = memo.get(activity);
+        if (digest == null) {
+            // stamp taken first: a concurrent change leaves the cache stale
+            long stamp = activity.lastModified();
+            Stamped cached = activity.structuralHash();
+            if (cached != null && cached.stamp == stamp) {
+                digest = cached.digest;
+            } else {
+                digest = sha256(canonicalForm(activity, memo));
+                activity.setStructuralHash(new Stamped(stamp, digest));
+            }
+            memo.put(activity, digest);
+        }
+        return digest;
+    }
+
+    private static String canonicalForm(Activity activity, Map<Activity, String> memo) {
+        if (activity instanceof Simple) {
+            return simpleForm((Simple) activity);
+        }
+
+        if (activity instanceof XOR) {
+            List<Double> probs = ((XOR) activity).probs();
+            List<String> alternatives = new ArrayList<>();
+            for (int i = 0; i < activity.activities().size(); i++) {
+                alternatives.add(probs.get(i) + ":" + digest(activity.activities().get(i), memo));
+            }
+            Collections.sort(alternatives);
+            return "XOR" + alternatives;
+        }
+
+        if (activity.type() == ActivityType.SEQ) {
+            return "SEQ" + activity.activities().stream()
+                    .map(a -> digest(a, memo))
+                    .collect(Collectors.toList());
+        }
+
+        if (activity.type() == ActivityType.AND) {
+            return "AND" + activity.activities().stream()
+                    .map(a -> digest(a, memo))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        if (activity instanceof DAG) {
+            return dagForm((DAG) activity, memo);
+        }
+
+        throw new IllegalArgumentException("Unsupported activity " + activity);
+    }
+
+    private static String simpleForm(Simple simple) {
+        List<StochasticTransitionFeature> features = simple.pdfFeatures();
+        List<BigDecimal> weights = simple.pdfWeights();
+        if (features == null)
+            return "SIMPLE[null]";
+
+        List<String> components = new ArrayList<>();
+        for (int i = 0; i < features.size(); i++) {
+            BigDecimal weight = weights != null && i < weights.size() ? weights.get(i) : BigDecimal.ONE;
+            components.add(weight.stripTrailingZeros().toPlainString() + ":" + featureForm(features.get(i)));
+        }
+        Collections.sort(components);
+        return "SIMPLE" + components;
+    }
+
+    private static String dagForm(DAG dag, Map<Activity, String> memo) {
+        // topological order: a node is closed after all its predecessors
+        List<Activity> order = new ArrayList<>();
+        dag.end().dfs(true, new DFSObserver() {
+            @Override public boolean onClose(Activity closed) {
+                order.add(closed);
+                return true;
+            }
+        });
+        Set<Activity> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        nodes.addAll(order);
+
+        Map<Activity, String> content = new IdentityHashMap<>();
+        for (Activity a : order) {
+            content.put(a, a == dag.begin() ? "BEGIN" : a == dag.end() ? "END" : digest(a, memo));
+        }
+
+        // signatures of the sub-DAGs above and below each node, used to sort nodes
+        Map<Activity, String> up = new IdentityHashMap<>();
+        for (Activity a : order) {
+            up.put(a, sha256(content.get(a) + a.pre().stream()
+                    .filter(nodes::contains).map(up::get).sorted().collect(Collectors.toList())));
+        }
+        Map<Activity, String> down = new IdentityHashMap<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Activity a = order.get(i);
+            down.put(a, sha256(content.get(a) + a.post().stream()
+                    .filter(nodes::contains).map(down::get).sorted().collect(Collectors.toList())));
+        }
+
+        List<Activity> sorted = new ArrayList<>(order);
+        sorted.sort(Comparator.comparing((Activity a) -> up.get(a)).thenComparing(down::get));
+        Map<Activity, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            index.put(sorted.get(i), i);
+        }
+
+        StringBuilder b = new StringBuilder("DAG[");
+        for (Activity a : sorted) {
+            b.append(content.get(a)).append("<").append(a.pre().stream()
+                    .filter(nodes::contains).map(index::get).sorted().collect(Collectors.toList())).append(";");
+        }
+        return b.append("]").toString();
+    }
+
+    private static String sha256(String text) {
+        byte[] hash = SHA256.get().digest(text.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[2 * hash.length];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
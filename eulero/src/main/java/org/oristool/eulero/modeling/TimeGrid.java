@@ -0,0 +1,139 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Grid of time points {@code 0, step, 2 * step, ...} on which CDFs are
+ * sampled, with times identified by integer tick indices.
+ *
+ * The step is held as an unscaled integer and a decimal scale, so that the
+ * time of a tick is the correctly rounded double of its exact decimal value
+ * (the sum of repeated double steps drifts instead), and the number of
+ * samples up to a time limit is computed once, exactly, at the
+ * {@code BigDecimal} boundary of the analysis.
+ */
+public final class TimeGrid {
+    /** Bound used for activities with unbounded support. */
+    public static final BigDecimal UNBOUNDED = BigDecimal.valueOf(Double.MAX_VALUE);
+
+    private final BigDecimal step;
+    private final long unscaledStep;
+    private final double scaleFactor;
+    private final double delta;
+
+    private TimeGrid(BigDecimal step) {
+        if (step.signum() <= 0)
+            throw new IllegalArgumentException("Step must be positive");
+
+        BigDecimal stripped = step.stripTrailingZeros();
+        if (stripped.scale() < 0)
+            stripped = stripped.setScale(0);
+
+        this.step = step;
+        this.unscaledStep = stripped.unscaledValue().longValueExact();
+        this.scaleFactor = Math.pow(10, stripped.scale());
+        this.delta = step.doubleValue();
+    }
+
+    public static TimeGrid of(BigDecimal step) {
+        return new TimeGrid(step);
+    }
+
+    /**
+     * Grid with about 100 to 1000 ticks up to the given time, the default
+     * resolution of the analysis.
+     */
+    public static TimeGrid fair(BigDecimal max) {
+        return new TimeGrid(fairStep(max.doubleValue()));
+    }
+
+    /**
+     * Power of 10 giving about 100 to 1000 ticks up to the given time.
+     */
+    public static BigDecimal fairStep(double max) {
+        int digits = 0;
+        while (max > 10) {
+            digits++;
+            max = max / 10;
+        }
+        // powers of ten are exact doubles up to 10^22; valueOf keeps the
+        // representation of earlier releases, such as 1.0 rather than 1
+        return BigDecimal.valueOf(Math.pow(10, digits - 2));
+    }
+
+    /**
+     * Whether a support bound stands for an unbounded support.
+     */
+    public static boolean isUnbounded(BigDecimal bound) {
+        return bound.doubleValue() >= Double.MAX_VALUE;
+    }
+
+    public BigDecimal step() {
+        return step;
+    }
+
+    /**
+     * Step as a double.
+     */
+    public double delta() {
+        return delta;
+    }
+
+    /**
+     * Number of whole ticks up to a time, rounded as given.
+     */
+    public int ticks(BigDecimal time, RoundingMode rounding) {
+        return time.divide(step, 0, rounding).intValueExact();
+    }
+
+    /**
+     * Number of grid points in {@code [0, timeLimit]}.
+     */
+    public int samples(BigDecimal timeLimit) {
+        return ticks(timeLimit, RoundingMode.DOWN) + 1;
+    }
+
+    /**
+     * Time of a tick.
+     */
+    public double time(long tick) {
+        long unscaled = tick * unscaledStep;
+        // exact while the unscaled time fits in the double mantissa
+        if (Math.abs(unscaled) < (1L << 53) && unscaled / unscaledStep == tick)
+            return unscaled / scaleFactor;
+        return tick * delta;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TimeGrid && ((TimeGrid) o).step.compareTo(step) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(delta);
+    }
+
+    @Override
+    public String toString() {
+        return "TimeGrid(" + step.toPlainString() + ")";
+    }
+}
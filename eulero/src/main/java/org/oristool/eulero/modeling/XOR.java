@@ -70,17 +70,17 @@ public class XOR extends Activity {
 
     @Override
     public void resetSupportBounds() {
-        double min = Double.MAX_VALUE;
-        double max = 0;
+        BigDecimal min = TimeGrid.UNBOUNDED;
+        BigDecimal max = BigDecimal.ZERO;
 
         for(Activity alternative: activities()){
             alternative.resetSupportBounds();
-            min = Math.min(min, alternative.min().doubleValue());
-            max = Math.max(max, alternative.max().doubleValue());
+            min = min.min(alternative.min());
+            max = max.max(alternative.max());
         }
 
-        setMin(BigDecimal.valueOf(min));
-        setMax(BigDecimal.valueOf(max));
+        setMin(min);
+        setMax(max);
     }
 
     @Override
@@ -192,12 +192,25 @@ public class XOR extends Activity {
         return prio;
     }
 
+    /**
+     * Only one alternative is active at a time.
+     */
+    @Override
+    protected BigInteger structuralUpperBoundC(boolean simplified) {
+        if (simplified)
+            return BigInteger.ONE;
+
+        return activities().stream().map(a -> a.upperBoundC(false)).reduce(BigInteger.ONE, BigInteger::max);
+    }
+
     @Override
     public BigInteger computeQ(boolean getSimplified) {
         int maximumS = 0;
         for(Activity act: activities()){
             maximumS = Math.max(maximumS, act.Q().intValue());
         }
+        setQ(BigInteger.valueOf(maximumS));
+        setSimplifiedQ(BigInteger.ONE);
 
         return getSimplified ? BigInteger.ONE : BigInteger.valueOf(maximumS);
     }
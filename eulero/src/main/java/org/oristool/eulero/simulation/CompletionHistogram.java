@@ -0,0 +1,229 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Streaming accumulator of simulated completion times.
+ *
+ * Completions are counted on the fixed grid {@code 0, step, ..., timeLimit}
+ * (a run completing in {@code ((t-1) * step, t * step]} is counted in bin
+ * {@code t}) and in a {@link QuantileSketch}, which keeps quantiles beyond the
+ * grid resolution and horizon. Accumulators on the same grid can be merged,
+ * so that workers, or separate processes, fill their own and combine them at
+ * the end; {@link #save(Path)} and {@link #load(Path)} checkpoint the state
+ * to resume long runs.
+ *
+ * Instances are not thread-safe.
+ */
+public class CompletionHistogram {
+    private static final int MAGIC = 0x45554843;  // "EUHC"
+    private static final int VERSION = 1;
+
+    private final double step;
+    private final long[] counts;
+    private final QuantileSketch sketch;
+    private long runs;
+
+    public CompletionHistogram(int samples, double step) {
+        this(samples, step, new QuantileSketch());
+    }
+
+    public CompletionHistogram(int samples, double step, QuantileSketch sketch) {
+        if (samples <= 0 || !(step > 0))
+            throw new IllegalArgumentException("Samples and step must be positive");
+        this.step = step;
+        this.counts = new long[samples];
+        this.sketch = sketch;
+    }
+
+    /**
+     * Empty accumulator with the same grid and sketch accuracy.
+     */
+    public CompletionHistogram emptyCopy() {
+        return new CompletionHistogram(counts.length, step, new QuantileSketch(sketch.accuracy()));
+    }
+
+    public int samples() {
+        return counts.length;
+    }
+
+    public double step() {
+        return step;
+    }
+
+    /**
+     * Number of recorded runs, including those beyond the time limit.
+     */
+    public long runs() {
+        return runs;
+    }
+
+    public QuantileSketch sketch() {
+        return sketch;
+    }
+
+    public void add(double completion) {
+        runs++;
+        sketch.add(completion);
+        int index = bin(completion, step, counts.length);
+        if (index >= 0)
+            counts[index]++;
+    }
+
+    /**
+     * Grid interval {@code ((t-1) * step, t * step]} holding a completion
+     * time, or -1 if it is beyond the last grid point.
+     */
+    static int bin(double completion, double step, int samples) {
+        // tolerance for completion times on grid points
+        double index = Math.ceil(completion / step - 1e-9);
+        return index < samples ? (int) Math.max(0, index) : -1;
+    }
+
+    /**
+     * Adds the runs of an accumulator on the same grid.
+     */
+    public void merge(CompletionHistogram other) {
+        if (other.counts.length != counts.length || other.step != step)
+            throw new IllegalArgumentException("Histograms have different grids");
+
+        for (int t = 0; t < counts.length; t++)
+            counts[t] += other.counts[t];
+        sketch.merge(other.sketch);
+        runs += other.runs;
+    }
+
+    /**
+     * Number of runs completing in each grid interval.
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * Empirical CDF sampled at {@code 0, step, ..., timeLimit}.
+     */
+    public double[] cdf() {
+        double[] cdf = new double[counts.length];
+        long completed = 0;
+        for (int t = 0; t < counts.length; t++) {
+            completed += counts[t];
+            cdf[t] = runs > 0 ? (double) completed / runs : 0.0;
+        }
+        return cdf;
+    }
+
+    /**
+     * Half-width of the confidence band of the whole empirical CDF at the
+     * given confidence level (Dvoretzky–Kiefer–Wolfowitz inequality).
+     */
+    public double halfWidth(double confidence) {
+        if (runs == 0)
+            return 1.0;
+        return Math.min(1.0, Math.sqrt(Math.log(2 / (1 - confidence)) / (2.0 * runs)));
+    }
+
+    /**
+     * Half-width of the confidence interval of the empirical CDF, as the
+     * largest over grid points for pointwise bounds.
+     */
+    public double halfWidth(ConfidenceBound bound, double confidence) {
+        if (bound == ConfidenceBound.DKW)
+            return halfWidth(confidence);
+        if (runs == 0)
+            return 1.0;
+
+        double z = new NormalDistribution().inverseCumulativeProbability(1 - (1 - confidence) / 2);
+        double z2n = z * z / runs;
+        double max = 0;
+        for (double p : cdf()) {
+            double wilson = z / (1 + z2n) * Math.sqrt(p * (1 - p) / runs + z2n / (4.0 * runs));
+            max = Math.max(max, wilson);
+        }
+        return max;
+    }
+
+    public double[] lower(double confidence) {
+        double epsilon = halfWidth(confidence);
+        double[] cdf = cdf();
+        for (int t = 0; t < cdf.length; t++)
+            cdf[t] = Math.max(0.0, cdf[t] - epsilon);
+        return cdf;
+    }
+
+    public double[] upper(double confidence) {
+        double epsilon = halfWidth(confidence);
+        double[] cdf = cdf();
+        for (int t = 0; t < cdf.length; t++)
+            cdf[t] = Math.min(1.0, cdf[t] + epsilon);
+        return cdf;
+    }
+
+    public double quantile(double q) {
+        return sketch.quantile(q);
+    }
+
+    /**
+     * Writes the state to a file, replacing it atomically.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(step);
+            out.writeLong(runs);
+            out.writeInt(counts.length);
+            for (long c : counts)
+                out.writeLong(c);
+            sketch.write(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a state written by {@link #save(Path)}.
+     */
+    public static CompletionHistogram load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a histogram checkpoint: " + file);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported histogram checkpoint version " + version);
+
+            double step = in.readDouble();
+            long runs = in.readLong();
+            long[] counts = new long[in.readInt()];
+            for (int t = 0; t < counts.length; t++)
+                counts[t] = in.readLong();
+
+            CompletionHistogram histogram = new CompletionHistogram(counts.length, step, QuantileSketch.read(in));
+            System.arraycopy(counts, 0, histogram.counts, 0, counts.length);
+            histogram.runs = runs;
+            return histogram;
+        }
+    }
+}
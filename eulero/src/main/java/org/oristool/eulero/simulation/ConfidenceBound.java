@@ -0,0 +1,34 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+/**
+ * Confidence bounds on an empirical CDF.
+ */
+public enum ConfidenceBound {
+    /**
+     * Band holding simultaneously at all times (Dvoretzky–Kiefer–Wolfowitz
+     * inequality); its width depends only on the number of runs.
+     */
+    DKW,
+    /**
+     * Largest Wilson score interval over the grid points; holds at each point
+     * separately and is much narrower than DKW near 0 and 1.
+     */
+    WILSON
+}
@@ -0,0 +1,228 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.oristool.eulero.modeling.ClosedFormCDF;
+import org.oristool.eulero.modeling.Simple;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Samples the duration of a {@link Simple} activity by inverse transform of
+ * uniform random numbers.
+ *
+ * Samplers are immutable and can be shared by threads, each using its own
+ * random stream. Durations beyond the simulation horizon may be returned as
+ * {@code Double.POSITIVE_INFINITY}.
+ */
+public abstract class DurationSampler {
+
+    public DurationSampler(){}
+
+    /**
+     * Samples a duration.
+     */
+    public final double sample(SplittableRandom random) {
+        return inverse(random.nextDouble());
+    }
+
+    /**
+     * Inverse CDF of the duration, at {@code u} in [0, 1).
+     */
+    public abstract double inverse(double u);
+
+    /**
+     * Builds the sampler of an activity, following the mixture semantics of
+     * {@link Simple#buildSTPN}.
+     *
+     * @param horizon largest duration of interest
+     * @param resolution grid step used to tabulate general densities
+     */
+    public static DurationSampler of(Simple simple, double horizon, double resolution) {
+        List<StochasticTransitionFeature> features = simple.pdfFeatures();
+        if (features.size() == 1)
+            return of(features.get(0), horizon, resolution);
+
+        List<BigDecimal> weights = simple.pdfWeights();
+        double expShift = features.stream().filter(f -> !f.isEXP())
+                .mapToDouble(f -> f.density().getDomainsLFT().doubleValue()).max().orElse(0);
+
+        DurationSampler[] components = new DurationSampler[features.size()];
+        double[] cumulative = new double[features.size()];
+        double total = 0;
+        for (int i = 0; i < features.size(); i++) {
+            DurationSampler component = of(features.get(i), horizon, resolution);
+            components[i] = features.get(i).isEXP() ? new Shifted(component, expShift) : component;
+            total += weights.get(i).doubleValue();
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+
+        return new Mixture(components, cumulative);
+    }
+
+    /**
+     * Builds the sampler of a single stochastic feature.
+     */
+    public static DurationSampler of(StochasticTransitionFeature feature, double horizon, double resolution) {
+        double eft = feature.density().getDomainsEFT().doubleValue();
+        double lft = feature.density().getDomainsLFT().doubleValue();
+
+        if (feature.isEXP())
+            return new Exponential(ClosedFormCDF.density(feature, 0.0));
+
+        if (eft == lft)
+            return new Deterministic(eft);
+
+        if (feature.density().getDomains().size() == 1 && Double.isFinite(lft)) {
+            double density = ClosedFormCDF.density(feature, eft);
+            if (density == ClosedFormCDF.density(feature, (eft + lft) / 2)
+                    && density == ClosedFormCDF.density(feature, lft))
+                return new Uniform(eft, lft);
+        }
+
+        int samples = (int) Math.ceil(Math.min(lft, horizon) / resolution) + 1;
+        double[] cdf = ClosedFormCDF.of(feature, samples, resolution);
+        if (cdf == null)
+            throw new IllegalArgumentException("Unsupported stochastic feature");
+        return new Tabulated(cdf, resolution);
+    }
+
+    private static class Exponential extends DurationSampler {
+        private final double rate;
+
+        Exponential(double rate) {
+            if (!(rate > 0))
+                throw new IllegalArgumentException("Rate must be positive");
+            this.rate = rate;
+        }
+
+        @Override
+        public double inverse(double u) {
+            return -Math.log1p(-u) / rate;
+        }
+    }
+
+    private static class Deterministic extends DurationSampler {
+        private final double value;
+
+        Deterministic(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double inverse(double u) {
+            return value;
+        }
+    }
+
+    private static class Uniform extends DurationSampler {
+        private final double min;
+        private final double width;
+
+        Uniform(double min, double max) {
+            this.min = min;
+            this.width = max - min;
+        }
+
+        @Override
+        public double inverse(double u) {
+            return min + u * width;
+        }
+    }
+
+    /**
+     * Inverse of a CDF sampled on a grid, with linear interpolation.
+     */
+    private static class Tabulated extends DurationSampler {
+        private final double[] cdf;
+        private final double step;
+
+        Tabulated(double[] cdf, double step) {
+            this.cdf = cdf;
+            this.step = step;
+        }
+
+        @Override
+        public double inverse(double u) {
+            if (u >= cdf[cdf.length - 1])
+                return Double.POSITIVE_INFINITY;
+
+            int i = Arrays.binarySearch(cdf, u);
+            if (i < 0)
+                i = -i - 1;
+            // first index with cdf[i] >= u, skipping flat regions
+            while (i > 0 && cdf[i - 1] >= u)
+                i--;
+            if (i == 0)
+                return 0.0;
+
+            double fraction = (u - cdf[i - 1]) / (cdf[i] - cdf[i - 1]);
+            return (i - 1 + fraction) * step;
+        }
+    }
+
+    private static class Shifted extends DurationSampler {
+        private final DurationSampler sampler;
+        private final double shift;
+
+        Shifted(DurationSampler sampler, double shift) {
+            this.sampler = sampler;
+            this.shift = shift;
+        }
+
+        @Override
+        public double inverse(double u) {
+            return shift + sampler.inverse(u);
+        }
+    }
+
+    /**
+     * Chooses a component, then reuses the uniform number rescaled within the
+     * chosen slice, so that one random number is used per sample.
+     */
+    private static class Mixture extends DurationSampler {
+        private final DurationSampler[] components;
+        private final double[] cumulative;
+
+        Mixture(DurationSampler[] components, double[] cumulative) {
+            this.components = components;
+            this.cumulative = cumulative;
+        }
+
+        @Override
+        public double inverse(double u) {
+            double lower = 0;
+            for (int i = 0; i < components.length; i++) {
+                if (u < cumulative[i] || i == components.length - 1) {
+                    double slice = cumulative[i] - lower;
+                    double v = slice > 0 ? (u - lower) / slice : 0;
+                    return components[i].inverse(Math.min(Math.max(v, 0), Math.nextDown(1.0)));
+                }
+                lower = cumulative[i];
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
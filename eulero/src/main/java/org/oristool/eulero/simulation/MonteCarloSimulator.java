@@ -0,0 +1,194 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.TimeGrid;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Estimates the CDF of the completion time of an activity by Monte Carlo
+ * simulation on multiple threads, running a {@link SamplerProgram} compiled
+ * from the activity instead of the token game of its Petri net.
+ *
+ * Runs are split in fixed-size chunks, each with its own random stream split
+ * from the seed in chunk order. Worker threads take chunks from a shared
+ * counter and fill their own {@link CompletionHistogram}; histograms are
+ * merged at the end. The result therefore depends only on the seed and the
+ * number of runs, not on the number of threads or on their scheduling. The
+ * calling thread is one of the workers, the others run on the executor of
+ * the simulator.
+ */
+public class MonteCarloSimulator {
+    public static final int CHUNK_RUNS = 4096;
+
+    private final SamplerProgram program;
+    private final int samples;
+    private final double step;
+    private final Executor executor;
+
+    /**
+     * Builds a simulator whose additional workers run in the common fork-join
+     * pool.
+     */
+    public MonteCarloSimulator(Activity activity, BigDecimal timeLimit, BigDecimal step) {
+        this(activity, timeLimit, step, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the workers other than the calling thread
+     */
+    public MonteCarloSimulator(Activity activity, BigDecimal timeLimit, BigDecimal step, Executor executor) {
+        TimeGrid grid = TimeGrid.of(step);
+        this.samples = grid.samples(timeLimit);
+        this.step = grid.delta();
+        this.program = SamplerProgram.compile(activity, timeLimit.doubleValue(), this.step);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public int samples() {
+        return samples;
+    }
+
+    public double step() {
+        return step;
+    }
+
+    public SamplerProgram program() {
+        return program;
+    }
+
+    /**
+     * Empty accumulator on the grid of this simulator.
+     */
+    public CompletionHistogram histogram() {
+        return new CompletionHistogram(samples, step);
+    }
+
+    /**
+     * Simulates the activity and returns its CDF sampled at
+     * {@code 0, step, ..., timeLimit}.
+     */
+    public double[] simulate(int runs, int threads, long seed) {
+        return accumulate(histogram(), runs, threads, seed).cdf();
+    }
+
+    /**
+     * Number of runs completing in each interval {@code ((t-1) * step, t * step]}.
+     */
+    public long[] count(int runs, int threads, long seed) {
+        return accumulate(histogram(), runs, threads, seed).counts();
+    }
+
+    /**
+     * Simulates until the confidence interval of the CDF is at most
+     * {@code halfWidth}, or until {@code maxRuns} runs.
+     *
+     * Runs are added in batches sized from the projected number of runs
+     * needed, at most doubling the runs at each step; the histogram reports
+     * the runs used and {@link CompletionHistogram#halfWidth(ConfidenceBound, double)}
+     * the error achieved. Batches use seeds drawn from {@code seed}, so the
+     * result is reproducible.
+     */
+    public CompletionHistogram simulateUntil(double halfWidth, ConfidenceBound bound, double confidence,
+                                             long maxRuns, int threads, long seed) {
+        if (!(halfWidth > 0) || !(confidence > 0 && confidence < 1))
+            throw new IllegalArgumentException("Half-width and confidence must be in (0, 1)");
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        CompletionHistogram histogram = histogram();
+        long batch = CHUNK_RUNS;
+        while (histogram.runs() < maxRuns) {
+            int runs = (int) Math.min(Math.min(batch, maxRuns - histogram.runs()), Integer.MAX_VALUE);
+            accumulate(histogram, runs, threads, seeds.nextLong());
+
+            double achieved = histogram.halfWidth(bound, confidence);
+            if (achieved <= halfWidth)
+                break;
+
+            // half-width shrinks as 1/sqrt(runs)
+            double ratio = achieved / halfWidth;
+            long needed = (long) Math.ceil(histogram.runs() * ratio * ratio);
+            batch = Math.max(CHUNK_RUNS, Math.min(needed - histogram.runs(), histogram.runs()));
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Adds the given number of runs to an accumulator, which may hold runs
+     * of previous calls or be restored from a checkpoint; each call must use
+     * a different seed for the runs to be independent.
+     *
+     * @return the accumulator
+     */
+    public CompletionHistogram accumulate(CompletionHistogram histogram, int runs, int threads, long seed) {
+        if (runs <= 0 || threads <= 0)
+            throw new IllegalArgumentException("Runs and threads must be positive");
+        if (histogram.samples() != samples || histogram.step() != step)
+            throw new IllegalArgumentException("Histogram grid does not match the simulation");
+
+        int chunks = (runs + CHUNK_RUNS - 1) / CHUNK_RUNS;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            streams[c] = root.split();
+        }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        Supplier<CompletionHistogram> worker = () -> {
+            CompletionHistogram partial = histogram.emptyCopy();
+            double[] registers = new double[program.registers()];
+            for (int c = nextChunk.getAndIncrement(); c < chunks; c = nextChunk.getAndIncrement()) {
+                int chunkRuns = Math.min(CHUNK_RUNS, runs - c * CHUNK_RUNS);
+                SplittableRandom random = streams[c];
+                for (int r = 0; r < chunkRuns; r++) {
+                    partial.add(program.sample(random, registers));
+                }
+            }
+            return partial;
+        };
+
+        List<CompletableFuture<CompletionHistogram>> helpers = new ArrayList<>();
+        for (int w = 1; w < Math.min(threads, chunks); w++) {
+            helpers.add(CompletableFuture.supplyAsync(worker, executor));
+        }
+
+        histogram.merge(worker.get());
+        try {
+            for (CompletableFuture<CompletionHistogram> helper : helpers) {
+                histogram.merge(helper.join());
+            }
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+
+        return histogram;
+    }
+}
@@ -0,0 +1,167 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch of the quantiles of positive values with bounded relative
+ * error.
+ *
+ * Values are counted in logarithmic buckets {@code (gamma^(i-1), gamma^i]}
+ * with {@code gamma = (1 + accuracy) / (1 - accuracy)}, so that every
+ * quantile is returned within a relative error {@code accuracy} of a value
+ * of the sample, whatever the range of values. Buckets are held in a dense
+ * array grown on demand; sketches with the same accuracy are merged by adding
+ * counts.
+ */
+public class QuantileSketch {
+    public static final double DEFAULT_ACCURACY = 0.005;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private long[] buckets = new long[0];
+    private int offset;
+    private long zeros;
+    private long infinities;
+    private long count;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public QuantileSketch(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1))
+            throw new IllegalArgumentException("Accuracy must be in (0, 1)");
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public double accuracy() {
+        return accuracy;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long times) {
+        if (Double.isNaN(value) || value < 0)
+            throw new IllegalArgumentException("Values must be non-negative");
+
+        count += times;
+        if (value == 0) {
+            zeros += times;
+        } else if (Double.isInfinite(value)) {
+            infinities += times;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / logGamma);
+            grow(index);
+            buckets[index - offset] += times;
+        }
+    }
+
+    /**
+     * Adds the counts of another sketch with the same accuracy.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy)
+            throw new IllegalArgumentException("Sketches have different accuracy");
+
+        for (int i = 0; i < other.buckets.length; i++) {
+            if (other.buckets[i] > 0) {
+                grow(other.offset + i);
+                buckets[other.offset + i - offset] += other.buckets[i];
+            }
+        }
+        zeros += other.zeros;
+        infinities += other.infinities;
+        count += other.count;
+    }
+
+    /**
+     * Value of the sample at quantile {@code q} in [0, 1], within relative
+     * error {@link #accuracy()}; {@code Double.POSITIVE_INFINITY} for values
+     * beyond the simulation horizon.
+     */
+    public double quantile(double q) {
+        if (count == 0)
+            throw new IllegalStateException("Empty sketch");
+        if (q < 0 || q > 1)
+            throw new IllegalArgumentException("Quantile must be in [0, 1]");
+
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeros)
+            return 0.0;
+
+        long seen = zeros;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (rank < seen)
+                return 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void grow(int index) {
+        if (buckets.length == 0) {
+            buckets = new long[8];
+            offset = index;
+        } else if (index < offset) {
+            int shift = Math.max(offset - index, buckets.length / 2);
+            long[] grown = new long[buckets.length + shift];
+            System.arraycopy(buckets, 0, grown, shift, buckets.length);
+            buckets = grown;
+            offset -= shift;
+        } else if (index - offset >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(index - offset + 1, buckets.length * 2));
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeDouble(accuracy);
+        out.writeLong(zeros);
+        out.writeLong(infinities);
+        out.writeLong(count);
+        out.writeInt(offset);
+        out.writeInt(buckets.length);
+        for (long b : buckets)
+            out.writeLong(b);
+    }
+
+    static QuantileSketch read(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readDouble());
+        sketch.zeros = in.readLong();
+        sketch.infinities = in.readLong();
+        sketch.count = in.readLong();
+        sketch.offset = in.readInt();
+        sketch.buckets = new long[in.readInt()];
+        for (int i = 0; i < sketch.buckets.length; i++)
+            sketch.buckets[i] = in.readLong();
+        return sketch;
+    }
+}
@@ -0,0 +1,337 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.oristool.eulero.modeling.*;
+
+import java.util.*;
+
+/**
+ * Flat program computing a sample of the completion time of an activity.
+ *
+ * The activity tree is compiled once into primitive instruction arrays over
+ * a register file: leaves are sampled by inverse transform, SEQ blocks add,
+ * AND blocks and DAG joins take maxima, XOR blocks jump to the chosen branch.
+ * DAG nodes are emitted in topological order. Running the program allocates
+ * nothing: each thread passes its own register array.
+ *
+ * The semantics are those of simulating the STPN built by
+ * {@link Activity#buildSTPN}.
+ */
+public class SamplerProgram {
+    private static final int LEAF = 0;
+    private static final int ZERO = 1;
+    private static final int ADD = 2;
+    private static final int MAX = 3;
+    private static final int CHOOSE = 4;
+    private static final int JUMP = 5;
+    private static final int MOVE = 6;
+
+    private final int[] opcodes;
+    private final int[] targets;
+    private final int[] first;
+    private final int[] second;
+    private final DurationSampler[] leaves;
+    private final String[] leafNames;
+    private final double[][] choices;
+    private final String[] choiceNames;
+    private final int[][] branches;
+    private final int registers;
+    private final int likelihood;
+    private final int result;
+
+    private SamplerProgram(Compiler compiler, int result) {
+        this.opcodes = compiler.opcodes.stream().mapToInt(Integer::intValue).toArray();
+        this.targets = compiler.targets.stream().mapToInt(Integer::intValue).toArray();
+        this.first = compiler.first.stream().mapToInt(Integer::intValue).toArray();
+        this.second = compiler.second.stream().mapToInt(Integer::intValue).toArray();
+        this.leaves = compiler.leaves.toArray(new DurationSampler[0]);
+        this.leafNames = compiler.leafNames.toArray(new String[0]);
+        this.choices = compiler.choices.toArray(new double[0][]);
+        this.choiceNames = compiler.choiceNames.toArray(new String[0]);
+        this.branches = compiler.branches.toArray(new int[0][]);
+        // last register: likelihood ratio of the run
+        this.likelihood = compiler.registers;
+        this.registers = compiler.registers + 1;
+        this.result = result;
+    }
+
+    /**
+     * Compiles the sampler of an activity.
+     *
+     * @param horizon largest completion time of interest
+     * @param resolution grid step used to tabulate general densities
+     */
+    public static SamplerProgram compile(Activity activity, double horizon, double resolution) {
+        Compiler compiler = new Compiler(horizon, resolution);
+        int result = compiler.compile(activity);
+        return new SamplerProgram(compiler, result);
+    }
+
+    /**
+     * Size of the register array required by {@link #sample}.
+     */
+    public int registers() {
+        return registers;
+    }
+
+    public int instructions() {
+        return opcodes.length;
+    }
+
+    public int leaves() {
+        return leaves.length;
+    }
+
+    /**
+     * Names of the activities sampled by each leaf, in the order of their
+     * uniform numbers.
+     */
+    public List<String> leafNames() {
+        return List.of(leafNames);
+    }
+
+    /**
+     * Names of the XOR blocks of each choice, in the order of their uniform
+     * numbers (after those of the leaves).
+     */
+    public List<String> choiceNames() {
+        return List.of(choiceNames);
+    }
+
+    /**
+     * Number of uniform numbers used by {@link #sample(double[], double[], boolean)}:
+     * one per leaf, then one per XOR block.
+     */
+    public int uniforms() {
+        return leaves.length + choices.length;
+    }
+
+    /**
+     * Samples a completion time.
+     *
+     * @param random random stream
+     * @param registers scratch array with at least {@link #registers()} elements
+     */
+    public double sample(SplittableRandom random, double[] registers) {
+        return run(random, null, false, registers);
+    }
+
+    /**
+     * Samples a completion time from given uniform numbers, so that runs can
+     * share or transform them (antithetic variates, common random numbers).
+     *
+     * With {@code uniformBranches}, XOR branches are chosen with equal
+     * probability instead of their own; the likelihood ratio of the run is
+     * then returned by {@link #weight(double[])}.
+     *
+     * @param uniforms numbers in [0, 1), at least {@link #uniforms()}
+     * @param registers scratch array with at least {@link #registers()} elements
+     */
+    public double sample(double[] uniforms, double[] registers, boolean uniformBranches) {
+        return run(null, uniforms, uniformBranches, registers);
+    }
+
+    /**
+     * Likelihood ratio of the last run sampled with uniform XOR branches.
+     */
+    public double weight(double[] registers) {
+        return registers[likelihood];
+    }
+
+    private double run(SplittableRandom random, double[] uniforms, boolean uniformBranches, double[] registers) {
+        registers[likelihood] = 1.0;
+        int pc = 0;
+        while (pc < opcodes.length) {
+            int target = targets[pc];
+            switch (opcodes[pc]) {
+                case LEAF:
+                    registers[target] = leaves[first[pc]].inverse(
+                            random != null ? random.nextDouble() : uniforms[first[pc]]);
+                    break;
+                case ZERO:
+                    registers[target] = 0.0;
+                    break;
+                case ADD:
+                    registers[target] = registers[first[pc]] + registers[second[pc]];
+                    break;
+                case MAX:
+                    registers[target] = Math.max(registers[first[pc]], registers[second[pc]]);
+                    break;
+                case MOVE:
+                    registers[target] = registers[first[pc]];
+                    break;
+                case JUMP:
+                    pc = target;
+                    continue;
+                case CHOOSE:
+                    double[] cumulative = choices[first[pc]];
+                    int n = cumulative.length;
+                    double u = random != null ? random.nextDouble() : uniforms[leaves.length + first[pc]];
+                    int branch = 0;
+                    if (uniformBranches) {
+                        branch = Math.min(n - 1, (int) (u * n));
+                        double p = cumulative[branch] - (branch > 0 ? cumulative[branch - 1] : 0);
+                        registers[likelihood] *= p / cumulative[n - 1] * n;
+                    } else {
+                        u *= cumulative[n - 1];
+                        while (branch < n - 1 && u >= cumulative[branch])
+                            branch++;
+                    }
+                    pc = branches[first[pc]][branch];
+                    continue;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + opcodes[pc]);
+            }
+            pc++;
+        }
+
+        return registers[result];
+    }
+
+    private static class Compiler {
+        private final double horizon;
+        private final double resolution;
+        private final List<Integer> opcodes = new ArrayList<>();
+        private final List<Integer> targets = new ArrayList<>();
+        private final List<Integer> first = new ArrayList<>();
+        private final List<Integer> second = new ArrayList<>();
+        private final List<DurationSampler> leaves = new ArrayList<>();
+        private final List<String> leafNames = new ArrayList<>();
+        private final List<double[]> choices = new ArrayList<>();
+        private final List<String> choiceNames = new ArrayList<>();
+        private final List<int[]> branches = new ArrayList<>();
+        private int registers;
+
+        Compiler(double horizon, double resolution) {
+            this.horizon = horizon;
+            this.resolution = resolution;
+        }
+
+        private int emit(int opcode, int target, int a, int b) {
+            opcodes.add(opcode);
+            targets.add(target);
+            first.add(a);
+            second.add(b);
+            return opcodes.size() - 1;
+        }
+
+        private int register() {
+            return registers++;
+        }
+
+        /**
+         * Emits the instructions sampling the activity.
+         *
+         * @return the register holding the sample
+         */
+        int compile(Activity activity) {
+            if (activity instanceof Simple) {
+                int r = register();
+                leaves.add(DurationSampler.of((Simple) activity, horizon, resolution));
+                leafNames.add(String.valueOf(activity.name()));
+                emit(LEAF, r, leaves.size() - 1, 0);
+                return r;
+            }
+
+            if (activity instanceof XOR)
+                return compileChoice((XOR) activity);
+
+            if (activity.type() == ActivityType.SEQ || activity.type() == ActivityType.AND) {
+                int opcode = activity.type() == ActivityType.SEQ ? ADD : MAX;
+                int r = register();
+                emit(ZERO, r, 0, 0);
+                for (Activity child : activity.activities()) {
+                    int c = compile(child);
+                    emit(opcode, r, r, c);
+                }
+                return r;
+            }
+
+            if (activity instanceof DAG)
+                return compileGraph((DAG) activity);
+
+            throw new IllegalArgumentException("Unsupported activity " + activity);
+        }
+
+        private int compileChoice(XOR xor) {
+            int r = register();
+            List<Double> probs = xor.probs();
+            double[] cumulative = new double[probs.size()];
+            double total = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                total += probs.get(i);
+                cumulative[i] = total;
+            }
+
+            int index = choices.size();
+            choices.add(cumulative);
+            choiceNames.add(String.valueOf(xor.name()));
+            int[] starts = new int[probs.size()];
+            branches.add(starts);
+            emit(CHOOSE, r, index, 0);
+
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = opcodes.size();
+                int c = compile(xor.activities().get(i));
+                emit(MOVE, r, c, 0);
+                jumps.add(emit(JUMP, -1, 0, 0));
+            }
+
+            // all branches continue after the last one
+            for (int jump : jumps) {
+                targets.set(jump, opcodes.size());
+            }
+            return r;
+        }
+
+        private int compileGraph(DAG dag) {
+            CompiledDAG graph = dag.compiled();
+            if (!graph.isAcyclic())
+                throw new IllegalArgumentException("Cycle in " + dag);
+
+            // node ids are in topological order
+            int[] end = new int[graph.size()];
+            Arrays.fill(end, -1);
+            int completion = register();
+            emit(ZERO, completion, 0, 0);
+            for (int id = 0; id < graph.size(); id++) {
+                if (id == graph.begin() || id == graph.end())
+                    continue;
+
+                int start = register();
+                emit(ZERO, start, 0, 0);
+                for (int k = 0; k < graph.preCount(id); k++) {
+                    int e = end[graph.pre(id, k)];
+                    if (e >= 0)
+                        emit(MAX, start, start, e);
+                }
+
+                int d = compile(graph.node(id));
+                emit(ADD, d, start, d);
+                end[id] = d;
+                for (int k = 0; k < graph.postCount(id); k++) {
+                    if (graph.post(id, k) == graph.end())
+                        emit(MAX, completion, completion, d);
+                }
+            }
+            return completion;
+        }
+    }
+}
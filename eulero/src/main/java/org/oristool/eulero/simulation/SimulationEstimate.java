@@ -0,0 +1,82 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+/**
+ * Simulated estimate of a CDF, or of a difference of CDFs, with the variance
+ * of the estimator at each grid point and the variance that plain Monte Carlo
+ * would have with the same number of model runs.
+ */
+public class SimulationEstimate {
+    private final double[] values;
+    private final double[] variance;
+    private final double[] plainVariance;
+    private final long runs;
+
+    public SimulationEstimate(double[] values, double[] variance, double[] plainVariance, long runs) {
+        this.values = values;
+        this.variance = variance;
+        this.plainVariance = plainVariance;
+        this.runs = runs;
+    }
+
+    /**
+     * Estimated values at {@code 0, step, ..., timeLimit}.
+     */
+    public double[] values() {
+        return values.clone();
+    }
+
+    public double[] variance() {
+        return variance.clone();
+    }
+
+    public double[] plainVariance() {
+        return plainVariance.clone();
+    }
+
+    /**
+     * Number of model runs.
+     */
+    public long runs() {
+        return runs;
+    }
+
+    /**
+     * Ratio between the variance of plain Monte Carlo and that of this
+     * estimate at a grid point; values above 1 mean fewer runs are needed for
+     * the same accuracy.
+     */
+    public double varianceReduction(int t) {
+        return variance[t] > 0 ? plainVariance[t] / variance[t] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Ratio between the total variance of plain Monte Carlo and that of this
+     * estimate over the grid.
+     */
+    public double varianceReduction() {
+        double plain = 0;
+        double reduced = 0;
+        for (int t = 0; t < variance.length; t++) {
+            plain += plainVariance[t];
+            reduced += variance[t];
+        }
+        return reduced > 0 ? plain / reduced : Double.POSITIVE_INFINITY;
+    }
+}
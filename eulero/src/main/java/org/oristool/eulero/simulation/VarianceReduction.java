@@ -0,0 +1,235 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Variance reduction schemes for the simulation of {@link SamplerProgram}s.
+ *
+ * <ul>
+ * <li>Antithetic variates: each pair of runs uses uniform numbers {@code u}
+ * and {@code 1 - u}, whose completion times are negatively correlated since
+ * they are monotone in each duration.
+ * <li>Common random numbers: two variants of a model are run on the same
+ * uniform numbers to estimate the difference of their CDFs. Uniform numbers
+ * are matched by activity name, separately for leaves and XOR choices, so
+ * that activities present in both variants are driven by the same numbers
+ * even when the variants have different leaves.
+ * <li>Branch importance sampling: XOR branches are chosen with equal
+ * probability and runs weighted by their likelihood ratio, so that rare
+ * branches, which often drive the tail of the CDF, are simulated as often as
+ * frequent ones.
+ * </ul>
+ *
+ * Each method runs on the calling thread from the given seed and returns a
+ * {@link SimulationEstimate} comparing its variance to plain Monte Carlo with
+ * the same number of model runs.
+ */
+public final class VarianceReduction {
+
+    private VarianceReduction() {}
+
+    /**
+     * Estimates the CDF with {@code pairs} pairs of antithetic runs.
+     */
+    public static SimulationEstimate antithetic(MonteCarloSimulator simulator, int pairs, long seed) {
+        SamplerProgram program = simulator.program();
+        int samples = simulator.samples();
+        double step = simulator.step();
+
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] u = new double[program.uniforms()];
+        double[] v = new double[u.length];
+        double[] registers = new double[program.registers()];
+        long[] minCounts = new long[samples];
+        long[] maxCounts = new long[samples];
+        for (int r = 0; r < pairs; r++) {
+            for (int i = 0; i < u.length; i++) {
+                u[i] = random.nextDouble();
+                v[i] = Math.min(1 - u[i], Math.nextDown(1.0));
+            }
+            double first = program.sample(u, registers, false);
+            double second = program.sample(v, registers, false);
+            add(minCounts, CompletionHistogram.bin(Math.min(first, second), step, samples));
+            add(maxCounts, CompletionHistogram.bin(Math.max(first, second), step, samples));
+        }
+
+        // the pair mean is 1/2 between the two completions and 1 after both
+        double[] values = new double[samples];
+        double[] variance = new double[samples];
+        double[] plain = new double[samples];
+        long min = 0;
+        long max = 0;
+        for (int t = 0; t < samples; t++) {
+            min += minCounts[t];
+            max += maxCounts[t];
+            double mean = 0.5 * (min + max) / pairs;
+            double square = (0.25 * min + 0.75 * max) / pairs;
+            values[t] = mean;
+            variance[t] = Math.max(0, square - mean * mean) / pairs;
+            plain[t] = mean * (1 - mean) / (2.0 * pairs);
+        }
+
+        return new SimulationEstimate(values, variance, plain, 2L * pairs);
+    }
+
+    /**
+     * Estimates the difference between the CDFs of two variants, {@code
+     * first - second}, running both on common random numbers.
+     */
+    public static SimulationEstimate commonRandomNumbers(MonteCarloSimulator first, MonteCarloSimulator second,
+                                                         int runs, long seed) {
+        if (first.samples() != second.samples() || first.step() != second.step())
+            throw new IllegalArgumentException("Simulators have different grids");
+
+        SamplerProgram a = first.program();
+        SamplerProgram b = second.program();
+        int samples = first.samples();
+        double step = first.step();
+
+        Map<String, Integer> shared = new HashMap<>();
+        int[] slotsA = slots(a, shared);
+        int[] slotsB = slots(b, shared);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] u = new double[shared.size()];
+        double[] uA = new double[slotsA.length];
+        double[] uB = new double[slotsB.length];
+        double[] registersA = new double[a.registers()];
+        double[] registersB = new double[b.registers()];
+        long[] countsA = new long[samples];
+        long[] countsB = new long[samples];
+        long[] bothCounts = new long[samples];
+        for (int r = 0; r < runs; r++) {
+            for (int i = 0; i < u.length; i++)
+                u[i] = random.nextDouble();
+            for (int i = 0; i < uA.length; i++)
+                uA[i] = u[slotsA[i]];
+            for (int i = 0; i < uB.length; i++)
+                uB[i] = u[slotsB[i]];
+            double x = a.sample(uA, registersA, false);
+            double y = b.sample(uB, registersB, false);
+            add(countsA, CompletionHistogram.bin(x, step, samples));
+            add(countsB, CompletionHistogram.bin(y, step, samples));
+            add(bothCounts, CompletionHistogram.bin(Math.max(x, y), step, samples));
+        }
+
+        double[] values = new double[samples];
+        double[] variance = new double[samples];
+        double[] plain = new double[samples];
+        long completedA = 0;
+        long completedB = 0;
+        long completedBoth = 0;
+        for (int t = 0; t < samples; t++) {
+            completedA += countsA[t];
+            completedB += countsB[t];
+            completedBoth += bothCounts[t];
+            double fa = (double) completedA / runs;
+            double fb = (double) completedB / runs;
+            double mean = fa - fb;
+            // the squared difference of indicators is 1 when exactly one run completed
+            double square = (double) (completedA + completedB - 2 * completedBoth) / runs;
+            values[t] = mean;
+            variance[t] = Math.max(0, square - mean * mean) / runs;
+            plain[t] = (fa * (1 - fa) + fb * (1 - fb)) / runs;
+        }
+
+        return new SimulationEstimate(values, variance, plain, 2L * runs);
+    }
+
+    /**
+     * Estimates the CDF choosing XOR branches with equal probability and
+     * weighting each run by its likelihood ratio.
+     */
+    public static SimulationEstimate branchImportance(MonteCarloSimulator simulator, int runs, long seed) {
+        SamplerProgram program = simulator.program();
+        int samples = simulator.samples();
+        double step = simulator.step();
+
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] u = new double[program.uniforms()];
+        double[] registers = new double[program.registers()];
+        double[] weights = new double[samples];
+        double[] squares = new double[samples];
+        for (int r = 0; r < runs; r++) {
+            for (int i = 0; i < u.length; i++)
+                u[i] = random.nextDouble();
+            double completion = program.sample(u, registers, true);
+            double weight = program.weight(registers);
+            int index = CompletionHistogram.bin(completion, step, samples);
+            if (index >= 0) {
+                weights[index] += weight;
+                squares[index] += weight * weight;
+            }
+        }
+
+        double[] values = new double[samples];
+        double[] variance = new double[samples];
+        double[] plain = new double[samples];
+        double weight = 0;
+        double square = 0;
+        for (int t = 0; t < samples; t++) {
+            weight += weights[t];
+            square += squares[t];
+            double mean = weight / runs;
+            values[t] = mean;
+            variance[t] = Math.max(0, square / runs - mean * mean) / runs;
+            plain[t] = Math.max(0, mean * (1 - mean)) / runs;
+        }
+
+        return new SimulationEstimate(values, variance, plain, runs);
+    }
+
+    /**
+     * Index in the shared uniform numbers of each uniform number of a
+     * program, adding the missing ones to {@code shared}. The k-th leaf (or
+     * XOR block) with a given name matches the k-th one of the other variant,
+     * so that no two activities of a run share a number.
+     */
+    private static int[] slots(SamplerProgram program, Map<String, Integer> shared) {
+        List<String> keys = new ArrayList<>();
+        keys.addAll(keys("leaf:", program.leafNames()));
+        keys.addAll(keys("xor:", program.choiceNames()));
+
+        int[] slots = new int[keys.size()];
+        for (int i = 0; i < slots.length; i++) {
+            Integer slot = shared.putIfAbsent(keys.get(i), shared.size());
+            slots[i] = slot != null ? slot : shared.size() - 1;
+        }
+        return slots;
+    }
+
+    private static List<String> keys(String kind, List<String> names) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (String name : names) {
+            keys.add(kind + name + "#" + occurrences.merge(name, 1, Integer::sum));
+        }
+        return keys;
+    }
+
+    private static void add(long[] counts, int index) {
+        if (index >= 0)
+            counts[index]++;
+    }
+}
@@ -0,0 +1,56 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.solver;
+
+/**
+ * Predicted cost of an analysis.
+ */
+public class CostEstimate {
+    private final AnalysisPath path;
+    private final double seconds;
+    private final double bytes;
+
+    public CostEstimate(AnalysisPath path, double seconds, double bytes) {
+        this.path = path;
+        this.seconds = seconds;
+        this.bytes = bytes;
+    }
+
+    public AnalysisPath path() {
+        return path;
+    }
+
+    /**
+     * Predicted wall-clock time, in seconds.
+     */
+    public double seconds() {
+        return seconds;
+    }
+
+    /**
+     * Predicted allocated memory, in bytes.
+     */
+    public double bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.3f s, %.1f MB", path, seconds, bytes / 1e6);
+    }
+}
@@ -18,15 +18,272 @@
 package org.oristool.eulero.solver;
 
 import org.oristool.analyzer.graph.SuccessionGraph;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ActivityType;
 import org.oristool.petrinet.PetriNet;
 import org.oristool.util.Pair;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
 /**
- * Estimates the cost of regenerative transient analysis from a class graph.
+ * Predicts the runtime and memory of the analysis of a block from its
+ * structure, time limit, step and error target.
+ *
+ * Costs follow a power law in the features of the block, so the logarithm of
+ * time and of allocated memory is linear in
+ * {@code [1, ln C, ln Q, ln size, ln samples, -ln error]}, where C is the
+ * structural upper bound on concurrency and size the number of nested
+ * activities. Each analysis path has its own coefficients, which start from
+ * rough defaults and are fitted by least squares on recorded runs with
+ * {@link #calibrate()}.
  */
 public class CostEstimator {
+    private static final int FEATURES = 6;
+    private static final double RIDGE = 1e-6;
+
+    private final Map<AnalysisPath, double[]> timeCoefficients = new EnumMap<>(AnalysisPath.class);
+    private final Map<AnalysisPath, double[]> memoryCoefficients = new EnumMap<>(AnalysisPath.class);
+    private final List<Observation> observations = new ArrayList<>();
+
+    public CostEstimator() {
+        // defaults: ln(seconds) and ln(bytes) for [1, ln C, ln Q, ln size, ln samples, -ln error]
+        timeCoefficients.put(AnalysisPath.REGENERATIVE, new double[] { Math.log(1e-5), 3, 0, 0, 1, 0 });
+        timeCoefficients.put(AnalysisPath.FORWARD, new double[] { Math.log(1e-5), 2, 1, 0, 1, 0 });
+        timeCoefficients.put(AnalysisPath.NUMERICAL, new double[] { Math.log(1e-8), 0, 0, 1, 1.1, 0 });
+        timeCoefficients.put(AnalysisPath.SIMULATION, new double[] { Math.log(1e-6), 0, 0, 1, 0.1, 2 });
+        memoryCoefficients.put(AnalysisPath.REGENERATIVE, new double[] { Math.log(1e4), 3, 0, 0, 1, 0 });
+        memoryCoefficients.put(AnalysisPath.FORWARD, new double[] { Math.log(1e4), 2, 1, 0, 1, 0 });
+        memoryCoefficients.put(AnalysisPath.NUMERICAL, new double[] { Math.log(64), 0, 0, 1, 1, 0 });
+        memoryCoefficients.put(AnalysisPath.SIMULATION, new double[] { Math.log(1e3), 0, 0, 1, 0.1, 2 });
+    }
+
     public static double edgeCount(Pair<SuccessionGraph, PetriNet> input) {
         SuccessionGraph graph = input.first();
         return graph.getSuccessions().size();
     }
+
+    /**
+     * Number of simulation runs needed for a CDF with the given maximum error,
+     * with 95% confidence (Dvoretzky–Kiefer–Wolfowitz inequality).
+     */
+    public static int simulationRuns(BigDecimal error) {
+        double epsilon = error.doubleValue();
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(Math.log(2 / 0.05) / (2 * epsilon * epsilon)));
+    }
+
+    /**
+     * Predicts the cost of computing the CDF of the block with the given path.
+     */
+    public CostEstimate estimate(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, AnalysisPath path) {
+        double[] x = features(model, timeLimit, step, error);
+        synchronized (this) {
+            return new CostEstimate(path,
+                    Math.exp(dot(timeCoefficients.get(path), x)),
+                    Math.exp(dot(memoryCoefficients.get(path), x)));
+        }
+    }
+
+    /**
+     * Returns the cheapest predicted path among the candidates. All paths meet
+     * the error target: transient analyses use it as truncation error, and
+     * simulations use {@link #simulationRuns(BigDecimal)} runs.
+     */
+    public CostEstimate cheapest(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, Collection<AnalysisPath> candidates) {
+        CostEstimate best = null;
+        for (AnalysisPath path : candidates) {
+            CostEstimate estimate = estimate(model, timeLimit, step, error, path);
+            if (best == null || estimate.seconds() < best.seconds())
+                best = estimate;
+        }
+
+        if (best == null)
+            throw new IllegalArgumentException("No candidate analysis path");
+        return best;
+    }
+
+    /**
+     * Predicts the cost of the whole analysis of a model: XOR, AND and SEQ
+     * blocks are composed numerically from their nested blocks, other blocks
+     * are solved with their cheapest path. Peak memory is the largest
+     * predicted for a single block.
+     */
+    public CostEstimate estimateAnalysis(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error) {
+        if (model.type() == ActivityType.SIMPLE)
+            return estimate(model, timeLimit, step, error, AnalysisPath.NUMERICAL);
+
+        if (model.type() == ActivityType.DAG)
+            return cheapest(model, timeLimit, step, error,
+                    EnumSet.of(AnalysisPath.FORWARD, AnalysisPath.REGENERATIVE, AnalysisPath.SIMULATION));
+
+        CostEstimate composition = estimate(model, timeLimit, step, error, AnalysisPath.NUMERICAL);
+        double seconds = composition.seconds();
+        double bytes = composition.bytes();
+        for (Activity nested : model.activities()) {
+            CostEstimate estimate = estimateAnalysis(nested, timeLimit, step, error);
+            seconds += estimate.seconds();
+            bytes = Math.max(bytes, estimate.bytes());
+        }
+
+        return new CostEstimate(AnalysisPath.NUMERICAL, seconds, bytes);
+    }
+
+    /**
+     * Records the measured cost of an analysis, for later calibration.
+     */
+    public void record(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error, AnalysisPath path, double seconds, double bytes) {
+        double[] x = features(model, timeLimit, step, error);
+        synchronized (this) {
+            observations.add(new Observation(path, x, seconds, bytes));
+        }
+    }
+
+    public synchronized int observations() {
+        return observations.size();
+    }
+
+    /**
+     * Fits the coefficients of each path with enough recorded runs (at least
+     * as many as the features) by least squares on the log-costs.
+     */
+    public synchronized void calibrate() {
+        for (AnalysisPath path : AnalysisPath.values()) {
+            List<Observation> runs = new ArrayList<>();
+            for (Observation o : observations) {
+                if (o.path == path && o.seconds > 0 && o.bytes > 0)
+                    runs.add(o);
+            }
+
+            if (runs.size() < FEATURES)
+                continue;
+
+            timeCoefficients.put(path, fit(runs, true, timeCoefficients.get(path)));
+            memoryCoefficients.put(path, fit(runs, false, memoryCoefficients.get(path)));
+        }
+    }
+
+    /**
+     * Writes the recorded runs to a CSV file.
+     */
+    public synchronized void save(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("path,lnC,lnQ,lnSize,lnSamples,lnInverseError,seconds,bytes\n");
+            for (Observation o : observations) {
+                StringBuilder line = new StringBuilder(o.path.name());
+                for (int i = 1; i < FEATURES; i++)
+                    line.append(",").append(o.features[i]);
+                line.append(",").append(o.seconds).append(",").append(o.bytes).append("\n");
+                writer.write(line.toString());
+            }
+        }
+    }
+
+    /**
+     * Loads runs recorded with {@link #save(Path)} and recalibrates.
+     */
+    public synchronized void load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line = reader.readLine();  // header
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                String[] fields = line.split(",");
+                double[] x = new double[FEATURES];
+                x[0] = 1;
+                for (int i = 1; i < FEATURES; i++)
+                    x[i] = Double.parseDouble(fields[i]);
+                observations.add(new Observation(AnalysisPath.valueOf(fields[0]), x,
+                        Double.parseDouble(fields[FEATURES]), Double.parseDouble(fields[FEATURES + 1])));
+            }
+        }
+        calibrate();
+    }
+
+    private static double[] features(Activity model, BigDecimal timeLimit, BigDecimal step, BigDecimal error) {
+        return new double[] {
+                1,
+                Math.log(Math.max(1, model.upperBoundC(false).doubleValue())),
+                Math.log(Math.max(1, model.Q().doubleValue())),
+                Math.log(Math.max(1, size(model))),
+                Math.log(Math.max(1, timeLimit.doubleValue() / step.doubleValue() + 1)),
+                -Math.log(Math.min(1, error.doubleValue()))
+        };
+    }
+
+    private static int size(Activity model) {
+        int size = 1;
+        for (Activity nested : model.nested()) {
+            size += size(nested);
+        }
+        return size;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i] * b[i];
+        return sum;
+    }
+
+    /**
+     * Solves the normal equations by Gaussian elimination, with a small ridge
+     * term towards the previous coefficients that keeps the fit well-posed
+     * when some features never vary in the recorded runs.
+     */
+    private static double[] fit(List<Observation> runs, boolean time, double[] previous) {
+        double[][] a = new double[FEATURES][FEATURES + 1];
+        for (Observation o : runs) {
+            double y = Math.log(time ? o.seconds : o.bytes);
+            for (int i = 0; i < FEATURES; i++) {
+                for (int j = 0; j < FEATURES; j++)
+                    a[i][j] += o.features[i] * o.features[j];
+                a[i][FEATURES] += o.features[i] * y;
+            }
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            a[i][i] += RIDGE * runs.size();
+            a[i][FEATURES] += RIDGE * runs.size() * previous[i];
+        }
+
+        for (int col = 0; col < FEATURES; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < FEATURES; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col]))
+                    pivot = row;
+            }
+            double[] swap = a[col]; a[col] = a[pivot]; a[pivot] = swap;
+
+            for (int row = 0; row < FEATURES; row++) {
+                if (row != col) {
+                    double factor = a[row][col] / a[col][col];
+                    for (int k = col; k <= FEATURES; k++)
+                        a[row][k] -= factor * a[col][k];
+                }
+            }
+        }
+
+        double[] coefficients = new double[FEATURES];
+        for (int i = 0; i < FEATURES; i++)
+            coefficients[i] = a[i][FEATURES] / a[i][i];
+        return coefficients;
+    }
+
+    private static class Observation {
+        private final AnalysisPath path;
+        private final double[] features;
+        private final double seconds;
+        private final double bytes;
+
+        private Observation(AnalysisPath path, double[] features, double seconds, double bytes) {
+            this.path = path;
+            this.features = features;
+            this.seconds = seconds;
+            this.bytes = bytes;
+        }
+    }
 }
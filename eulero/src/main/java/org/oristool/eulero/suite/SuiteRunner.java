@@ -0,0 +1,337 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.suite;
+
+import org.oristool.eulero.evaluation.heuristics.AnalysisBudget;
+import org.oristool.eulero.evaluation.heuristics.EvaluationResult;
+import org.oristool.eulero.evaluation.heuristics.ResultStore;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ModelFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.function.Supplier;
+
+/**
+ * Generates and analyzes the models of a suite as independent tasks.
+ *
+ * Each case has a directory, relative to the suite directory, where its model
+ * is saved before the analysis ({@code structure_tree.bin}) and its result
+ * after it ({@code results.bin}, optionally with CSV files). Cases run on a
+ * fixed pool of {@code threads} threads.
+ *
+ * Finished cases are appended to {@code progress.tsv}: after an interruption,
+ * running the same suite skips them, and cases whose model was already
+ * generated reuse it.
+ *
+ * Analyses receive the {@link AnalysisBudget} of the suite, if any; a case
+ * whose result has blocks solved with a cheaper path to fit it is recorded
+ * as {@code DEGRADED}, with its result. A case exceeding its time budget is
+ * interrupted and recorded as
+ * {@code TIMEOUT}, without storing its result; a case exhausting the heap is
+ * recorded as {@code OUT_OF_MEMORY}. Either way the suite goes on. Cases are
+ * never abandoned while running, so an analysis ignoring the interruption
+ * keeps its thread until it returns and the suite never uses more than
+ * {@code threads} threads.
+ */
+public class SuiteRunner {
+    public static final String MODEL = "structure_tree.bin";
+    public static final String RESULTS = "results.bin";
+    public static final String PROGRESS = "progress.tsv";
+
+    public enum Status {
+        DONE, DEGRADED, SKIPPED, TIMEOUT, OUT_OF_MEMORY, FAILED
+    }
+
+    /**
+     * Final state of a case.
+     */
+    public static class Outcome {
+        private final String id;
+        private final Status status;
+        private final long millis;
+        private final String message;
+
+        public Outcome(String id, Status status, long millis, String message) {
+            this.id = id;
+            this.status = status;
+            this.millis = millis;
+            this.message = message;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        public long millis() {
+            return millis;
+        }
+
+        public String message() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + status + " " + millis + "ms" + (message.isEmpty() ? "" : " " + message);
+        }
+    }
+
+    private static class Case {
+        final String id;
+        final Supplier<Activity> generator;
+        final BiFunction<Activity, AnalysisBudget, EvaluationResult> analysis;
+
+        Case(String id, Supplier<Activity> generator, BiFunction<Activity, AnalysisBudget, EvaluationResult> analysis) {
+            this.id = id;
+            this.generator = generator;
+            this.analysis = analysis;
+        }
+    }
+
+    /**
+     * Thread running a case, interrupted only until the case ends.
+     */
+    private static class Deadline {
+        private final Thread thread = Thread.currentThread();
+        private boolean running = true;
+        private boolean expired;
+
+        synchronized void expire() {
+            if (running) {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        synchronized boolean close() {
+            running = false;
+            // do not leak the interruption to the next case of the thread
+            Thread.interrupted();
+            return expired;
+        }
+    }
+
+    private final Path directory;
+    private final int threads;
+    private final Map<String, Case> cases = new LinkedHashMap<>();
+    private Duration timeBudget;
+    private AnalysisBudget budget;
+    private boolean retryFailed;
+    private boolean exportCsv = true;
+
+    public SuiteRunner(Path directory, int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Threads must be positive");
+        this.directory = directory;
+        this.threads = threads;
+    }
+
+    /**
+     * Maximum wall-clock time of each case, or {@code null} for no limit.
+     */
+    public void setTimeBudget(Duration timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public AnalysisBudget budget() {
+        return budget;
+    }
+
+    /**
+     * Budget passed to the analysis of each case, or {@code null} for none.
+     * Unlike the time budget, it is enforced by the analysis itself, which
+     * degrades the blocks that do not fit instead of failing.
+     */
+    public void setBudget(AnalysisBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Whether cases recorded as failed are run again, instead of skipped.
+     */
+    public void setRetryFailed(boolean retryFailed) {
+        this.retryFailed = retryFailed;
+    }
+
+    public void setExportCsv(boolean exportCsv) {
+        this.exportCsv = exportCsv;
+    }
+
+    /**
+     * Adds a case; the generator is not called if the model of the case was
+     * saved by a previous run.
+     *
+     * @param id directory of the case, relative to the suite directory
+     */
+    public void add(String id, Supplier<Activity> generator, BiFunction<Activity, AnalysisBudget, EvaluationResult> analysis) {
+        if (id.isEmpty() || id.contains("\t") || id.contains("\n") || Path.of(id).isAbsolute())
+            throw new IllegalArgumentException("Invalid case id: " + id);
+        if (cases.putIfAbsent(id, new Case(id, generator, analysis)) != null)
+            throw new IllegalArgumentException("Repeated case id: " + id);
+    }
+
+    /**
+     * Adds a case whose analysis ignores the budget of the suite.
+     */
+    public void add(String id, Supplier<Activity> generator, Function<Activity, EvaluationResult> analysis) {
+        add(id, generator, (model, budget) -> analysis.apply(model));
+    }
+
+    /**
+     * Runs the cases not finished by previous runs.
+     *
+     * @return the outcome of each case, in the order in which cases were added
+     */
+    public List<Outcome> run() throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        Map<String, Status> finished = readProgress();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "suite-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "suite-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<Outcome>> outcomes = new ArrayList<>();
+        try {
+            for (Case c : cases.values()) {
+                Status previous = finished.get(c.id);
+                if (previous == Status.DONE || previous == Status.DEGRADED || (previous != null && !retryFailed)) {
+                    outcomes.add(CompletableFuture.completedFuture(new Outcome(c.id, Status.SKIPPED, 0, previous.name())));
+                    continue;
+                }
+
+                outcomes.add(pool.submit(() -> run(c, watchdog)));
+            }
+
+            List<Outcome> result = new ArrayList<>();
+            for (Future<Outcome> outcome : outcomes)
+                result.add(outcome.get());
+            return result;
+
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    private Map<String, Status> readProgress() throws IOException {
+        Map<String, Status> finished = new HashMap<>();
+        Path progress = directory.resolve(PROGRESS);
+        if (!Files.exists(progress))
+            return finished;
+
+        for (String line : Files.readAllLines(progress, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", 4);
+            // a line cut by an interruption is ignored
+            if (fields.length == 4)
+                finished.put(fields[1], Status.valueOf(fields[0]));
+        }
+        return finished;
+    }
+
+    private synchronized void record(Outcome outcome) {
+        String line = String.join("\t", outcome.status().name(), outcome.id(),
+                Long.toString(outcome.millis()), outcome.message().replaceAll("\\s+", " ")) + "\n";
+        try {
+            Files.writeString(directory.resolve(PROGRESS), line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Outcome run(Case c, ScheduledExecutorService watchdog) {
+        long start = System.nanoTime();
+        Deadline deadline = new Deadline();
+        ScheduledFuture<?> check = timeBudget == null ? null
+                : watchdog.schedule(deadline::expire, timeBudget.toNanos(), TimeUnit.NANOSECONDS);
+
+        Status status;
+        String message;
+        try {
+            Path caseDirectory = directory.resolve(c.id);
+            Files.createDirectories(caseDirectory);
+            Path modelFile = caseDirectory.resolve(MODEL);
+
+            Activity model;
+            if (Files.exists(modelFile)) {
+                model = ModelFormat.load(modelFile);
+            } else {
+                model = c.generator.get();
+                ModelFormat.save(model, modelFile);
+            }
+            // the analysis may simplify the model in place
+            long modelHash = ModelFormat.hash(model);
+
+            EvaluationResult result = c.analysis.apply(model, budget);
+            if (timeBudget != null && System.nanoTime() - start > timeBudget.toNanos())
+                throw new TimeoutException();
+
+            Path resultFile = caseDirectory.resolve(RESULTS);
+            ResultStore.write(result, modelHash, resultFile);
+            if (exportCsv)
+                ResultStore.open(resultFile).exportCsv(caseDirectory);
+            status = result.degradations().isEmpty() ? Status.DONE : Status.DEGRADED;
+            message = result.degradations().stream().map(Object::toString).collect(Collectors.joining("; "));
+
+        } catch (OutOfMemoryError e) {
+            status = Status.OUT_OF_MEMORY;
+            message = "Heap exhausted";
+        } catch (Throwable e) {
+            status = Status.FAILED;
+            message = String.valueOf(e);
+        }
+
+        if (check != null)
+            check.cancel(false);
+        boolean expired = deadline.close();
+        // an interrupted analysis may fail in any way
+        if (status == Status.FAILED && (expired || timeBudget != null
+                && System.nanoTime() - start > timeBudget.toNanos())) {
+            status = Status.TIMEOUT;
+            message = "Exceeded " + timeBudget;
+        }
+
+        Outcome outcome = new Outcome(c.id, status, (System.nanoTime() - start) / 1_000_000, message);
+        record(outcome);
+        return outcome;
+    }
+}
@@ -0,0 +1,58 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.convolution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FFTConvolutionTest {
+
+    private static double[] randomCdf(SplittableRandom random, int samples) {
+        double[] cdf = new double[samples];
+        for (int i = 1; i < samples; i++) {
+            cdf[i] = cdf[i - 1] + random.nextDouble();
+        }
+        double total = cdf[samples - 1] > 0 ? cdf[samples - 1] : 1;
+        return Arrays.stream(cdf).map(x -> x / total).toArray();
+    }
+
+    @Test
+    void matchesDirectConvolution() {
+        SplittableRandom random = new SplittableRandom(7);
+        ConvolutionKernel direct = new DirectConvolution();
+        ConvolutionKernel fft = new FFTConvolution(0);
+        for (int samples : new int[] { 2, 3, 17, 256, 257, 1000, 1024 }) {
+            double[] first = randomCdf(random, samples);
+            double[] second = randomCdf(random, samples);
+            assertArrayEquals(direct.convolve(first, second), fft.convolve(first, second), 1e-12);
+        }
+    }
+
+    @Test
+    void shortArraysAreConvolvedDirectly() {
+        SplittableRandom random = new SplittableRandom(11);
+        double[] first = randomCdf(random, 100);
+        double[] second = randomCdf(random, 100);
+        assertArrayEquals(new DirectConvolution().convolve(first, second),
+                new FFTConvolution().convolve(first, second), 0);
+    }
+}
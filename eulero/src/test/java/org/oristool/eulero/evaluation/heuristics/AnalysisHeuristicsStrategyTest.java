@@ -0,0 +1,138 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
+import org.oristool.eulero.metrics.AnalysisMetrics;
+import org.oristool.eulero.metrics.InMemoryMetrics;
+import org.oristool.eulero.modeling.*;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AnalysisHeuristicsStrategyTest {
+    private static final BigDecimal TIME_LIMIT = new BigDecimal("6");
+    private static final BigDecimal STEP = new BigDecimal("0.01");
+    private static final BigDecimal FORWARD_REDUCTION = BigDecimal.ONE;
+    private static final BigDecimal ERROR = new BigDecimal("0.001");
+
+    private static Simple uniform(String name, String a, String b) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance(a, b));
+    }
+
+    private static Activity model() {
+        Activity and = DAG.forkJoin("AND", uniform("A", "0", "1"), uniform("B", "0.5", "1.5"), uniform("C", "0", "2"));
+        Activity xor = new XOR("XOR", List.of(uniform("D", "1", "2"), uniform("E", "0", "3")), List.of(0.4, 0.6));
+        return DAG.sequence("SEQ", and, xor, uniform("F", "0", "1"));
+    }
+
+    private static Activity replicatedModel() {
+        // structurally identical branches with different names
+        Activity first = DAG.sequence("S1", uniform("A1", "0", "1"), uniform("B1", "1", "2"));
+        Activity second = DAG.sequence("S2", uniform("A2", "0", "1"), uniform("B2", "1", "2"));
+        Activity third = DAG.sequence("S3", uniform("A3", "0", "1"), uniform("B3", "0", "2"));
+        return DAG.forkJoin("AND", first, second, third);
+    }
+
+    private static AnalysisHeuristicsStrategy strategy() {
+        return new AnalysisHeuristics1(BigInteger.valueOf(3), BigInteger.valueOf(7), new EXPMixtureApproximation(), false);
+    }
+
+    @Test
+    void parallelAnalysisMatchesSequentialAnalysis() {
+        double[] sequential = strategy().analyze(model(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR);
+
+        AnalysisHeuristicsStrategy parallel = strategy();
+        parallel.setParallelism(4);
+        try {
+            assertArrayEquals(sequential, parallel.analyze(model(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR), 0);
+        } finally {
+            parallel.setParallelism(1);
+        }
+    }
+
+    @Test
+    void cachedAnalysisMatchesUncachedAnalysis() {
+        double[] uncached = strategy().analyze(replicatedModel(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR);
+
+        AnalysisHeuristicsStrategy cached = strategy();
+        cached.setCache(new CDFCache());
+        assertArrayEquals(uncached, cached.analyze(replicatedModel(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR), 0);
+        // a second analysis is served from the cache
+        assertArrayEquals(uncached, cached.analyze(replicatedModel(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR), 0);
+    }
+
+    @Test
+    void metricsTimeEveryBlockOnce() {
+        for (int parallelism : new int[] { 1, 4 }) {
+            AnalysisHeuristicsStrategy strategy = strategy();
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            strategy.setMetrics(metrics);
+            strategy.setParallelism(parallelism);
+            try {
+                strategy.analyze(model(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR);
+            } finally {
+                strategy.setParallelism(1);
+            }
+
+            assertEquals(1, metrics.timer(AnalysisMetrics.NODE_TIME + ActivityType.SEQ).count());
+            assertEquals(1, metrics.timer(AnalysisMetrics.NODE_TIME + ActivityType.AND).count());
+            assertEquals(1, metrics.timer(AnalysisMetrics.NODE_TIME + ActivityType.XOR).count());
+            assertEquals(6, metrics.timer(AnalysisMetrics.NODE_TIME + ActivityType.SIMPLE).count());
+            // forked sub-blocks keep the depth of their parent
+            assertEquals(8, metrics.distribution(AnalysisMetrics.RECURSION_DEPTH).count());
+            assertEquals(2, metrics.distribution(AnalysisMetrics.RECURSION_DEPTH).max(), 0);
+        }
+    }
+
+    @Test
+    void traceMirrorsTheRecursion() {
+        for (int parallelism : new int[] { 1, 4 }) {
+            AnalysisHeuristicsStrategy strategy = strategy();
+            AnalysisTrace trace = new AnalysisTrace();
+            strategy.setTrace(trace);
+            strategy.setParallelism(parallelism);
+            try {
+                strategy.analyze(model(), TIME_LIMIT, STEP, FORWARD_REDUCTION, ERROR);
+            } finally {
+                strategy.setParallelism(1);
+            }
+
+            assertEquals(1, trace.roots().size());
+            AnalysisTrace.Node root = trace.roots().get(0);
+            assertEquals("SEQ", root.name());
+            assertEquals(AnalysisTrace.Decision.NUMERICAL, root.decision());
+            // numerical blocks are chosen by type, without evaluating C and Q
+            assertNull(root.C());
+            assertNull(root.Q());
+            assertEquals(3, root.children().size());
+            assertEquals(9, count(root));
+        }
+    }
+
+    private static int count(AnalysisTrace.Node node) {
+        return 1 + node.children().stream().mapToInt(AnalysisHeuristicsStrategyTest::count).sum();
+    }
+}
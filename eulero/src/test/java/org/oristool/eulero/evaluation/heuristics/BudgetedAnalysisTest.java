@@ -0,0 +1,106 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.eulero.evaluation.approximator.EXPMixtureApproximation;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.DAG;
+import org.oristool.eulero.modeling.Simple;
+import org.oristool.eulero.modeling.TimeGrid;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetedAnalysisTest {
+    private static final BigDecimal TIME_LIMIT = new BigDecimal("4");
+    private static final BigDecimal STEP = new BigDecimal("0.01");
+
+    private static Simple uniform(String name) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance("0", "1"));
+    }
+
+    /**
+     * A DAG with reconvergent paths, solved by transient analysis.
+     */
+    private static DAG dag() {
+        Map<String, Activity> nodes = new LinkedHashMap<>();
+        DAG dag = DAG.empty("G");
+        for (String name : List.of("A", "B", "C", "D", "E", "F"))
+            nodes.put(name, uniform(name));
+
+        nodes.get("A").addPrecondition(dag.begin());
+        nodes.get("B").addPrecondition(dag.begin());
+        nodes.get("C").addPrecondition(nodes.get("A"));
+        nodes.get("D").addPrecondition(nodes.get("B"), nodes.get("A"));
+        nodes.get("E").addPrecondition(nodes.get("C"), nodes.get("D"));
+        nodes.get("F").addPrecondition(nodes.get("B"));
+        dag.end().addPrecondition(nodes.get("E"), nodes.get("F"));
+        dag.setActivities(new ArrayList<>(nodes.values()));
+        return dag;
+    }
+
+    private static AnalysisHeuristicsStrategy strategy() {
+        // thresholds high enough for the DAG to be analyzed as a whole
+        return new AnalysisHeuristics1(BigInteger.valueOf(100), BigInteger.valueOf(100), new EXPMixtureApproximation(), false);
+    }
+
+    @Test
+    void blocksOverBudgetFallBackToSimulation() {
+        AnalysisBudget budget = new AnalysisBudget();
+        budget.setAnalysisTime(Duration.ofNanos(1));
+        BudgetedAnalysis analysis = new BudgetedAnalysis(strategy(), budget);
+
+        EvaluationResult result = analysis.evaluate("G", dag(), TIME_LIMIT, STEP);
+
+        assertFalse(result.degradations().isEmpty());
+        Degradation degradation = result.degradations().get(0);
+        assertEquals("G", degradation.block());
+        assertEquals(AnalysisBudget.Resource.ANALYSIS_TIME, degradation.exceeded());
+        assertEquals(Degradation.Fallback.SIMULATION, degradation.fallback());
+
+        double[] cdf = result.cdf();
+        assertEquals(TimeGrid.of(STEP).samples(TIME_LIMIT), cdf.length);
+        for (int t = 1; t < cdf.length; t++)
+            assertTrue(cdf[t] >= cdf[t - 1]);
+        // every path of the DAG ends by time 3
+        assertEquals(1.0, cdf[cdf.length - 1], 0);
+    }
+
+    @Test
+    void analysesWithinBudgetAreNotDegraded() {
+        Activity model = DAG.sequence("SEQ", uniform("A"), uniform("B"));
+        double[] unbudgeted = strategy().analyze(model, TIME_LIMIT, STEP);
+
+        AnalysisBudget budget = new AnalysisBudget();
+        budget.setAnalysisTime(Duration.ofMinutes(1));
+        BudgetedAnalysis analysis = new BudgetedAnalysis(strategy(), budget);
+        EvaluationResult result = analysis.evaluate("SEQ", DAG.sequence("SEQ", uniform("A"), uniform("B")), TIME_LIMIT, STEP);
+
+        assertTrue(result.degradations().isEmpty());
+        assertArrayEquals(unbudgeted, result.cdf(), 0);
+    }
+}
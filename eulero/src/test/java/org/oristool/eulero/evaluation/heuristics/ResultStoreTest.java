@@ -0,0 +1,62 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.evaluation.heuristics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStoreTest {
+
+    @Test
+    void storedResultsAreReadBack(@TempDir Path directory) throws IOException {
+        double[] cdf = { 0.0, 0.1, 0.35, 0.8, 1.0 };
+        EvaluationResult result = new EvaluationResult("Test", cdf, 0, cdf.length, 0.25, 1234);
+        Path file = directory.resolve("results.bin");
+        ResultStore.write(result, 0x1234_5678_9abcL, file);
+
+        ResultStore store = ResultStore.open(file);
+        assertEquals(0.25, store.step(), 0);
+        assertEquals(0, store.min());
+        assertEquals(cdf.length, store.max());
+        assertEquals(cdf.length, store.samples());
+        assertEquals(1234, store.computationTime());
+        assertEquals(0x1234_5678_9abcL, store.modelHash());
+        assertArrayEquals(cdf, store.toResult("Test").cdf(), 0);
+
+        double[] pdf = new double[cdf.length];
+        store.pdf().get(pdf);
+        assertArrayEquals(result.pdf(), pdf, 1e-15);
+    }
+
+    @Test
+    void truncatedFilesAreRejected(@TempDir Path directory) throws IOException {
+        double[] cdf = { 0.0, 0.5, 1.0 };
+        Path file = directory.resolve("results.bin");
+        ResultStore.write(new EvaluationResult("Test", cdf, 0, cdf.length, 0.1, 0), 0, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - Double.BYTES));
+        assertThrows(IOException.class, () -> ResultStore.open(file));
+    }
+}
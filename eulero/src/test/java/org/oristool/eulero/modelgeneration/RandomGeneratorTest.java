@@ -0,0 +1,74 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modelgeneration;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.eulero.modelgeneration.blocksettings.*;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.ModelFormat;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomGeneratorTest {
+
+    private static ArrayList<Set<BlockTypeSetting>> settings(boolean reversed) {
+        List<BlockTypeSetting> level = new ArrayList<>(List.of(
+                new ANDBlockSetting(0.25, 3),
+                new SEQBlockSetting(0.25, 3),
+                new XORBlockSetting(0.25, 3),
+                new DAGBlockSetting(0.25, 2, 3, 2, 2, 1, 1, 2)));
+        if (reversed)
+            Collections.reverse(level);
+
+        ArrayList<Set<BlockTypeSetting>> settings = new ArrayList<>();
+        settings.add(new LinkedHashSet<>(level));
+        settings.add(new LinkedHashSet<>(level));
+        settings.add(new LinkedHashSet<>(level));
+        return settings;
+    }
+
+    private static Activity generate(boolean reversed, long seed) {
+        RandomGenerator generator = new RandomGenerator(
+                StochasticTransitionFeature.newUniformInstance("0", "1"), settings(reversed));
+        return generator.generateBlock(3, seed);
+    }
+
+    @Test
+    void equalSeedsGiveIdenticalModels() {
+        Activity model = generate(false, 42);
+        Activity again = generate(false, 42);
+        assertEquals(ModelFormat.hash(model), ModelFormat.hash(again));
+
+        // settings iterated in another order, on another thread
+        Activity elsewhere = CompletableFuture.supplyAsync(() -> generate(true, 42)).join();
+        assertEquals(ModelFormat.hash(model), ModelFormat.hash(elsewhere));
+    }
+
+    @Test
+    void differentSeedsGiveDifferentModels() {
+        assertNotEquals(ModelFormat.hash(generate(false, 1)), ModelFormat.hash(generate(false, 2)));
+    }
+}
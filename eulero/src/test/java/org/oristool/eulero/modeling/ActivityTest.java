@@ -0,0 +1,68 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActivityTest {
+
+    private static Simple uniform(String name) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance("0", "1"));
+    }
+
+    /**
+     * Adds an activity to a fork-join block, in parallel with the others.
+     */
+    private static void addBranch(DAG block, Activity branch) {
+        branch.addPrecondition(block.begin());
+        block.end().addPrecondition(branch);
+        List<Activity> activities = new ArrayList<>(block.activities());
+        activities.add(branch);
+        block.setActivities(activities);
+    }
+
+    @Test
+    void quantitiesAreRecomputedAfterNestedChanges() {
+        DAG parallel = DAG.forkJoin("F", uniform("A"), uniform("B"));
+        Activity model = new XOR("X", List.of(parallel, uniform("C")), List.of(0.5, 0.5));
+        assertEquals(BigInteger.valueOf(2), model.Q());
+        assertEquals(BigInteger.valueOf(2), model.Q());
+
+        addBranch(parallel, uniform("D"));
+        assertEquals(BigInteger.valueOf(3), model.Q());
+        assertEquals(BigInteger.ONE, model.simplifiedQ());
+    }
+
+    @Test
+    void concurrencyIsRecomputedAfterNestedChanges() {
+        DAG parallel = DAG.forkJoin("F", uniform("A"), uniform("B"));
+        Activity model = new XOR("X", List.of(parallel, uniform("C")), List.of(0.5, 0.5));
+        BigInteger before = model.C();
+
+        addBranch(parallel, uniform("D"));
+        assertEquals(1, model.C().compareTo(before));
+    }
+}
@@ -0,0 +1,90 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.RewardRate;
+import org.oristool.models.stpn.TransientSolution;
+import org.oristool.models.stpn.trees.DeterministicEnablingState;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ClosedFormCDFTest {
+    private static final BigDecimal TIME_LIMIT = new BigDecimal("5");
+    private static final BigDecimal STEP = new BigDecimal("0.01");
+    private static final BigDecimal ERROR = new BigDecimal("0.001");
+
+    /**
+     * CDF of the transient analysis of the Petri net of the activity.
+     */
+    private static double[] transientCDF(Simple simple) {
+        TransientSolution<DeterministicEnablingState, RewardRate> solution =
+                simple.analyze(TIME_LIMIT.toString(), STEP.toString(), ERROR.toString());
+        double[] cdf = new double[solution.getSolution().length];
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] = solution.getSolution()[i][0][0];
+        }
+        return cdf;
+    }
+
+    private static void assertMatchesTransientAnalysis(Simple simple) {
+        double[] closedForm = ClosedFormCDF.of(simple, TIME_LIMIT, STEP, ERROR);
+        assertNotNull(closedForm);
+        assertArrayEquals(transientCDF(simple), closedForm, 2 * ERROR.doubleValue());
+    }
+
+    @Test
+    void exponentialMatchesTransientAnalysis() {
+        assertMatchesTransientAnalysis(new Simple("A", StochasticTransitionFeature.newExponentialInstance(new BigDecimal("1.5"))));
+    }
+
+    @Test
+    void deterministicMatchesTransientAnalysis() {
+        assertMatchesTransientAnalysis(new Simple("A", StochasticTransitionFeature.newDeterministicInstance(new BigDecimal("1.005"))));
+    }
+
+    @Test
+    void uniformMatchesTransientAnalysis() {
+        assertMatchesTransientAnalysis(new Simple("A", StochasticTransitionFeature.newUniformInstance("0.5", "2")));
+    }
+
+    @Test
+    void erlangMatchesTransientAnalysis() {
+        assertMatchesTransientAnalysis(new Simple("A", StochasticTransitionFeature.newErlangInstance(3, new BigDecimal("2"))));
+    }
+
+    @Test
+    void mixturesMatchTransientAnalysis() {
+        assertMatchesTransientAnalysis(new Simple("A",
+                new ArrayList<>(List.of(StochasticTransitionFeature.newUniformInstance("0", "1"),
+                        StochasticTransitionFeature.newExponentialInstance(new BigDecimal("3")))),
+                new ArrayList<>(List.of(new BigDecimal("0.3"), new BigDecimal("0.7")))));
+
+        // unbounded branches do not delay the exponential ones
+        assertMatchesTransientAnalysis(new Simple("B",
+                new ArrayList<>(List.of(StochasticTransitionFeature.newErlangInstance(2, new BigDecimal("4")),
+                        StochasticTransitionFeature.newExponentialInstance(new BigDecimal("1")))),
+                new ArrayList<>(List.of(new BigDecimal("0.5"), new BigDecimal("0.5")))));
+    }
+}
@@ -0,0 +1,148 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledDAGTest {
+
+    private static Simple uniform(String name) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance("0", "1"));
+    }
+
+    /**
+     * A DAG with reconvergent paths: A and B start it, C depends on A, D on
+     * A and B, E on C and D, F on B.
+     */
+    private static DAG model(Map<String, Activity> nodes) {
+        DAG dag = DAG.empty("G");
+        for (String name : List.of("A", "B", "C", "D", "E", "F"))
+            nodes.put(name, uniform(name));
+
+        nodes.get("A").addPrecondition(dag.begin());
+        nodes.get("B").addPrecondition(dag.begin());
+        nodes.get("C").addPrecondition(nodes.get("A"));
+        nodes.get("D").addPrecondition(nodes.get("B"), nodes.get("A"));
+        nodes.get("E").addPrecondition(nodes.get("C"), nodes.get("D"));
+        nodes.get("F").addPrecondition(nodes.get("B"));
+        dag.end().addPrecondition(nodes.get("E"), nodes.get("F"));
+        dag.setActivities(new ArrayList<>(nodes.values()));
+        return dag;
+    }
+
+    /** Events of a visit, in order. */
+    private static DFSObserver recorder(List<String> events) {
+        return new DFSObserver() {
+            @Override public boolean onOpen(Activity opened, Activity from) {
+                events.add("open " + opened.name() + " from " + (from != null ? from.name() : "-"));
+                return true;
+            }
+
+            @Override public boolean onClose(Activity closed) {
+                events.add("close " + closed.name());
+                return true;
+            }
+
+            @Override public boolean onSkip(Activity skipped, Activity from) {
+                events.add("skip " + skipped.name() + " from " + from.name());
+                return true;
+            }
+        };
+    }
+
+    private static Set<Activity> reachable(Activity from, boolean pre) {
+        Set<Activity> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        from.dfs(pre, new DFSObserver() {
+            @Override public boolean onOpen(Activity opened, Activity source) {
+                reached.add(opened);
+                return true;
+            }
+        });
+        return reached;
+    }
+
+    @Test
+    void visitsMatchActivityVisits() {
+        Map<String, Activity> nodes = new LinkedHashMap<>();
+        DAG dag = model(nodes);
+        CompiledDAG graph = dag.compiled();
+
+        List<Activity> starts = new ArrayList<>(nodes.values());
+        starts.add(dag.begin());
+        starts.add(dag.end());
+        for (Activity start : starts) {
+            for (boolean pre : new boolean[] { true, false }) {
+                List<String> expected = new ArrayList<>();
+                List<String> actual = new ArrayList<>();
+                start.dfs(pre, recorder(expected));
+                graph.dfs(start, pre, recorder(actual));
+                assertEquals(expected, actual, start.name() + (pre ? " pre" : " post"));
+            }
+        }
+    }
+
+    @Test
+    void betweenMatchesReachability() {
+        Map<String, Activity> nodes = new LinkedHashMap<>();
+        DAG dag = model(nodes);
+        CompiledDAG graph = dag.compiled();
+
+        List<Activity> all = new ArrayList<>(nodes.values());
+        all.add(dag.begin());
+        all.add(dag.end());
+        for (Activity from : all) {
+            for (Activity to : all) {
+                Set<Activity> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+                expected.addAll(reachable(from, false));
+                expected.retainAll(reachable(to, true));
+                expected.add(from);
+
+                Set<Activity> between = graph.between(from, to);
+                assertEquals(expected, Set.copyOf(between), from.name() + " to " + to.name());
+                assertSame(from, between.iterator().next());
+            }
+        }
+    }
+
+    @Test
+    void onlyEdgeChangesRecompileTheView() {
+        Map<String, Activity> nodes = new LinkedHashMap<>();
+        DAG dag = model(nodes);
+        CompiledDAG graph = dag.compiled();
+
+        dag.setMin(dag.low());
+        dag.setMax(dag.upp());
+        nodes.get("A").setMax(new BigDecimal("2"));
+        assertSame(graph, dag.compiled());
+
+        // edges of other graphs leave the view current
+        DAG.sequence("S", uniform("X"), uniform("Y"));
+        assertSame(graph, dag.compiled());
+
+        nodes.get("F").addPrecondition(nodes.get("C"));
+        CompiledDAG changed = dag.compiled();
+        assertNotSame(graph, changed);
+        assertEquals(1, changed.preCount(changed.id(nodes.get("F"))) - graph.preCount(graph.id(nodes.get("F"))));
+    }
+}
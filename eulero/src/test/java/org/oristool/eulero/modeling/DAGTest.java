@@ -0,0 +1,127 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DAGTest {
+
+    private static Simple uniform(String name, int eft, int lft) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance(
+                String.valueOf(eft), String.valueOf(lft)));
+    }
+
+    /**
+     * Lattice of {@code layers x width} activities, each depending on all
+     * activities of the previous layer.
+     */
+    private static DAG lattice(int layers, int width, List<Activity> nodes) {
+        DAG dag = DAG.empty("L");
+        List<Activity> previous = List.of(dag.begin());
+        for (int l = 0; l < layers; l++) {
+            List<Activity> layer = new ArrayList<>();
+            for (int w = 0; w < width; w++) {
+                Activity activity = uniform("A" + l + "_" + w, w, w + l + 1);
+                activity.addPrecondition(previous.toArray(Activity[]::new));
+                layer.add(activity);
+            }
+            nodes.addAll(layer);
+            previous = layer;
+        }
+        dag.end().addPrecondition(previous.toArray(Activity[]::new));
+        dag.setActivities(new ArrayList<>(nodes));
+        return dag;
+    }
+
+    /** Bounds as computed by the recursion of earlier releases. */
+    private static BigDecimal minBound(DAG dag, Activity activity) {
+        if (activity.equals(dag.begin()))
+            return activity.low();
+
+        BigDecimal maximumPredecessorLow = BigDecimal.ZERO;
+        for (Activity predecessor : activity.pre()) {
+            maximumPredecessorLow = maximumPredecessorLow.max(minBound(dag, predecessor));
+        }
+        return activity.low().add(maximumPredecessorLow);
+    }
+
+    private static BigDecimal maxBound(DAG dag, Activity activity) {
+        if (activity.equals(dag.begin()))
+            return activity.upp();
+
+        BigDecimal maximumPredecessorUpp = BigDecimal.ZERO;
+        for (Activity predecessor : activity.pre()) {
+            maximumPredecessorUpp = maximumPredecessorUpp.max(maxBound(dag, predecessor));
+            if (maximumPredecessorUpp.doubleValue() >= Double.MAX_VALUE)
+                return BigDecimal.valueOf(Double.MAX_VALUE);
+        }
+        return activity.upp().add(maximumPredecessorUpp);
+    }
+
+    private static void assertBounds(DAG dag, Activity activity) {
+        assertEquals(0, minBound(dag, activity).compareTo(dag.getMinBound(activity)), activity.name());
+        assertEquals(0, maxBound(dag, activity).compareTo(dag.getMaxBound(activity)), activity.name());
+    }
+
+    @Test
+    void boundsMatchTheRecursiveDefinition() {
+        List<Activity> nodes = new ArrayList<>();
+        DAG dag = lattice(5, 3, nodes);
+        for (Activity node : nodes) {
+            assertBounds(dag, node);
+        }
+        assertBounds(dag, dag.begin());
+        assertBounds(dag, dag.end());
+    }
+
+    @Test
+    void unboundedActivitiesMakeTheirSuccessorsUnbounded() {
+        List<Activity> nodes = new ArrayList<>();
+        DAG dag = lattice(3, 2, nodes);
+        assertBounds(dag, dag.end());
+
+        Activity exp = new Simple("E", StochasticTransitionFeature.newExponentialInstance("2"));
+        exp.addPrecondition(nodes.get(0));
+        nodes.get(4).addPrecondition(exp);
+
+        for (Activity node : nodes) {
+            assertBounds(dag, node);
+        }
+        assertEquals(TimeGrid.UNBOUNDED, dag.getMaxBound(dag.end()));
+    }
+
+    @Test
+    void activitiesOutsideTheDAGFollowTheirPredecessors() {
+        List<Activity> nodes = new ArrayList<>();
+        DAG dag = lattice(3, 2, nodes);
+        Activity outside = uniform("O", 1, 2);
+        outside.addPrecondition(nodes.get(3));
+        assertBounds(dag, outside);
+
+        Activity detached = uniform("D", 1, 2);
+        assertBounds(dag, detached);
+        assertBounds(dag, dag.end());
+    }
+}
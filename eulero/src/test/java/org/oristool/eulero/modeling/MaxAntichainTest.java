@@ -0,0 +1,101 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MaxAntichainTest {
+
+    private static long bruteForce(long[] weights, int[][] successors) {
+        int n = weights.length;
+        boolean[][] reaches = new boolean[n][n];
+        // successors have larger indices: close reachability backwards
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j : successors[i]) {
+                reaches[i][j] = true;
+                for (int k = 0; k < n; k++) {
+                    reaches[i][k] |= reaches[j][k];
+                }
+            }
+        }
+
+        long best = 0;
+        for (int set = 0; set < (1 << n); set++) {
+            long weight = 0;
+            boolean antichain = true;
+            for (int i = 0; i < n && antichain; i++) {
+                if ((set >> i & 1) == 0)
+                    continue;
+                weight += weights[i];
+                for (int j = 0; j < n; j++) {
+                    if ((set >> j & 1) == 1 && reaches[i][j])
+                        antichain = false;
+                }
+            }
+            if (antichain)
+                best = Math.max(best, weight);
+        }
+        return best;
+    }
+
+    @Test
+    void matchesBruteForceOnSmallDags() {
+        Random random = new Random(3);
+        for (int t = 0; t < 500; t++) {
+            int n = 1 + random.nextInt(9);
+            long[] weights = new long[n];
+            int[][] successors = new int[n][];
+            for (int i = 0; i < n; i++) {
+                weights[i] = random.nextInt(5);
+                successors[i] = IntStream.range(i + 1, n).filter(j -> random.nextInt(3) == 0).toArray();
+            }
+            assertEquals(bruteForce(weights, successors), MaxAntichain.weight(weights, successors),
+                    "weights " + Arrays.toString(weights) + ", successors " + Arrays.deepToString(successors));
+        }
+    }
+
+    @Test
+    void longChainsDoNotOverflowTheStack() {
+        int n = 200_000;
+        long[] weights = new long[n];
+        Arrays.fill(weights, 3);
+        int[][] successors = new int[n][];
+        for (int i = 0; i < n; i++) {
+            successors[i] = i + 1 < n ? new int[] { i + 1 } : new int[0];
+        }
+        assertEquals(3, MaxAntichain.weight(weights, successors));
+    }
+
+    @Test
+    void hugeWeightsFallBackToTheirSum() {
+        int[][] chain = { { 1 }, {} };
+        BigInteger small = BigInteger.ONE.shiftLeft(46);
+        assertEquals(small, MaxAntichain.bound(new BigInteger[] { small, small }, chain));
+
+        // beyond 2^48 in total the flow is not computed
+        BigInteger huge = BigInteger.ONE.shiftLeft(48);
+        assertEquals(huge.shiftLeft(1), MaxAntichain.bound(new BigInteger[] { huge, huge }, chain));
+    }
+}
@@ -0,0 +1,92 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.oristool.eulero.examples.ExampleHelper;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelFormatTest {
+
+    private static Activity model() {
+        Simple q = new Simple("Q", StochasticTransitionFeature.newUniformInstance("0", "1"));
+        Simple r = new Simple("R", StochasticTransitionFeature.newExponentialInstance("0.3"));
+        Simple s = new Simple("S", StochasticTransitionFeature.newDeterministicInstance(new BigDecimal("2.5")));
+        Simple t = new Simple("T", new ArrayList<>(List.of(
+                StochasticTransitionFeature.newExponentialInstance("1.7"),
+                StochasticTransitionFeature.newUniformInstance("1", "3"))),
+                new ArrayList<>(List.of(new BigDecimal("0.25"), new BigDecimal("0.75"))));
+        Activity xor = new XOR("X", List.of(s, t), List.of(0.4, 0.6));
+
+        DAG top = DAG.empty("TOP");
+        q.addPrecondition(top.begin());
+        r.addPrecondition(top.begin());
+        xor.addPrecondition(q, r);
+        top.end().addPrecondition(xor);
+        top.setActivities(new ArrayList<>(List.of(q, r, xor)));
+        top.setMin(top.low());
+        top.setMax(top.upp());
+        return top;
+    }
+
+    @Test
+    void savedModelsAreLoadedBack(@TempDir Path directory) throws IOException {
+        Activity model = model();
+        Path file = directory.resolve("model.bin");
+        ModelFormat.save(model, file);
+        Activity loaded = ModelFormat.load(file);
+
+        assertEquals(ModelFormat.hash(model), ModelFormat.hash(loaded));
+        assertEquals(StructuralHash.of(model), StructuralHash.of(loaded));
+        assertEquals(model.max(), loaded.max());
+    }
+
+    @Test
+    void exponentialRatesAreStoredExactly() throws IOException {
+        Simple exp = new Simple("E", StochasticTransitionFeature.newExponentialInstance("0.3"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ModelFormat.Writer writer = new ModelFormat.Writer(bytes)) {
+            writer.write(exp);
+        }
+
+        try (ModelFormat.Reader reader = new ModelFormat.Reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Simple loaded = (Simple) reader.next();
+            assertEquals(StructuralHash.featureForm(exp.pdfFeatures().get(0)),
+                    StructuralHash.featureForm(loaded.pdfFeatures().get(0)));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readingAMissingModelFails(@TempDir Path directory) {
+        assertThrows(UncheckedIOException.class,
+                () -> ExampleHelper.binaryFileToObject(directory.resolve("missing.bin").toString()));
+    }
+}
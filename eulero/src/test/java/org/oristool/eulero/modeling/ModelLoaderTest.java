@@ -0,0 +1,103 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelLoaderTest {
+
+    /**
+     * A DAG as read from XML: activities and edges between their names,
+     * without pre/post links.
+     */
+    private static DAG unlinked(List<String> names, DAGEdge... edges) {
+        DAG dag = DAG.empty("D");
+        List<Activity> activities = new ArrayList<>();
+        for (String name : names)
+            activities.add(new Simple(name, StochasticTransitionFeature.newUniformInstance("0", "1")));
+        dag.setActivities(activities);
+        dag.setEdges(new ArrayList<>(List.of(edges)));
+        return dag;
+    }
+
+    private static void assertRejected(DAG dag, String problem) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ModelLoader.restoreEdges(dag));
+        assertTrue(e.getMessage().contains(problem), e.getMessage());
+    }
+
+    @Test
+    void edgesAreRestored() {
+        DAG dag = unlinked(List.of("A", "B", "C"), DAGEdge.of("A", "C"), DAGEdge.of("B", "C"));
+        ModelLoader.restoreEdges(dag);
+
+        Activity a = dag.activities().get(0);
+        Activity b = dag.activities().get(1);
+        Activity c = dag.activities().get(2);
+        assertEquals(List.of(a, b), c.pre());
+        assertEquals(List.of(c), a.post());
+        assertEquals(List.of(dag.begin()), a.pre());
+        assertEquals(List.of(a, b), dag.begin().post());
+        assertEquals(List.of(c), dag.end().pre());
+        assertEquals(5, dag.compiled().size());
+    }
+
+    @Test
+    void repeatedNamesAreRejected() {
+        assertRejected(unlinked(List.of("A", "B", "A"), DAGEdge.of("A", "B")), "Repeated activity A");
+    }
+
+    @Test
+    void unknownEndpointsAreRejected() {
+        assertRejected(unlinked(List.of("A", "B"), DAGEdge.of("A", "Z")), "unknown activity");
+        assertRejected(unlinked(List.of("A", "B"), DAGEdge.of("Z", "B")), "unknown activity");
+    }
+
+    @Test
+    void selfLoopsAreRejected() {
+        assertRejected(unlinked(List.of("A", "B"), DAGEdge.of("B", "B")), "Self-loop on B");
+    }
+
+    @Test
+    void repeatedEdgesAreRejected() {
+        assertRejected(unlinked(List.of("A", "B"), DAGEdge.of("A", "B"), DAGEdge.of("A", "B")),
+                "Repeated edge from A to B");
+    }
+
+    @Test
+    void cyclesAreRejected() {
+        // reachable from begin through A
+        assertRejected(unlinked(List.of("A", "B", "C"),
+                DAGEdge.of("A", "B"), DAGEdge.of("B", "C"), DAGEdge.of("C", "B")), "cycle");
+        // without entry from begin or exit to end
+        assertRejected(unlinked(List.of("A", "B", "C"),
+                DAGEdge.of("B", "C"), DAGEdge.of("C", "B")), "cycle");
+    }
+
+    @Test
+    void allProblemsAreReported() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ModelLoader.restoreEdges(
+                unlinked(List.of("A", "B"), DAGEdge.of("A", "A"), DAGEdge.of("A", "Z"))));
+        assertTrue(e.getMessage().contains("Self-loop") && e.getMessage().contains("unknown"), e.getMessage());
+    }
+}
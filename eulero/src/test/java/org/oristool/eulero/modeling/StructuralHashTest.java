@@ -0,0 +1,78 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class StructuralHashTest {
+
+    private static Simple deterministic(String name, String value) {
+        return new Simple(name, StochasticTransitionFeature.newDeterministicInstance(new BigDecimal(value)));
+    }
+
+    @Test
+    void namesAndOrderOfParallelBlocksAreIgnored() {
+        Activity first = DAG.forkJoin("A", deterministic("x", "1"), deterministic("y", "2"));
+        Activity second = DAG.forkJoin("B", deterministic("v", "2"), deterministic("w", "1"));
+        assertEquals(StructuralHash.of(first), StructuralHash.of(second));
+    }
+
+    @Test
+    void equivalentValuesHaveTheSameHash() {
+        Activity first = DAG.sequence("A", deterministic("x", "1"), deterministic("y", "2.50"));
+        Activity second = DAG.sequence("A", deterministic("x", "1"), deterministic("y", "2.5"));
+        assertEquals(StructuralHash.of(first), StructuralHash.of(second));
+    }
+
+    @Test
+    void orderOfSequencesMatters() {
+        Activity first = DAG.sequence("A", deterministic("x", "1"), deterministic("y", "2"));
+        Activity second = DAG.sequence("A", deterministic("y", "2"), deterministic("x", "1"));
+        assertNotEquals(StructuralHash.of(first), StructuralHash.of(second));
+    }
+
+    @Test
+    void blockTypesAndProbabilitiesMatter() {
+        Activity and = DAG.forkJoin("A", deterministic("x", "1"), deterministic("y", "2"));
+        Activity seq = DAG.sequence("A", deterministic("x", "1"), deterministic("y", "2"));
+        assertNotEquals(StructuralHash.of(and), StructuralHash.of(seq));
+
+        Activity xor = new XOR("X", List.of(deterministic("x", "1"), deterministic("y", "2")), List.of(0.3, 0.7));
+        Activity other = new XOR("X", List.of(deterministic("x", "1"), deterministic("y", "2")), List.of(0.7, 0.3));
+        assertNotEquals(StructuralHash.of(xor), StructuralHash.of(other));
+    }
+
+    @Test
+    void changesInvalidateTheCachedHash() {
+        Simple y = deterministic("y", "2");
+        Activity model = DAG.sequence("A", deterministic("x", "1"), y);
+        String before = StructuralHash.of(model);
+        assertEquals(before, StructuralHash.of(model));
+
+        y.setFeatures(new java.util.ArrayList<>(List.of(
+                StochasticTransitionFeature.newDeterministicInstance(new BigDecimal("3")))));
+        assertNotEquals(before, StructuralHash.of(model));
+    }
+}
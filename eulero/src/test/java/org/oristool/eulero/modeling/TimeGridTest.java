@@ -0,0 +1,65 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.modeling;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeGridTest {
+
+    @Test
+    void samplesIncludeBothEnds() {
+        assertEquals(201, TimeGrid.of(new BigDecimal("0.01")).samples(new BigDecimal("2")));
+        assertEquals(11, TimeGrid.of(new BigDecimal("0.5")).samples(new BigDecimal("5.2")));
+        assertEquals(4, TimeGrid.of(new BigDecimal("1E+1")).samples(new BigDecimal("30")));
+    }
+
+    @Test
+    void ticksAreRoundedAsRequested() {
+        TimeGrid grid = TimeGrid.of(new BigDecimal("0.01"));
+        assertEquals(100, grid.ticks(new BigDecimal("1.005"), RoundingMode.HALF_DOWN));
+        assertEquals(101, grid.ticks(new BigDecimal("1.005"), RoundingMode.HALF_UP));
+        assertEquals(100, grid.ticks(new BigDecimal("1.009"), RoundingMode.DOWN));
+    }
+
+    @Test
+    void tickTimesDoNotDrift() {
+        TimeGrid grid = TimeGrid.of(new BigDecimal("0.1"));
+        assertEquals(0.3, grid.time(3), 0);
+        assertEquals(1234.5, grid.time(12345), 0);
+        assertEquals(0.1, grid.delta(), 0);
+    }
+
+    @Test
+    void fairStepsKeepTheirRepresentation() {
+        assertEquals("0.01", TimeGrid.fairStep(3).toString());
+        assertEquals("0.1", TimeGrid.fairStep(50).toString());
+        assertEquals("1.0", TimeGrid.fairStep(500).toString());
+        assertEquals("10.0", TimeGrid.fairStep(5000).toString());
+    }
+
+    @Test
+    void maxValueBoundsAreUnbounded() {
+        assertTrue(TimeGrid.isUnbounded(TimeGrid.UNBOUNDED));
+        assertFalse(TimeGrid.isUnbounded(new BigDecimal("1E+300")));
+    }
+}
@@ -0,0 +1,76 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.eulero.modeling.*;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MonteCarloSimulatorTest {
+
+    private static Activity model() {
+        StochasticTransitionFeature uniform = StochasticTransitionFeature.newUniformInstance("0", "1");
+        Activity choice = new XOR("X", List.of(
+                new Simple("D", StochasticTransitionFeature.newDeterministicInstance(new BigDecimal("0.5"))),
+                new Simple("U", uniform)), List.of(0.3, 0.7));
+        return DAG.sequence("S", DAG.forkJoin("F", new Simple("A", uniform), new Simple("B", uniform)), choice);
+    }
+
+    @Test
+    void resultsDoNotDependOnTheNumberOfThreads() {
+        MonteCarloSimulator simulator = new MonteCarloSimulator(model(), new BigDecimal("2"), new BigDecimal("0.01"));
+        // several chunks, the last one partial
+        int runs = 5 * MonteCarloSimulator.CHUNK_RUNS + 123;
+        double[] sequential = simulator.simulate(runs, 1, 42);
+        for (int threads : new int[] { 2, 3, 8 }) {
+            assertArrayEquals(sequential, simulator.simulate(runs, threads, 42), 0);
+        }
+    }
+
+    @Test
+    void resultsDoNotDependOnTheExecutor() {
+        int runs = 3 * MonteCarloSimulator.CHUNK_RUNS;
+        double[] common = new MonteCarloSimulator(model(), new BigDecimal("2"), new BigDecimal("0.01"))
+                .simulate(runs, 4, 7);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MonteCarloSimulator simulator = new MonteCarloSimulator(model(), new BigDecimal("2"), new BigDecimal("0.01"), executor);
+            assertArrayEquals(common, simulator.simulate(runs, 4, 7), 0);
+            assertArrayEquals(common, simulator.simulate(runs, 4, 7), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void accumulatedRunsAreCounted() {
+        MonteCarloSimulator simulator = new MonteCarloSimulator(model(), new BigDecimal("2"), new BigDecimal("0.01"));
+        CompletionHistogram histogram = simulator.accumulate(simulator.histogram(), 1000, 2, 1);
+        simulator.accumulate(histogram, 500, 1, 2);
+        assertEquals(1500, histogram.runs());
+        assertEquals(1.0, histogram.cdf()[simulator.samples() - 1], 0);
+    }
+}
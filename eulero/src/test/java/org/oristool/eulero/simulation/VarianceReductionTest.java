@@ -0,0 +1,68 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.eulero.modeling.*;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VarianceReductionTest {
+
+    private static Activity uniform(String name) {
+        return new Simple(name, StochasticTransitionFeature.newUniformInstance("0", "1"));
+    }
+
+    private static Activity model(Activity... extra) {
+        Activity choice = new XOR("X", List.of(uniform("C"), uniform("D")), List.of(0.2, 0.8));
+        Activity[] branches = new Activity[extra.length + 2];
+        System.arraycopy(extra, 0, branches, 0, extra.length);
+        branches[extra.length] = uniform("A");
+        branches[extra.length + 1] = choice;
+        return DAG.forkJoin("F", branches);
+    }
+
+    private static MonteCarloSimulator simulator(Activity model) {
+        return new MonteCarloSimulator(model, new BigDecimal("3"), new BigDecimal("0.01"));
+    }
+
+    @Test
+    void identicalVariantsGetIdenticalSamples() {
+        SimulationEstimate difference = VarianceReduction.commonRandomNumbers(
+                simulator(model()), simulator(model()), 2000, 5);
+        for (int t = 0; t < difference.values().length; t++) {
+            assertEquals(0, difference.values()[t], 0);
+            assertEquals(0, difference.variance()[t], 0);
+        }
+    }
+
+    @Test
+    void sharedActivitiesGetTheSameNumbers() {
+        // the extra leaf comes first, shifting the position of all other numbers
+        SimulationEstimate difference = VarianceReduction.commonRandomNumbers(
+                simulator(model(uniform("E"))), simulator(model()), 2000, 5);
+        for (int t = 0; t < difference.values().length; t++) {
+            assertTrue(difference.values()[t] <= 0, "Extra branch completes earlier at " + t);
+        }
+    }
+}
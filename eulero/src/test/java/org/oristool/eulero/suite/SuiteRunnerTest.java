@@ -0,0 +1,129 @@
+/* This program is called EULERO.
+ * Copyright (C) 2022 The EULERO Authors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.oristool.eulero.suite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.oristool.eulero.evaluation.heuristics.AnalysisBudget;
+import org.oristool.eulero.evaluation.heuristics.Degradation;
+import org.oristool.eulero.evaluation.heuristics.EvaluationResult;
+import org.oristool.eulero.modeling.Activity;
+import org.oristool.eulero.modeling.Simple;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuiteRunnerTest {
+
+    private static Activity model() {
+        return new Simple("A", StochasticTransitionFeature.newUniformInstance("0", "1"));
+    }
+
+    private static EvaluationResult analyze(Activity model) {
+        double[] cdf = { 0.0, 0.5, 1.0 };
+        return new EvaluationResult("Test", cdf, 0, cdf.length, 0.5, 0);
+    }
+
+    @Test
+    void finishedCasesAreSkippedOnRestart(@TempDir Path directory) throws IOException, InterruptedException {
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger analyzed = new AtomicInteger();
+        Supplier<Activity> generator = () -> {
+            generated.incrementAndGet();
+            return model();
+        };
+        Function<Activity, EvaluationResult> analysis = model -> {
+            analyzed.incrementAndGet();
+            return analyze(model);
+        };
+
+        SuiteRunner runner = new SuiteRunner(directory, 2);
+        runner.add("depth_1/model_00", generator, analysis);
+        runner.add("depth_1/model_01", generator, analysis);
+        for (SuiteRunner.Outcome outcome : runner.run())
+            assertEquals(SuiteRunner.Status.DONE, outcome.status(), outcome.toString());
+        assertTrue(Files.exists(directory.resolve("depth_1/model_00").resolve(SuiteRunner.MODEL)));
+        assertTrue(Files.exists(directory.resolve("depth_1/model_01").resolve(SuiteRunner.RESULTS)));
+
+        SuiteRunner restarted = new SuiteRunner(directory, 2);
+        restarted.add("depth_1/model_00", generator, analysis);
+        restarted.add("depth_1/model_01", generator, analysis);
+        for (SuiteRunner.Outcome outcome : restarted.run())
+            assertEquals(SuiteRunner.Status.SKIPPED, outcome.status());
+        assertEquals(2, generated.get());
+        assertEquals(2, analyzed.get());
+    }
+
+    @Test
+    void casesOverTheirTimeBudgetDoNotBlockTheSuite(@TempDir Path directory) throws IOException, InterruptedException {
+        SuiteRunner runner = new SuiteRunner(directory, 1);
+        runner.setTimeBudget(Duration.ofMillis(50));
+        runner.add("slow", SuiteRunnerTest::model, model -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return analyze(model);
+        });
+        runner.add("fast", SuiteRunnerTest::model, SuiteRunnerTest::analyze);
+
+        List<SuiteRunner.Outcome> outcomes = runner.run();
+        assertEquals(SuiteRunner.Status.TIMEOUT, outcomes.get(0).status());
+        assertFalse(Files.exists(directory.resolve("slow").resolve(SuiteRunner.RESULTS)));
+        // the interruption does not reach the next case on the same thread
+        assertEquals(SuiteRunner.Status.DONE, outcomes.get(1).status(), outcomes.get(1).toString());
+    }
+
+    @Test
+    void degradedResultsAreStoredAndNotRunAgain(@TempDir Path directory) throws IOException, InterruptedException {
+        AnalysisBudget budget = new AnalysisBudget();
+        AtomicInteger analyzed = new AtomicInteger();
+        BiFunction<Activity, AnalysisBudget, EvaluationResult> analysis = (model, caseBudget) -> {
+            analyzed.incrementAndGet();
+            assertSame(budget, caseBudget);
+            EvaluationResult result = analyze(model);
+            result.setDegradations(List.of(new Degradation("A", AnalysisBudget.Resource.BLOCK_TIME, Degradation.Fallback.SIMULATION)));
+            return result;
+        };
+
+        SuiteRunner runner = new SuiteRunner(directory, 1);
+        runner.setBudget(budget);
+        runner.add("degraded", SuiteRunnerTest::model, analysis);
+        SuiteRunner.Outcome outcome = runner.run().get(0);
+        assertEquals(SuiteRunner.Status.DEGRADED, outcome.status(), outcome.toString());
+        assertTrue(outcome.message().contains("SIMULATION"));
+        assertTrue(Files.exists(directory.resolve("degraded").resolve(SuiteRunner.RESULTS)));
+
+        SuiteRunner restarted = new SuiteRunner(directory, 1);
+        restarted.setRetryFailed(true);
+        restarted.add("degraded", SuiteRunnerTest::model, analysis);
+        assertEquals(SuiteRunner.Status.SKIPPED, restarted.run().get(0).status());
+        assertEquals(1, analyzed.get());
+    }
+}